@@ -0,0 +1,76 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import javax.swing.JLabel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zetool.components.JArrayPanel;
+
+/**
+ * Measures filling a square {@link JArrayPanel} with labels, rebuilding it and computing its layout.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class ArrayPanelBenchmark {
+
+    /** The approximate number of cells, the grid has the next larger square size. */
+    @Param({"10", "100", "1000", "10000"})
+    public int items;
+
+    @Benchmark
+    public JArrayPanel buildAndRebuild() {
+        JArrayPanel panel = fill(items);
+        panel.rebuild();
+        return panel;
+    }
+
+    @Benchmark
+    public JArrayPanel buildAndLayout() {
+        JArrayPanel panel = fill(items);
+        panel.setSize(panel.getPreferredSize());
+        panel.doLayout();
+        return panel;
+    }
+
+    private static JArrayPanel fill(int items) {
+        int size = (int) Math.ceil(Math.sqrt(items));
+        JArrayPanel panel = new JArrayPanel(size, size);
+        panel.beginUpdate();
+        for (int i = 0; i < size; ++i) {
+            for (int j = 0; j < size; ++j) {
+                panel.set(new JLabel(i + ", " + j), i, j);
+            }
+        }
+        panel.commitUpdate();
+        return panel;
+    }
+}
@@ -0,0 +1,85 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.benchmark;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JMenuBar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zetool.components.ComponentLocalization;
+import org.zetool.components.Localizer;
+import org.zetool.components.framework.Menu;
+
+/**
+ * Measures {@link Localizer#updateLocalization()} for a menu bar with a given number of registered items. The default
+ * locale alternates between English and German before each invocation, the menus take their texts from the compiled
+ * bundles of {@link ComponentLocalization} selected by {@link Menu#updateBundle()} for the new locale. The setup checks
+ * that a switch actually changes the texts, such that the benchmark does not measure setting unchanged texts.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class LocaleSwitchBenchmark {
+
+    /** The number of registered menu items. */
+    @Param({"10", "100", "1000", "10000"})
+    public int items;
+    /** Whether the German locale is set for the next invocation. */
+    private boolean german;
+
+    @Setup(Level.Trial)
+    public void registerItems() {
+        Menu.setBundleName(ComponentLocalization.BUNDLE_NAME);
+        JMenuBar bar = MenuBenchmark.buildMenuBar(items);
+        Locale.setDefault(Locale.GERMAN);
+        Localizer.instance().updateLocalization();
+        String germanText = bar.getMenu(0).getText();
+        Locale.setDefault(Locale.ENGLISH);
+        Localizer.instance().updateLocalization();
+        if (germanText.equals(bar.getMenu(0).getText())) {
+            throw new IllegalStateException("Switching the locale does not change the menu texts, are the compiled "
+                    + "bundles missing?");
+        }
+        german = false;
+    }
+
+    @Setup(Level.Invocation)
+    public void switchLocale() {
+        german = !german;
+        Locale.setDefault(german ? Locale.GERMAN : Locale.ENGLISH);
+    }
+
+    @Benchmark
+    public void updateLocalization() {
+        Localizer.instance().updateLocalization();
+    }
+}
@@ -0,0 +1,79 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zetool.components.framework.Menu;
+
+/**
+ * Measures building a menu bar with {@link Menu#addMenu(javax.swing.JMenuBar, java.lang.String)} and
+ * {@link Menu#addMenuItem(javax.swing.JMenu, java.lang.String, java.awt.event.ActionListener)}.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class MenuBenchmark {
+
+    /** The number of items in a menu. */
+    static final int ITEMS_PER_MENU = 20;
+    /** The localization keys used for the items. */
+    static final String[] KEYS = {"General.OK", "General.Cancel", "General.Quit", "-"};
+
+    /** The total number of menu items. */
+    @Param({"10", "100", "1000", "10000"})
+    public int items;
+
+    @Benchmark
+    public JMenuBar buildMenuBar() {
+        return buildMenuBar(items);
+    }
+
+    /**
+     * Builds a menu bar containing menus with up to {@link #ITEMS_PER_MENU} items each.
+     *
+     * @param items the total number of items
+     * @return the menu bar
+     */
+    static JMenuBar buildMenuBar(int items) {
+        JMenuBar bar = new JMenuBar();
+        JMenu menu = null;
+        for (int i = 0; i < items; ++i) {
+            if (i % ITEMS_PER_MENU == 0) {
+                menu = Menu.addMenu(bar, "General.Quit");
+            }
+            Menu.addMenuItem(menu, KEYS[i % KEYS.length], e -> {
+            });
+        }
+        return bar;
+    }
+}
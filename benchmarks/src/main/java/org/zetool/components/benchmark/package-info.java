@@ -0,0 +1,31 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+/**
+ * JMH benchmarks measuring the construction of menus, tool bars, status bars and grids and the localization of
+ * registered components. The benchmarks run headless, each for 10 to 10,000 items.
+ * <p>
+ * All benchmarks measure single invocations ({@code Mode.SingleShotTime}), as they describe the startup cost of a
+ * window rather than a steady state. This also bounds the number of invocations: components built with
+ * {@link org.zetool.components.framework.Menu} and {@link org.zetool.components.framework.Button} are registered at
+ * the {@link org.zetool.components.Localizer} and are never released, so an unbounded number of invocations would
+ * exhaust the heap.</p>
+ * <p>
+ * Run the benchmarks after installing the components with
+ * {@code mvn package && java -jar target/benchmarks.jar -prof gc}. The {@code gc} profiler reports the allocation rate
+ * and the allocated bytes per operation.</p>
+ */
+package org.zetool.components.benchmark;
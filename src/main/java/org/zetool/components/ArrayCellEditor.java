@@ -0,0 +1,39 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.awt.Component;
+import javax.swing.CellEditor;
+
+/**
+ * Provides the component that edits a cell of a {@link JVirtualArrayPanel}. Only the edited cell is represented by a
+ * real component, it is removed again when the editing is stopped or cancelled.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public interface ArrayCellEditor extends CellEditor {
+
+    /**
+     * Returns the component that edits a cell.
+     *
+     * @param panel the panel containing the cell
+     * @param value the value of the cell, may be {@code null}
+     * @param column the column of the cell
+     * @param row the row of the cell
+     * @return the component editing the cell
+     */
+    Component getCellEditorComponent(JVirtualArrayPanel panel, Object value, int column, int row);
+}
@@ -0,0 +1,39 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.awt.Component;
+
+/**
+ * Paints the cells of a {@link JVirtualArrayPanel}. The same component is returned for many cells, it is configured
+ * for one cell, painted and then reused for the next cell.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+@FunctionalInterface
+public interface ArrayCellRenderer {
+
+    /**
+     * Returns the component used to paint a cell.
+     *
+     * @param panel the panel containing the cell
+     * @param value the value of the cell, may be {@code null}
+     * @param column the column of the cell
+     * @param row the row of the cell
+     * @return the component configured to paint the cell
+     */
+    Component getCellRendererComponent(JVirtualArrayPanel panel, Object value, int column, int row);
+}
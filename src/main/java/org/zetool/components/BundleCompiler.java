@@ -0,0 +1,186 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Compiles localization bundles in properties format into {@link CompiledBundle}s. The compiled bundle of a locale
+ * contains the texts of the more general locales, too. The first "_" of a text marks the following character as
+ * mnemonic, like in {@link org.zetool.components.framework.Menu#processMnemonic}; the marker is removed and the
+ * position of the mnemonic is stored.
+ * <p>
+ * The compiler runs during the build, after the resources were copied:
+ * <pre>
+ * java org.zetool.components.BundleCompiler target/classes org/zetool/components/ComponentLocalization
+ * </pre>
+ * writes {@code ComponentLocalization.zlb}, {@code ComponentLocalization_de.zlb} and so on next to the properties
+ * files.</p>
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public final class BundleCompiler {
+
+    /** The file extension of bundles in properties format. */
+    private static final String PROPERTIES = ".properties";
+
+    /** Utility class constructor. */
+    private BundleCompiler() {
+    }
+
+    /**
+     * Compiles the bundles of the given base names.
+     *
+     * @param args the directory containing the bundles, followed by the base names as paths relative to the directory
+     * @throws IOException if a bundle cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BundleCompiler <directory> <base name>...");
+            System.exit(1);
+        }
+        Path directory = Paths.get(args[0]);
+        for (int i = 1; i < args.length; ++i) {
+            for (Path file : compileAll(directory, args[i])) {
+                System.out.println("Compiled " + file);
+            }
+        }
+    }
+
+    /**
+     * Compiles all locales of a bundle in properties format.
+     *
+     * @param directory the directory containing the bundles
+     * @param baseName the base name of the bundle as path relative to the directory, without extension
+     * @return the written files
+     * @throws IOException if a bundle cannot be read or written
+     */
+    public static List<Path> compileAll(Path directory, String baseName) throws IOException {
+        Path base = directory.resolve(baseName + PROPERTIES);
+        String prefix = base.getFileName().toString().replace(PROPERTIES, "");
+        List<Path> written = new ArrayList<>();
+        Map<String, Map<String, String>> loaded = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(base.getParent(), prefix + "*" + PROPERTIES)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String suffix = name.substring(prefix.length(), name.length() - PROPERTIES.length());
+                if (!suffix.isEmpty() && !suffix.startsWith("_")) {
+                    // another bundle sharing the prefix
+                    continue;
+                }
+                // the texts of the more general locales are overwritten by the more specific ones
+                Map<String, String> texts = new TreeMap<>();
+                for (String locale : getLocaleChain(suffix)) {
+                    texts.putAll(loaded.computeIfAbsent(locale, l -> load(base.resolveSibling(prefix + l
+                            + PROPERTIES))));
+                }
+                Path target = file.resolveSibling(prefix + suffix + CompiledBundle.EXTENSION);
+                Files.write(target, compile(texts));
+                written.add(target);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Returns the suffixes of a locale and the more general locales, for example "", "_de" and "_de_DE" for "_de_DE".
+     *
+     * @param suffix the suffix of the locale
+     * @return the suffixes from the most general one
+     */
+    private static List<String> getLocaleChain(String suffix) {
+        List<String> chain = new ArrayList<>();
+        chain.add("");
+        for (int end = suffix.indexOf('_', 1); end > 0; end = suffix.indexOf('_', end + 1)) {
+            chain.add(suffix.substring(0, end));
+        }
+        if (!suffix.isEmpty()) {
+            chain.add(suffix);
+        }
+        return chain;
+    }
+
+    private static Map<String, String> load(Path file) {
+        Map<String, String> texts = new HashMap<>();
+        if (Files.isRegularFile(file)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot read " + file, ex);
+            }
+            for (String key : properties.stringPropertyNames()) {
+                texts.put(key, properties.getProperty(key));
+            }
+        }
+        return texts;
+    }
+
+    /**
+     * Compiles texts into the format of {@link CompiledBundle}.
+     *
+     * @param texts the texts by key
+     * @return the compiled bundle
+     */
+    public static byte[] compile(Map<String, String> texts) {
+        TreeMap<String, String> sorted = new TreeMap<>(texts);
+        StringBuilder pool = new StringBuilder();
+        int[] entries = new int[sorted.size() * CompiledBundle.ENTRY_SIZE];
+        int entry = 0;
+        for (Map.Entry<String, String> text : sorted.entrySet()) {
+            String value = text.getValue();
+            int mnemonic = value.indexOf('_');
+            if (mnemonic >= 0 && mnemonic + 1 < value.length()) {
+                value = value.substring(0, mnemonic) + value.substring(mnemonic + 1);
+            } else {
+                mnemonic = -1;
+            }
+            entries[entry++] = pool.length();
+            entries[entry++] = text.getKey().length();
+            pool.append(text.getKey());
+            entries[entry++] = pool.length();
+            entries[entry++] = value.length();
+            pool.append(value);
+            entries[entry++] = mnemonic;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(CompiledBundle.MAGIC);
+            out.writeInt(sorted.size());
+            out.writeInt(pool.length());
+            for (int value : entries) {
+                out.writeInt(value);
+            }
+            out.writeChars(pool.toString());
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,252 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import info.clearthought.layout.TableLayout;
+import info.clearthought.layout.TableLayoutConstraints;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.Insets;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A {@link TableLayout} that remembers the preferred and minimum sizes of the components and the resulting sizes of
+ * the columns and rows. A component is only measured again if it is not valid, that is if it has been invalidated since
+ * the last layout, for example because its text changed. Only the column and row of a component whose size changed
+ * are recomputed, using the remembered sizes of the other components in the column and row.
+ * <p>
+ * The original layout compares every component with every preferred column and row, the cached layout visits each
+ * component once. Components spanning several columns or rows are supported, but then the sizes of preferred and
+ * minimum columns and rows are computed by {@link TableLayout} itself.</p>
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+class CachedTableLayout extends TableLayout {
+
+    /** Index of the cached preferred sizes. */
+    private static final int PREFERRED_SIZE = 0;
+    /** Index of the cached minimum sizes. */
+    private static final int MINIMUM_SIZE = 1;
+    /** Set if components were added, removed or moved since the index was built. */
+    private transient boolean indexDirty = true;
+    /** The entries of the layout when the index was built. */
+    private transient Entry[] entries;
+    /** The remembered preferred and minimum sizes of the entries. */
+    private transient Dimension[][] sizes;
+    /** Set if an entry spans more than one column or row. */
+    private transient boolean spanning;
+    /** For both directions and each column or row the indices of the entries it contains, in compressed form. */
+    private transient int[][] members;
+    /** For both directions the start of the members of each column or row, one more than columns or rows exist. */
+    private transient int[][] memberStart;
+    /** For both directions, both size types and each column or row the maximal size of its entries. */
+    private transient int[][][] maxSize;
+    /** For both directions the columns and rows whose maximal sizes must be recomputed. */
+    private transient BitSet[] dirtyCr;
+
+    /**
+     * Creates a new layout with the given column widths and row heights.
+     *
+     * @param columns the widths of the columns
+     * @param rows the heights of the rows
+     */
+    CachedTableLayout(double[] columns, double[] rows) {
+        super(columns, rows);
+    }
+
+    @Override
+    public void addLayoutComponent(Component component, Object constraint) {
+        super.addLayoutComponent(component, constraint);
+        indexDirty = true;
+    }
+
+    @Override
+    public void removeLayoutComponent(Component component) {
+        super.removeLayoutComponent(component);
+        indexDirty = true;
+    }
+
+    @Override
+    public void setConstraints(Component component, TableLayoutConstraints constraint) {
+        super.setConstraints(component, constraint);
+        indexDirty = true;
+    }
+
+    @Override
+    protected void setCr(int z, double[] size) {
+        super.setCr(z, size);
+        indexDirty = true;
+    }
+
+    @Override
+    protected void insertCr(int z, int i, double size) {
+        super.insertCr(z, i, size);
+        indexDirty = true;
+    }
+
+    @Override
+    protected void deleteCr(int z, int i) {
+        super.deleteCr(z, i);
+        indexDirty = true;
+    }
+
+    @Override
+    protected void calculateSize(Container container) {
+        update();
+        super.calculateSize(container);
+    }
+
+    /**
+     * Computes the preferred or minimum size of the container from the remembered sizes of the components.
+     *
+     * @param container the container
+     * @param typeOfSize {@link #PREFERRED} or {@link #MINIMUM}
+     * @return the size of the container
+     */
+    @Override
+    protected Dimension calculateLayoutSize(Container container, double typeOfSize) {
+        update();
+        Dimension[] componentSizes = sizes[typeOfSize == PREFERRED ? PREFERRED_SIZE : MINIMUM_SIZE];
+        int width = calculateLayoutSize(container, C, typeOfSize, entries, componentSizes);
+        int height = calculateLayoutSize(container, R, typeOfSize, entries, componentSizes);
+        Insets insets = container.getInsets();
+        return new Dimension(width + insets.left + insets.right, height + insets.top + insets.bottom);
+    }
+
+    /**
+     * Assigns the remembered maximal sizes to the preferred or minimum columns or rows.
+     *
+     * @param z {@link #C} or {@link #R}
+     * @param availableSize the size available for the columns or rows
+     * @param typeOfSize {@link #PREFERRED} or {@link #MINIMUM}
+     * @return the remaining available size
+     */
+    @Override
+    protected int assignPrefMinSize(int z, int availableSize, double typeOfSize) {
+        if (spanning || maxSize == null || maxSize[z][0].length != crSpec[z].length) {
+            return super.assignPrefMinSize(z, availableSize, typeOfSize);
+        }
+        int[] max = maxSize[z][typeOfSize == PREFERRED ? PREFERRED_SIZE : MINIMUM_SIZE];
+        for (int i = 0; i < crSpec[z].length; ++i) {
+            if (crSpec[z][i] == typeOfSize) {
+                crSize[z][i] = max[i];
+                availableSize -= max[i];
+            }
+        }
+        return availableSize;
+    }
+
+    /**
+     * Measures the invalid components and recomputes the columns and rows containing components whose size changed.
+     */
+    private void update() {
+        if (indexDirty || entries == null) {
+            buildIndex();
+        }
+        for (int i = 0; i < entries.length; ++i) {
+            Component component = entries[i].component;
+            if (sizes[PREFERRED_SIZE][i] != null && component.isValid()) {
+                continue;
+            }
+            Dimension preferred = component.getPreferredSize();
+            Dimension minimum = component.getMinimumSize();
+            if (!preferred.equals(sizes[PREFERRED_SIZE][i]) || !minimum.equals(sizes[MINIMUM_SIZE][i])) {
+                sizes[PREFERRED_SIZE][i] = preferred;
+                sizes[MINIMUM_SIZE][i] = minimum;
+                for (int z = C; z <= R; ++z) {
+                    int cr = entries[i].cr1[z];
+                    if (cr >= 0 && cr < crSpec[z].length) {
+                        dirtyCr[z].set(cr);
+                    }
+                }
+            }
+        }
+        for (int z = C; z <= R; ++z) {
+            for (int cr = dirtyCr[z].nextSetBit(0); cr >= 0; cr = dirtyCr[z].nextSetBit(cr + 1)) {
+                for (int type = PREFERRED_SIZE; type <= MINIMUM_SIZE; ++type) {
+                    int max = 0;
+                    for (int m = memberStart[z][cr]; m < memberStart[z][cr + 1]; ++m) {
+                        Dimension size = sizes[type][members[z][m]];
+                        max = Math.max(max, size == null ? 0 : z == C ? size.width : size.height);
+                    }
+                    maxSize[z][type][cr] = max;
+                }
+            }
+            dirtyCr[z].clear();
+        }
+    }
+
+    /**
+     * Builds the index of the entries of each column and row. The remembered sizes of components that are still in
+     * the layout are kept.
+     */
+    private void buildIndex() {
+        Map<Component, Integer> oldIndex = new IdentityHashMap<>();
+        if (entries != null) {
+            for (int i = 0; i < entries.length; ++i) {
+                oldIndex.put(entries[i].component, i);
+            }
+        }
+        Entry[] newEntries = list.toArray(new Entry[list.size()]);
+        Dimension[][] newSizes = new Dimension[2][newEntries.length];
+        for (int i = 0; i < newEntries.length; ++i) {
+            Integer old = oldIndex.get(newEntries[i].component);
+            if (old != null) {
+                newSizes[PREFERRED_SIZE][i] = sizes[PREFERRED_SIZE][old];
+                newSizes[MINIMUM_SIZE][i] = sizes[MINIMUM_SIZE][old];
+            }
+        }
+        entries = newEntries;
+        sizes = newSizes;
+        spanning = false;
+        members = new int[2][];
+        memberStart = new int[2][];
+        maxSize = new int[2][2][];
+        dirtyCr = new BitSet[2];
+        for (int z = C; z <= R; ++z) {
+            int count = crSpec[z].length;
+            int[] start = new int[count + 1];
+            for (Entry entry : entries) {
+                if (entry.cr1[z] != entry.cr2[z]) {
+                    spanning = true;
+                } else if (entry.cr1[z] >= 0 && entry.cr1[z] < count) {
+                    start[entry.cr1[z] + 1]++;
+                }
+            }
+            for (int cr = 0; cr < count; ++cr) {
+                start[cr + 1] += start[cr];
+            }
+            int[] next = new int[count];
+            int[] crMembers = new int[start[count]];
+            for (int i = 0; i < entries.length; ++i) {
+                int cr = entries[i].cr1[z];
+                if (entries[i].cr2[z] == cr && cr >= 0 && cr < count) {
+                    crMembers[start[cr] + next[cr]++] = i;
+                }
+            }
+            members[z] = crMembers;
+            memberStart[z] = start;
+            maxSize[z][PREFERRED_SIZE] = new int[count];
+            maxSize[z][MINIMUM_SIZE] = new int[count];
+            dirtyCr[z] = new BitSet(count);
+            dirtyCr[z].set(0, count);
+        }
+        indexDirty = false;
+    }
+}
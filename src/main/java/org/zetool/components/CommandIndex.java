@@ -0,0 +1,288 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+/**
+ * An index for searching commands by their labels. The index contains the trigrams of the labels and the first one and
+ * two characters of each word. A query of at least three characters is looked up by its trigrams, a shorter query by
+ * the word prefixes, so only labels sharing parts with the query are compared. The candidates are ranked by how well
+ * the query matches: as prefix of the label, as prefix of a word, as substring, as subsequence or, to tolerate typos,
+ * by the fraction of shared trigrams. Commands can be added at any time.
+ *
+ * @param <T> the type of the commands
+ * @author Jan-Philipp Kappmeier
+ */
+class CommandIndex<T> {
+
+    /**
+     * A command found for a query.
+     *
+     * @param <T> the type of the command
+     */
+    static final class Match<T> {
+
+        /** The command. */
+        private final T command;
+        /** The label of the command. */
+        private final String label;
+        /** The quality of the match, higher is better. */
+        private final int score;
+
+        private Match(T command, String label, int score) {
+            this.command = command;
+            this.label = label;
+            this.score = score;
+        }
+
+        T getCommand() {
+            return command;
+        }
+
+        String getLabel() {
+            return label;
+        }
+
+        int getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * A growing list of command numbers in increasing order.
+     */
+    private static final class Postings {
+
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * size);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /** Marks the keys of word prefixes, trigram keys use only the lower 48 bits. */
+    private static final long PREFIX_KEY = 1L << 62;
+    /** The indexed commands. */
+    private final List<T> commands = new ArrayList<>();
+    /** The labels of the commands. */
+    private final List<String> labels = new ArrayList<>();
+    /** The normalized labels of the commands. */
+    private final List<String> normalized = new ArrayList<>();
+    /** The commands containing a trigram or word prefix. */
+    private final LongMap<Postings> postings = new LongMap<>();
+
+    /**
+     * Adds a command.
+     *
+     * @param command the command
+     * @param label the label of the command
+     */
+    void add(T command, String label) {
+        int id = commands.size();
+        String text = normalize(label);
+        commands.add(command);
+        labels.add(label);
+        normalized.add(text);
+        for (int i = 0; i + 3 <= text.length(); ++i) {
+            posting(trigram(text, i)).add(id);
+        }
+        for (int i = 0; i < text.length(); ++i) {
+            if (isWordStart(text, i)) {
+                posting(prefix(text, i, 1)).add(id);
+                if (i + 1 < text.length()) {
+                    posting(prefix(text, i, 2)).add(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of commands.
+     *
+     * @return the number of commands
+     */
+    int size() {
+        return commands.size();
+    }
+
+    /**
+     * Finds the commands best matching a query.
+     *
+     * @param query the query
+     * @param limit the maximal number of results
+     * @param filter accepts the commands that may be returned
+     * @return the matching commands, the best match first
+     */
+    List<Match<T>> search(String query, int limit, Predicate<? super T> filter) {
+        String text = normalize(query).trim();
+        List<Match<T>> matches = new ArrayList<>();
+        if (text.isEmpty()) {
+            for (int id = 0; id < commands.size() && matches.size() < limit; ++id) {
+                if (filter.test(commands.get(id))) {
+                    matches.add(new Match<>(commands.get(id), labels.get(id), 0));
+                }
+            }
+            return matches;
+        }
+        if (text.length() < 3) {
+            Postings candidates = postings.get(prefix(text, 0, text.length()));
+            for (int i = 0; candidates != null && i < candidates.size; ++i) {
+                addMatch(matches, candidates.ids[i], text, 0, 0, filter);
+            }
+        } else {
+            long[] grams = new long[text.length() - 2];
+            for (int i = 0; i < grams.length; ++i) {
+                grams[i] = trigram(text, i);
+            }
+            Arrays.sort(grams);
+            int distinct = 0;
+            for (int i = 0; i < grams.length; ++i) {
+                if (i == 0 || grams[i] != grams[i - 1]) {
+                    grams[distinct++] = grams[i];
+                }
+            }
+            int[] shared = new int[commands.size()];
+            int[] touched = new int[commands.size()];
+            int touchedCount = 0;
+            for (int g = 0; g < distinct; ++g) {
+                Postings list = postings.get(grams[g]);
+                for (int i = 0; list != null && i < list.size; ++i) {
+                    if (shared[list.ids[i]]++ == 0) {
+                        touched[touchedCount++] = list.ids[i];
+                    }
+                }
+            }
+            int required = Math.max(1, distinct / 2);
+            for (int i = 0; i < touchedCount; ++i) {
+                int id = touched[i];
+                if (shared[id] >= required) {
+                    addMatch(matches, id, text, shared[id], distinct, filter);
+                }
+            }
+        }
+        matches.sort((a, b) -> a.score != b.score ? Integer.compare(b.score, a.score)
+                : a.label.compareToIgnoreCase(b.label));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    private void addMatch(List<Match<T>> matches, int id, String query, int shared, int grams,
+            Predicate<? super T> filter) {
+        T command = commands.get(id);
+        if (!filter.test(command)) {
+            return;
+        }
+        int score = score(normalized.get(id), query, shared, grams);
+        if (score > 0) {
+            matches.add(new Match<>(command, labels.get(id), score));
+        }
+    }
+
+    /**
+     * Rates how well a query matches a label. Shorter labels and matches further ahead are preferred.
+     *
+     * @param label the normalized label
+     * @param query the normalized query
+     * @param shared the number of trigrams of the query contained in the label
+     * @param grams the number of distinct trigrams of the query
+     * @return the score, 0 if the query does not match
+     */
+    private static int score(String label, String query, int shared, int grams) {
+        int penalty = Math.min(label.length(), 99);
+        if (label.startsWith(query)) {
+            return 5000 - penalty;
+        }
+        int position = label.indexOf(query);
+        while (position > 0 && !isWordStart(label, position)) {
+            position = label.indexOf(query, position + 1);
+        }
+        if (position > 0) {
+            return 4000 - penalty - Math.min(position, 99) * 5;
+        }
+        position = label.indexOf(query);
+        if (position >= 0) {
+            return 3000 - penalty - Math.min(position, 99) * 5;
+        }
+        int gaps = subsequenceGaps(label, query);
+        if (gaps >= 0) {
+            return 2000 - penalty - Math.min(gaps, 199) * 5;
+        }
+        return grams == 0 ? 0 : 1000 * shared / grams;
+    }
+
+    /**
+     * Counts the characters skipped when the query is matched as subsequence of the label.
+     *
+     * @return the number of skipped characters, -1 if the query is no subsequence
+     */
+    private static int subsequenceGaps(String label, String query) {
+        int gaps = 0;
+        int position = label.indexOf(query.charAt(0));
+        if (position < 0) {
+            return -1;
+        }
+        for (int i = 1; i < query.length(); ++i) {
+            int next = label.indexOf(query.charAt(i), position + 1);
+            if (next < 0) {
+                return -1;
+            }
+            gaps += next - position - 1;
+            position = next;
+        }
+        return gaps;
+    }
+
+    private Postings posting(long key) {
+        Postings list = postings.get(key);
+        if (list == null) {
+            list = new Postings();
+            postings.put(key, list);
+        }
+        return list;
+    }
+
+    private static boolean isWordStart(String text, int i) {
+        return Character.isLetterOrDigit(text.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)));
+    }
+
+    private static long trigram(String text, int i) {
+        return (long) text.charAt(i) << 32 | (long) text.charAt(i + 1) << 16 | text.charAt(i + 2);
+    }
+
+    private static long prefix(String text, int i, int length) {
+        return PREFIX_KEY | (long) length << 40 | (long) text.charAt(i) << 16 | (length > 1 ? text.charAt(i + 1) : 0);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,353 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A localization bundle precompiled by the {@link BundleCompiler}. The bundle is a binary table of sorted keys with a
+ * pool of UTF-16 characters containing the keys and the texts. Mnemonic markers are removed from the texts at compile
+ * time and their positions are stored, so no text is parsed at runtime. A key is found by binary search directly on the
+ * table, the texts are created once on first access.
+ * <p>
+ * The table of a locale contains the texts of the more general locales, so no chain of bundles is searched. Bundles
+ * are loaded lazily from the class path, or memory mapped from files if the system property
+ * {@value #DIRECTORY_PROPERTY} names a directory containing them.</p>
+ * <p>
+ * The format is: the magic number {@code 0x5A4C4231}, the number of entries and the number of pool characters; then for
+ * each entry in the order of the keys the offset and length of the key, the offset and length of the text and the
+ * position of the mnemonic in the text or -1, all as 32 bit integers; then the pool.</p>
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public final class CompiledBundle {
+
+    /** The system property naming a directory with compiled bundles that are memory mapped. */
+    public static final String DIRECTORY_PROPERTY = "org.zetool.components.bundles";
+    /** The file extension of compiled bundles. */
+    public static final String EXTENSION = ".zlb";
+    /** The magic number at the start of a compiled bundle. */
+    static final int MAGIC = 0x5A4C4231;
+    /** The number of integers in the header. */
+    static final int HEADER_SIZE = 3;
+    /** The number of integers per entry. */
+    static final int ENTRY_SIZE = 5;
+    /** The loaded bundles by file name. */
+    private static final Map<String, CompiledBundle> BUNDLES = new ConcurrentHashMap<>();
+    /** Marks bundles that do not exist in the cache. */
+    private static final CompiledBundle EMPTY = new CompiledBundle(ByteBuffer.wrap(new byte[]{0x5A, 0x4C, 0x42, 0x31,
+        0, 0, 0, 0, 0, 0, 0, 0}));
+    /** The entries. */
+    private final IntBuffer entries;
+    /** The keys and texts. */
+    private final CharBuffer pool;
+    /** The number of entries. */
+    private final int size;
+    /** The texts that were already read, by entry. */
+    private final String[] texts;
+
+    /**
+     * Reads a compiled bundle from a buffer. The buffer is used directly and must not be changed afterwards.
+     *
+     * @param buffer the buffer
+     * @throws IllegalArgumentException if the buffer does not contain a compiled bundle
+     */
+    public CompiledBundle(ByteBuffer buffer) {
+        IntBuffer header = buffer.duplicate().asIntBuffer();
+        if (header.remaining() < HEADER_SIZE || header.get(0) != MAGIC) {
+            throw new IllegalArgumentException("No compiled bundle.");
+        }
+        size = header.get(1);
+        int poolSize = header.get(2);
+        if (size < 0 || poolSize < 0 || header.remaining() < HEADER_SIZE + (long) size * ENTRY_SIZE
+                || buffer.remaining() < 4L * (HEADER_SIZE + size * ENTRY_SIZE) + 2L * poolSize) {
+            throw new IllegalArgumentException("Compiled bundle is truncated.");
+        }
+        header.position(HEADER_SIZE).limit(HEADER_SIZE + size * ENTRY_SIZE);
+        entries = header.slice();
+        ByteBuffer chars = buffer.duplicate();
+        chars.position(buffer.position() + 4 * (HEADER_SIZE + size * ENTRY_SIZE));
+        chars.limit(chars.position() + 2 * poolSize);
+        pool = chars.slice().asCharBuffer();
+        texts = new String[size];
+    }
+
+    /**
+     * Returns the compiled bundle for a locale. The bundles are searched in the order of
+     * {@link java.util.ResourceBundle}: for the language, country and variant of the locale, then of the default
+     * locale, then the base bundle. Bundles are loaded only once.
+     *
+     * @param baseName the base name of the bundle, for example {@code org.zetool.components.ComponentLocalization}
+     * @param locale the locale
+     * @return the bundle, {@code null} if no compiled bundle exists
+     * @throws IllegalStateException if a bundle cannot be read
+     */
+    public static CompiledBundle forLocale(String baseName, Locale locale) {
+        String base = baseName.replace('.', '/');
+        List<String> candidates = new ArrayList<>();
+        addCandidates(candidates, base, locale);
+        addCandidates(candidates, base, Locale.getDefault());
+        candidates.add(base);
+        for (String candidate : candidates) {
+            CompiledBundle bundle = BUNDLES.computeIfAbsent(candidate + EXTENSION, CompiledBundle::load);
+            if (bundle != EMPTY) {
+                return bundle;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds the names of the bundles for a locale, from the most to the least specific, without the base bundle.
+     *
+     * @param candidates the names of the bundles
+     * @param base the base name
+     * @param locale the locale
+     */
+    private static void addCandidates(List<String> candidates, String base, Locale locale) {
+        String language = locale.getLanguage();
+        String country = locale.getCountry();
+        String variant = locale.getVariant();
+        if (!variant.isEmpty()) {
+            addCandidate(candidates, base + '_' + language + '_' + country + '_' + variant);
+        }
+        if (!country.isEmpty()) {
+            addCandidate(candidates, base + '_' + language + '_' + country);
+        }
+        if (!language.isEmpty()) {
+            addCandidate(candidates, base + '_' + language);
+        }
+    }
+
+    private static void addCandidate(List<String> candidates, String candidate) {
+        if (!candidates.contains(candidate)) {
+            candidates.add(candidate);
+        }
+    }
+
+    private static CompiledBundle load(String file) {
+        try {
+            String directory = System.getProperty(DIRECTORY_PROPERTY);
+            if (directory != null) {
+                Path path = Paths.get(directory, file);
+                if (Files.isRegularFile(path)) {
+                    return map(path);
+                }
+            }
+            InputStream in = CompiledBundle.class.getClassLoader().getResourceAsStream(file);
+            if (in == null) {
+                return EMPTY;
+            }
+            try (InputStream stream = in) {
+                return read(stream);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot read compiled bundle " + file, ex);
+        }
+    }
+
+    /**
+     * Maps a compiled bundle file into memory.
+     *
+     * @param file the file
+     * @return the bundle
+     * @throws IOException if the file cannot be read
+     */
+    public static CompiledBundle map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new CompiledBundle(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads a compiled bundle from a stream.
+     *
+     * @param in the stream
+     * @return the bundle
+     * @throws IOException if the stream cannot be read
+     */
+    public static CompiledBundle read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        byte[] buffer = new byte[4096];
+        for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+            bytes.write(buffer, 0, read);
+        }
+        return new CompiledBundle(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    /**
+     * Returns the number of keys.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the bundle contains a key.
+     *
+     * @param key the key
+     * @return {@code true} if the key is contained
+     */
+    public boolean contains(String key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Returns the entry of a key. The entry can be used to read the text and the mnemonic without searching the key
+     * again.
+     *
+     * @param key the key
+     * @return the entry, or a negative value if the key is not contained
+     */
+    public int indexOf(String key) {
+        return find(key);
+    }
+
+    /**
+     * Returns the text for a key, without the mnemonic marker.
+     *
+     * @param key the key
+     * @return the text, {@code null} if the key is not contained
+     */
+    public String getText(String key) {
+        int entry = find(key);
+        return entry < 0 ? null : getText(entry);
+    }
+
+    /**
+     * Returns the text of an entry, without the mnemonic marker.
+     *
+     * @param entry the entry
+     * @return the text
+     * @throws IndexOutOfBoundsException if the entry does not exist
+     */
+    public String getText(int entry) {
+        checkEntry(entry);
+        String text = texts[entry];
+        if (text == null) {
+            int offset = entries.get(entry * ENTRY_SIZE + 2);
+            int length = entries.get(entry * ENTRY_SIZE + 3);
+            text = pool.subSequence(offset, offset + length).toString();
+            texts[entry] = text;
+        }
+        return text;
+    }
+
+    /**
+     * Returns the position of the mnemonic in the text for a key.
+     *
+     * @param key the key
+     * @return the position of the mnemonic, -1 if the text has no mnemonic or the key is not contained
+     */
+    public int getMnemonicIndex(String key) {
+        int entry = find(key);
+        return entry < 0 ? -1 : getMnemonicIndex(entry);
+    }
+
+    /**
+     * Returns the position of the mnemonic in the text of an entry.
+     *
+     * @param entry the entry
+     * @return the position of the mnemonic, -1 if the text has no mnemonic
+     * @throws IndexOutOfBoundsException if the entry does not exist
+     */
+    public int getMnemonicIndex(int entry) {
+        checkEntry(entry);
+        return entries.get(entry * ENTRY_SIZE + 4);
+    }
+
+    /**
+     * Returns the mnemonic of the text for a key.
+     *
+     * @param key the key
+     * @return the mnemonic, 0 if the text has no mnemonic or the key is not contained
+     */
+    public char getMnemonic(String key) {
+        int entry = find(key);
+        return entry < 0 ? 0 : getMnemonic(entry);
+    }
+
+    /**
+     * Returns the mnemonic of the text of an entry.
+     *
+     * @param entry the entry
+     * @return the mnemonic, 0 if the text has no mnemonic
+     * @throws IndexOutOfBoundsException if the entry does not exist
+     */
+    public char getMnemonic(int entry) {
+        int index = getMnemonicIndex(entry);
+        return index < 0 ? 0 : pool.get(entries.get(entry * ENTRY_SIZE + 2) + index);
+    }
+
+    private void checkEntry(int entry) {
+        if (entry < 0 || entry >= size) {
+            throw new IndexOutOfBoundsException("Entry out of range: " + entry);
+        }
+    }
+
+    /**
+     * Finds the entry of a key by binary search, comparing the key with the pool without creating strings.
+     *
+     * @param key the key
+     * @return the entry, or a negative value if the key is not contained
+     */
+    private int find(String key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(middle, key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(int entry, String key) {
+        int offset = entries.get(entry * ENTRY_SIZE);
+        int length = entries.get(entry * ENTRY_SIZE + 1);
+        int common = Math.min(length, key.length());
+        for (int i = 0; i < common; ++i) {
+            int difference = pool.get(offset + i) - key.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length();
+    }
+}
@@ -26,9 +26,10 @@ import org.zetool.common.localization.LocalizationManager;
  * @author Jan-Philipp Kappmeier
  */
 public final class ComponentLocalization {
+  /** The base name of the localization bundle, usable without loading the bundle. */
+  public static final String BUNDLE_NAME = "org.zetool.components.ComponentLocalization";
   /** Localization access for graph classes. */
-  public static final Localization LOC = LocalizationManager.getManager().getLocalization(
-          "org.zetool.components.ComponentLocalization" );
+  public static final Localization LOC = LocalizationManager.getManager().getLocalization( BUNDLE_NAME );
 
   /** Utility class constructor. */
   private ComponentLocalization() {}
@@ -0,0 +1,239 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.EnumMap;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prepares the components before the first window is shown. Loading the classes, looking up the localization bundles
+ * and creating fonts takes a noticeable time when it happens during the first layout on the event dispatch thread.
+ * The warm-up does it in advance on a background thread, usually started right at the launch of the application:
+ * <pre>
+ * {@code ComponentWarmup.start().thenAccept(report -> log.fine(report.toString()));}
+ * </pre>
+ * No components are created or painted, so the warm-up does not violate the threading rules of Swing.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public final class ComponentWarmup {
+
+    /**
+     * The phases of the warm-up, in the order they are performed.
+     */
+    public enum Phase {
+
+        /** Loads the localization bundles and the compiled bundles for the default locale and the bundled languages. */
+        LOCALIZATION,
+        /** Creates the fonts of the rulers and the log view and measures and renders their glyphs. */
+        FONTS,
+        /** Fills the caches of tick labels. */
+        LABELS,
+        /** Loads and initializes the classes of the components and the Swing classes they use. */
+        CLASSES
+    }
+
+    /**
+     * The durations of the phases of a warm-up.
+     */
+    public static final class Report {
+
+        /** The durations of the phases in nanoseconds. */
+        private final Map<Phase, Long> durations = new EnumMap<>(Phase.class);
+
+        private Report() {
+        }
+
+        /**
+         * Returns the duration of a phase.
+         *
+         * @param phase the phase
+         * @return the duration in nanoseconds
+         */
+        public long getNanos(Phase phase) {
+            return durations.getOrDefault(phase, 0L);
+        }
+
+        /**
+         * Returns the duration of the whole warm-up.
+         *
+         * @return the duration in nanoseconds
+         */
+        public long getTotalNanos() {
+            long total = 0;
+            for (long duration : durations.values()) {
+                total += duration;
+            }
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("Warm-up took ")
+                    .append(TimeUnit.NANOSECONDS.toMillis(getTotalNanos())).append(" ms (");
+            for (Phase phase : Phase.values()) {
+                builder.append(phase.name().toLowerCase(Locale.ROOT)).append(' ')
+                        .append(TimeUnit.NANOSECONDS.toMillis(getNanos(phase)))
+                        .append(phase.ordinal() < Phase.values().length - 1 ? " ms, " : " ms)");
+            }
+            return builder.toString();
+        }
+    }
+
+    /** The base name of the localization bundle. */
+    private static final String BUNDLE = ComponentLocalization.BUNDLE_NAME;
+    /** The locales of the bundled translations. */
+    private static final Locale[] LOCALES = {Locale.ENGLISH, Locale.GERMAN};
+    /** The characters rendered for each font, the digits and unit abbreviations of the rulers and common text. */
+    private static final String GLYPHS = "-0123456789 abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ.,:;()[]";
+    /** The classes loaded in advance. */
+    private static final String[] CLASSES = {
+        "org.zetool.components.JRuler",
+        "org.zetool.components.JZoomableRuler",
+        "org.zetool.components.JCorner",
+        "org.zetool.components.JStatusBar",
+        "org.zetool.components.JLogPane",
+        "org.zetool.components.log.JLogRecordView",
+        "org.zetool.components.log.LogRecordStore",
+        "org.zetool.components.framework.Menu",
+        "org.zetool.components.framework.Button",
+        "javax.swing.JMenuBar",
+        "javax.swing.JMenu",
+        "javax.swing.JMenuItem",
+        "javax.swing.JPopupMenu",
+        "javax.swing.JToolBar",
+        "javax.swing.JButton",
+        "javax.swing.JLabel",
+        "javax.swing.JScrollPane",
+        "javax.swing.JViewport",
+        "javax.swing.JScrollBar",
+        "javax.swing.Timer",
+        "javax.swing.KeyStroke"
+    };
+
+    /** Utility class constructor. */
+    private ComponentWarmup() {
+    }
+
+    /**
+     * Starts the warm-up on a new daemon thread with low priority.
+     *
+     * @return the report, completed when the warm-up is finished
+     */
+    public static CompletableFuture<Report> start() {
+        CompletableFuture<Report> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                result.complete(run());
+            } catch (RuntimeException | Error ex) {
+                result.completeExceptionally(ex);
+            }
+        }, "Component warm-up");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return result;
+    }
+
+    /**
+     * Performs the warm-up on the current thread, which should not be the event dispatch thread.
+     *
+     * @return the durations of the phases
+     */
+    public static Report run() {
+        Report report = new Report();
+        for (Phase phase : Phase.values()) {
+            long start = System.nanoTime();
+            perform(phase);
+            report.durations.put(phase, System.nanoTime() - start);
+        }
+        return report;
+    }
+
+    private static void perform(Phase phase) {
+        switch (phase) {
+            case LOCALIZATION:
+                warmUpLocalization();
+                break;
+            case FONTS:
+                warmUpFonts();
+                break;
+            case LABELS:
+                JRuler.fillLabelCache();
+                break;
+            case CLASSES:
+                warmUpClasses();
+                break;
+            default:
+                throw new AssertionError(phase);
+        }
+    }
+
+    private static void warmUpLocalization() {
+        for (Locale locale : LOCALES) {
+            ResourceBundle.getBundle(BUNDLE, locale);
+            CompiledBundle.forLocale(BUNDLE, locale);
+        }
+        Enumeration<String> keys = ResourceBundle.getBundle(BUNDLE).getKeys();
+        while (keys.hasMoreElements()) {
+            ComponentLocalization.LOC.getString(keys.nextElement());
+        }
+    }
+
+    private static void warmUpFonts() {
+        Font rulerFont = new Font("SansSerif", Font.PLAIN, 10);
+        Font logFont = new Font("SansSerif", Font.PLAIN, 12);
+        Font[] fonts = {rulerFont, logFont, logFont.deriveFont(Font.BOLD)};
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            for (Object antialiasing : new Object[]{RenderingHints.VALUE_TEXT_ANTIALIAS_OFF,
+                RenderingHints.VALUE_TEXT_ANTIALIAS_ON}) {
+                g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, antialiasing);
+                for (Font font : fonts) {
+                    FontMetrics metrics = g.getFontMetrics(font);
+                    metrics.stringWidth(GLYPHS);
+                    metrics.getHeight();
+                    g.setFont(font);
+                    g.drawString(GLYPHS, 0, metrics.getAscent());
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private static void warmUpClasses() {
+        ClassLoader loader = ComponentWarmup.class.getClassLoader();
+        for (String name : CLASSES) {
+            try {
+                Class.forName(name, true, loader);
+            } catch (ClassNotFoundException ex) {
+                throw new IllegalStateException("Class for warm-up not found: " + name, ex);
+            }
+        }
+    }
+}
@@ -1,97 +1,494 @@
-
-package org.zetool.components;
-
-import info.clearthought.layout.TableLayout;
-import java.lang.reflect.Array;
-import javax.swing.JComponent;
-import javax.swing.JPanel;
-
-/**
- * The class {@code JArrayPanel} represents an {@code JPanel} that
- * contains {@code JComponents} arranged on a table. It bases on the
- * {@link TableLayout} layout manager but every array position has to be
- * filled with at most one component.
- * @author Jan-Philipp Kappmeier
- */
-public class JArrayPanel extends JPanel {
-	/** The array containing the components displayed in the panel. */
-	private JComponent[][] components;
-	/** The array describing the width of the columns. */
-	private double sizeC[];
-	/** The array describing the height of the rows. */
-	private double sizeR[];
-	/** The number of columns. */
-	private int columns;
-	/** The number of rows. */
-	private int rows;
-	
-	/**
-	 * Creates a new instance of {@code JArrayPanel}. Initializes it with
-	 * the {@link TableLayout} with the specified number of columns and rows. The
-	 * columns are initialized with the fill constant and the rows are initialized
-	 * with the preferred constant.
-	 * @param rows the number of component rows
-	 * @param columns the number of component columns
-	 * @see #setColumnWidth( int, double )
-	 * @see #setRowHeight( int, double )
-	 */
-	public JArrayPanel( int columns, int rows ) {
-		if( rows <= 0 || columns <= 0 )
-			throw new IllegalArgumentException( "Rows and columns must be at least 1." );
-		this.columns = columns;
-		this.rows = rows;
-		components = (JComponent[][]) Array.newInstance( JComponent.class, columns, rows );
-		sizeC = (double[])Array.newInstance( double.class, columns ); // Columns
-		sizeR = (double[])Array.newInstance( double.class, rows ); // Rows
-		for( int i = 0; i < columns; i++ )
-			sizeC[i] = TableLayout.FILL;
-		for( int i = 0; i < rows; i++ )
-			sizeR[i] = TableLayout.PREFERRED;
-		setLayout( new TableLayout( sizeC, sizeR ) );
-	}
-
-	/**
-	 * Assigns an component to the specified position
-	 * @param component the component
-	 * @param x the column of the component
-	 * @param y the row of the component
-	 */
-	public void set( JComponent component, int x, int y ) {
-		this.add( component, x + ", " + y );
-		components[x][y] = component;
-	}
-
-	/**
-	 * Sets the height for the specified row. It is possible to use the
-	 * constants defined by {@link TableLayout}. All rows are initialized
-	 * with the preferred constant.
-	 * @param index the index of the row
-	 * @param height the width of the row
-	 */
-	public void setRowHeight( int index, double height ) {
-		sizeR[index] = height;
-	}
-
-	/**
-	 * Sets the width for the specified column. It is possible to use the
-	 * constants defined by {@link TableLayout}. All columns are initialized
-	 * with the filling constant.
-	 * @param index the index of the column
-	 * @param width the width of the column
-	 */
-	public void setColumnWidth( int index, double width ) {
-		sizeC[index] = width;
-	}
-
-	/**
-	 * Rebuilds the {@link TableLayout} for the panel with the
-	 * components already added and the current settings for the width and height.
-	 */
-	public void rebuild() {
-		this.setLayout( new TableLayout( sizeC, sizeR ) );
-		for( int i = 0; i < columns; i++ )
-			for( int j = 0; j < rows; j++ )
-				if( components[i][j] != null )
-					this.add( components[i][j], i + ", " + j );
-	}
-}
+
+package org.zetool.components;
+
+import info.clearthought.layout.TableLayout;
+import java.awt.EventQueue;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import org.zetool.components.framework.FrameScheduler;
+
+/**
+ * The class {@code JArrayPanel} represents an {@code JPanel} that
+ * contains {@code JComponents} arranged on a table. It bases on the
+ * {@link TableLayout} layout manager but every array position has to be
+ * filled with at most one component.
+ * <p>Any number of changes can be combined into one update using
+ * {@link #beginUpdate()} and {@link #commitUpdate()}. The changes are applied
+ * to the current layout when the update is committed, only changed cells are
+ * added and removed and the container is laid out only once.</p>
+ * <p>The panel can grow and shrink using {@link #insertColumn(int, double)},
+ * {@link #insertRow(int, double)}, {@link #deleteColumn(int)} and
+ * {@link #deleteRow(int)}. Only the occupied cells are stored, in a map
+ * keyed by stable identifiers of their column and row. Thus the memory
+ * depends on the number of components and not on the size of the grid, and
+ * inserting or deleting a row or column does not touch the stored cells of
+ * other rows and columns.</p>
+ * <p>The layout remembers the sizes of the components. If the preferred size
+ * of a component changes, only its column and row are computed again.</p>
+ * @author Jan-Philipp Kappmeier
+ */
+public class JArrayPanel extends JPanel {
+	/** The number of components added in one chunk of a scheduled rebuild. */
+	private static final int REBUILD_CHUNK = 64;
+	/** The components displayed in the panel, by packed column and row identifier. */
+	private final LongMap<JComponent> components = new LongMap<>();
+	/** The identifiers of the columns, by column index. */
+	private int[] columnIds;
+	/** The identifiers of the rows, by row index. */
+	private int[] rowIds;
+	/** The indices of the columns, by column identifier, -1 for deleted columns. */
+	private int[] columnIndex;
+	/** The indices of the rows, by row identifier, -1 for deleted rows. */
+	private int[] rowIndex;
+	/** The next unused column identifier. */
+	private int nextColumnId;
+	/** The next unused row identifier. */
+	private int nextRowId;
+	/** The array describing the width of the columns. */
+	private double sizeC[];
+	/** The array describing the height of the rows. */
+	private double sizeR[];
+	/** The number of columns. */
+	private int columns;
+	/** The number of rows. */
+	private int rows;
+	/** The layout of the panel. */
+	private TableLayout layout;
+	/** The number of updates begun but not yet committed. */
+	private int updateDepth;
+	/** Marks a cell in {@link #displayed} that was empty before the current update. */
+	private static final JComponent EMPTY = new JComponent() {};
+	/** The components displayed before the current update, by packed cell identifier, {@link #EMPTY} for empty cells. */
+	private final LongMap<JComponent> displayed = new LongMap<>();
+	/** The columns whose width changed since the sizes were applied to the layout. */
+	private final BitSet changedColumns = new BitSet();
+	/** The rows whose height changed since the sizes were applied to the layout. */
+	private final BitSet changedRows = new BitSet();
+	/** Set if columns or rows were inserted or deleted during the current update. */
+	private boolean structureChanged;
+	/** The scheduled rebuild that is not yet finished, if any. */
+	private CompletableFuture<Void> scheduledRebuild;
+	
+	/**
+	 * Creates a new instance of {@code JArrayPanel}. Initializes it with
+	 * the {@link TableLayout} with the specified number of columns and rows. The
+	 * columns are initialized with the fill constant and the rows are initialized
+	 * with the preferred constant.
+	 * @param rows the number of component rows
+	 * @param columns the number of component columns
+	 * @see #setColumnWidth( int, double )
+	 * @see #setRowHeight( int, double )
+	 */
+	public JArrayPanel( int columns, int rows ) {
+		if( rows <= 0 || columns <= 0 )
+			throw new IllegalArgumentException( "Rows and columns must be at least 1." );
+		this.columns = columns;
+		this.rows = rows;
+		columnIds = new int[columns];
+		rowIds = new int[rows];
+		columnIndex = new int[columns];
+		rowIndex = new int[rows];
+		for( int i = 0; i < columns; i++ )
+			columnIds[i] = columnIndex[i] = nextColumnId++;
+		for( int i = 0; i < rows; i++ )
+			rowIds[i] = rowIndex[i] = nextRowId++;
+		sizeC = new double[columns];
+		sizeR = new double[rows];
+		Arrays.fill( sizeC, TableLayout.FILL );
+		Arrays.fill( sizeR, TableLayout.PREFERRED );
+		layout = new CachedTableLayout( Arrays.copyOf( sizeC, columns ), Arrays.copyOf( sizeR, rows ) );
+		setLayout( layout );
+	}
+
+	/**
+	 * Returns the number of columns.
+	 * @return the number of columns
+	 */
+	public int getColumnCount() {
+		return columns;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 * @return the number of rows
+	 */
+	public int getRowCount() {
+		return rows;
+	}
+
+	/**
+	 * Returns the key of a cell in the component map.
+	 * @param x the column of the cell
+	 * @param y the row of the cell
+	 * @return the identifier of the column in the upper and of the row in the
+	 * lower 32 bits
+	 * @throws IndexOutOfBoundsException if the cell does not exist
+	 */
+	private long key( int x, int y ) {
+		if( x < 0 || x >= columns || y < 0 || y >= rows )
+			throw new IndexOutOfBoundsException( "Cell " + x + ", " + y + " is not in the panel." );
+		return (long)columnIds[x] << 32 | rowIds[y];
+	}
+
+	/**
+	 * Assigns an component to the specified position. A component previously
+	 * assigned to the position is removed. If an update is in progress, the
+	 * component is displayed when the update is committed.
+	 * @param component the component, or {@code null} to clear the position
+	 * @param x the column of the component
+	 * @param y the row of the component
+	 */
+	public void set( JComponent component, int x, int y ) {
+		long key = key( x, y );
+		beginUpdate();
+		try {
+			JComponent old = components.put( key, component );
+			if( displayed.get( key ) == null )
+				displayed.put( key, old == null ? EMPTY : old );
+		} finally {
+			commitUpdate();
+		}
+	}
+
+	/**
+	 * Removes the component at the specified position.
+	 * @param x the column of the component
+	 * @param y the row of the component
+	 */
+	public void remove( int x, int y ) {
+		set( null, x, y );
+	}
+
+	/**
+	 * Returns the component at the specified position, including changes of an
+	 * update that is not yet committed.
+	 * @param x the column of the component
+	 * @param y the row of the component
+	 * @return the component or {@code null} if the position is empty
+	 */
+	public JComponent get( int x, int y ) {
+		return components.get( key( x, y ) );
+	}
+
+	/**
+	 * Inserts a new empty column. The following columns are moved to the right.
+	 * The change is displayed immediately or, if an update is in progress,
+	 * when the update is committed.
+	 * @param index the index of the new column
+	 * @param width the width of the column
+	 */
+	public void insertColumn( int index, double width ) {
+		if( index < 0 || index > columns )
+			throw new IndexOutOfBoundsException( "Column index out of range: " + index );
+		beginUpdate();
+		try {
+			applySizes();
+			columnIds = insert( columnIds, columns, index, nextColumnId );
+			if( nextColumnId == columnIndex.length )
+				columnIndex = Arrays.copyOf( columnIndex, 2 * nextColumnId + 1 );
+			nextColumnId++;
+			sizeC = insert( sizeC, columns, index, width );
+			columns++;
+			updateIndex( columnIndex, columnIds, index, columns );
+			layout.insertColumn( index, width );
+			structureChanged = true;
+		} finally {
+			commitUpdate();
+		}
+	}
+
+	/**
+	 * Inserts a new empty row. The following rows are moved down. The change is
+	 * displayed immediately or, if an update is in progress, when the update is
+	 * committed.
+	 * @param index the index of the new row
+	 * @param height the height of the row
+	 */
+	public void insertRow( int index, double height ) {
+		if( index < 0 || index > rows )
+			throw new IndexOutOfBoundsException( "Row index out of range: " + index );
+		beginUpdate();
+		try {
+			applySizes();
+			rowIds = insert( rowIds, rows, index, nextRowId );
+			if( nextRowId == rowIndex.length )
+				rowIndex = Arrays.copyOf( rowIndex, 2 * nextRowId + 1 );
+			nextRowId++;
+			sizeR = insert( sizeR, rows, index, height );
+			rows++;
+			updateIndex( rowIndex, rowIds, index, rows );
+			layout.insertRow( index, height );
+			structureChanged = true;
+		} finally {
+			commitUpdate();
+		}
+	}
+
+	/**
+	 * Deletes a column and removes its components. The following columns are
+	 * moved to the left.
+	 * @param index the index of the column
+	 */
+	public void deleteColumn( int index ) {
+		if( index < 0 || index >= columns )
+			throw new IndexOutOfBoundsException( "Column index out of range: " + index );
+		beginUpdate();
+		try {
+			applySizes();
+			for( int y = 0; y < rows; y++ )
+				discard( key( index, y ) );
+			columnIndex[columnIds[index]] = -1;
+			System.arraycopy( columnIds, index + 1, columnIds, index, columns - index - 1 );
+			System.arraycopy( sizeC, index + 1, sizeC, index, columns - index - 1 );
+			columns--;
+			updateIndex( columnIndex, columnIds, index, columns );
+			layout.deleteColumn( index );
+			structureChanged = true;
+		} finally {
+			commitUpdate();
+		}
+	}
+
+	/**
+	 * Deletes a row and removes its components. The following rows are moved
+	 * up.
+	 * @param index the index of the row
+	 */
+	public void deleteRow( int index ) {
+		if( index < 0 || index >= rows )
+			throw new IndexOutOfBoundsException( "Row index out of range: " + index );
+		beginUpdate();
+		try {
+			applySizes();
+			for( int x = 0; x < columns; x++ )
+				discard( key( x, index ) );
+			rowIndex[rowIds[index]] = -1;
+			System.arraycopy( rowIds, index + 1, rowIds, index, rows - index - 1 );
+			System.arraycopy( sizeR, index + 1, sizeR, index, rows - index - 1 );
+			rows--;
+			updateIndex( rowIndex, rowIds, index, rows );
+			layout.deleteRow( index );
+			structureChanged = true;
+		} finally {
+			commitUpdate();
+		}
+	}
+
+	/**
+	 * Removes the cell of a deleted column or row. The component that is
+	 * currently displayed in the cell is removed from the panel.
+	 * @param key the key of the cell
+	 */
+	private void discard( long key ) {
+		JComponent current = components.remove( key );
+		JComponent shown = displayed.remove( key );
+		if( shown == null )
+			shown = current;
+		if( shown != null && shown != EMPTY )
+			remove( shown );
+	}
+
+	/**
+	 * Stores the indices of the identifiers from an index on, after columns or
+	 * rows were inserted or deleted in front of them.
+	 * @param indexById the indices by identifier
+	 * @param ids the identifiers by index
+	 * @param from the first changed index
+	 * @param length the number of indices
+	 */
+	private static void updateIndex( int[] indexById, int[] ids, int from, int length ) {
+		for( int i = from; i < length; i++ )
+			indexById[ids[i]] = i;
+	}
+
+	/**
+	 * Returns the constraints of the cell with a key for the current layout.
+	 * @param key the key of the cell
+	 * @return the constraints
+	 */
+	private String constraints( long key ) {
+		return columnIndex[(int)(key >>> 32)] + ", " + rowIndex[(int)key];
+	}
+
+	private static int[] insert( int[] array, int length, int index, int value ) {
+		int[] result = length < array.length ? array : Arrays.copyOf( array, 2 * length + 1 );
+		System.arraycopy( result, index, result, index + 1, length - index );
+		result[index] = value;
+		return result;
+	}
+
+	private static double[] insert( double[] array, int length, int index, double value ) {
+		double[] result = length < array.length ? array : Arrays.copyOf( array, 2 * length + 1 );
+		System.arraycopy( result, index, result, index + 1, length - index );
+		result[index] = value;
+		return result;
+	}
+
+	/**
+	 * Begins an update. Cell changes and size changes are not displayed until
+	 * the matching {@link #commitUpdate()} call. Updates can be nested, the
+	 * changes are applied when the outermost update is committed. Has to be
+	 * called on the event dispatch thread.
+	 */
+	public void beginUpdate() {
+		updateDepth++;
+	}
+
+	/**
+	 * Commits an update. If it is the outermost update, the changed cells are
+	 * removed and added, the changed column widths and row heights are set in
+	 * the current layout and the panel is laid out once. Cells that did not
+	 * change are not touched.
+	 * @throws IllegalStateException if no update is in progress
+	 */
+	public void commitUpdate() {
+		if( updateDepth == 0 )
+			throw new IllegalStateException( "No update in progress." );
+		if( --updateDepth > 0 )
+			return;
+		boolean changed = applySizes() | structureChanged;
+		structureChanged = false;
+		if( displayed.size() > 0 ) {
+			boolean[] cellsChanged = new boolean[1];
+			// remove all replaced components first, a component may have moved to another cell
+			displayed.forEach( (key, old) -> {
+				if( old != EMPTY && old != components.get( key ) ) {
+					remove( old );
+					cellsChanged[0] = true;
+				}
+			} );
+			displayed.forEach( (key, old) -> {
+				JComponent component = components.get( key );
+				if( component != null && component != old ) {
+					add( component, constraints( key ) );
+					cellsChanged[0] = true;
+				}
+			} );
+			displayed.clear();
+			changed |= cellsChanged[0];
+		}
+		if( changed ) {
+			revalidate();
+			repaint();
+		}
+	}
+
+	/**
+	 * Sets the changed column widths and row heights in the current layout.
+	 * @return {@code true} if any size was changed
+	 */
+	private boolean applySizes() {
+		boolean changed = !changedColumns.isEmpty() || !changedRows.isEmpty();
+		for( int i = changedColumns.nextSetBit( 0 ); i >= 0; i = changedColumns.nextSetBit( i + 1 ) )
+			layout.setColumn( i, sizeC[i] );
+		for( int i = changedRows.nextSetBit( 0 ); i >= 0; i = changedRows.nextSetBit( i + 1 ) )
+			layout.setRow( i, sizeR[i] );
+		changedColumns.clear();
+		changedRows.clear();
+		return changed;
+	}
+
+	/**
+	 * Checks whether an update is in progress.
+	 * @return {@code true} if an update is begun and not yet committed
+	 */
+	public boolean isUpdating() {
+		return updateDepth > 0;
+	}
+
+	/**
+	 * Sets the height for the specified row. It is possible to use the
+	 * constants defined by {@link TableLayout}. All rows are initialized
+	 * with the preferred constant. The height is displayed after the next
+	 * {@link #commitUpdate()} or {@link #rebuild()}.
+	 * @param index the index of the row
+	 * @param height the width of the row
+	 */
+	public void setRowHeight( int index, double height ) {
+		if( index < 0 || index >= rows )
+			throw new IndexOutOfBoundsException( "Row index out of range: " + index );
+		sizeR[index] = height;
+		changedRows.set( index );
+	}
+
+	/**
+	 * Sets the width for the specified column. It is possible to use the
+	 * constants defined by {@link TableLayout}. All columns are initialized
+	 * with the filling constant. The width is displayed after the next
+	 * {@link #commitUpdate()} or {@link #rebuild()}.
+	 * @param index the index of the column
+	 * @param width the width of the column
+	 */
+	public void setColumnWidth( int index, double width ) {
+		if( index < 0 || index >= columns )
+			throw new IndexOutOfBoundsException( "Column index out of range: " + index );
+		sizeC[index] = width;
+		changedColumns.set( index );
+	}
+
+	/**
+	 * Rebuilds the {@link TableLayout} for the panel with the
+	 * components already added and the current settings for the width and height.
+	 */
+	public void rebuild() {
+		if( scheduledRebuild != null )
+			scheduledRebuild.cancel( false );
+		changedColumns.clear();
+		changedRows.clear();
+		layout = new CachedTableLayout( Arrays.copyOf( sizeC, columns ), Arrays.copyOf( sizeR, rows ) );
+		this.setLayout( layout );
+		components.forEach( (key, component) -> this.add( component, constraints( key ) ) );
+	}
+
+	/**
+	 * Rebuilds the {@link TableLayout} like {@link #rebuild()}, but adds the
+	 * components in chunks within the frame budget of a scheduler. The rebuild
+	 * is an update that begins immediately and is committed by the last chunk,
+	 * so changes made in the meantime are displayed together with the rebuilt
+	 * layout. A scheduled rebuild that is not yet finished is cancelled. Has to
+	 * be called on the event dispatch thread.
+	 * @param scheduler the scheduler running the chunks
+	 * @return a future completed after the update is committed
+	 */
+	public CompletableFuture<Void> rebuild( FrameScheduler scheduler ) {
+		if( scheduledRebuild != null )
+			scheduledRebuild.cancel( false );
+		beginUpdate();
+		changedColumns.clear();
+		changedRows.clear();
+		layout = new CachedTableLayout( Arrays.copyOf( sizeC, columns ), Arrays.copyOf( sizeR, rows ) );
+		this.setLayout( layout );
+		long[] keys = new long[components.size()];
+		int[] next = new int[1];
+		components.forEach( (key, component) -> keys[next[0]++] = key );
+		next[0] = 0;
+		CompletableFuture<Void> future = scheduler.submit( FrameScheduler.Priority.NORMAL, () -> {
+			int end = Math.min( keys.length, next[0] + REBUILD_CHUNK );
+			for( ; next[0] < end; next[0]++ ) {
+				long key = keys[next[0]];
+				// add the component displayed before the update, a replacement is added by the commit
+				JComponent component = displayed.get( key );
+				if( component == null )
+					component = components.get( key );
+				if( component != null && component != EMPTY )
+					this.add( component, constraints( key ) );
+			}
+			if( next[0] < keys.length )
+				return true;
+			commitUpdate();
+			revalidate();
+			repaint();
+			return false;
+		} );
+		// a cancelled or failed rebuild still has to end its update
+		future.whenComplete( (result, failure) -> {
+			if( failure != null )
+				EventQueue.invokeLater( this::commitUpdate );
+		} );
+		scheduledRebuild = future;
+		return future;
+	}
+}
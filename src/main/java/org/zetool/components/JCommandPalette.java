@@ -0,0 +1,257 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.AbstractAction;
+import javax.swing.AbstractButton;
+import javax.swing.DefaultListModel;
+import javax.swing.JComponent;
+import javax.swing.JList;
+import javax.swing.JMenu;
+import javax.swing.JPanel;
+import javax.swing.JPopupMenu;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import org.zetool.components.framework.AsyncBinding;
+
+/**
+ * Searches the buttons and menu items registered at the {@link Localizer} by their labels and executes the selected
+ * one. Menu items are labeled with the path of their menus, for example "File &gt; Save". The results are updated on
+ * each keystroke; the arrow keys select a result and enter executes it.
+ * <p>
+ * The labels are kept in an index. Items registered after the index was built are added before the next search, as
+ * their labels and menus are only known after the registration. When the locale changes, the index is built anew in
+ * the background and replaces the old index when it is finished. Call {@link #dispose()} when the palette is no longer
+ * used, otherwise it is kept by the localizer.</p>
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class JCommandPalette extends JPanel {
+
+    /** The property changed after a command was executed, the new value is the button. */
+    public static final String COMMAND_EXECUTED_PROPERTY = "commandExecuted";
+    /** The maximal number of displayed results. */
+    private static final int MAX_RESULTS = 20;
+    /** The separator of the menu names in the labels. */
+    private static final String PATH_SEPARATOR = " > ";
+
+    /**
+     * The labels of the registered buttons at some time, and the index built from them.
+     */
+    private static final class Snapshot {
+
+        private final List<AbstractButton> buttons = new ArrayList<>();
+        private final List<String> labels = new ArrayList<>();
+        /** The number of registered buttons when the snapshot was taken. */
+        private int registered;
+        private CommandIndex<AbstractButton> index;
+    }
+
+    /** The localizer providing the buttons. */
+    private final Localizer localizer = Localizer.instance();
+    /** The current index. */
+    private CommandIndex<AbstractButton> index = new CommandIndex<>();
+    /** The number of registered buttons that were considered for the current index. */
+    private int indexed;
+    /** Builds new indices in the background. */
+    private final AsyncBinding<Snapshot, Snapshot> rebuild = new AsyncBinding<>(this::replaceIndex,
+            (snapshot, cancelled) -> {
+                snapshot.index = new CommandIndex<>();
+                for (int i = 0; i < snapshot.buttons.size() && !cancelled.getAsBoolean(); ++i) {
+                    snapshot.index.add(snapshot.buttons.get(i), snapshot.labels.get(i));
+                }
+                return snapshot;
+            });
+    /** Builds a new index when the locale changes. */
+    private final Runnable localizationListener = this::rebuildIndex;
+    /** The search field. */
+    private final JTextField query = new JTextField(30);
+    /** The results of the last search. */
+    private final DefaultListModel<CommandIndex.Match<AbstractButton>> results = new DefaultListModel<>();
+    /** Displays the results. */
+    private final JList<CommandIndex.Match<AbstractButton>> resultList = new JList<>(results);
+
+    /**
+     * Creates a new palette containing the currently registered buttons and those registered later.
+     */
+    public JCommandPalette() {
+        super(new BorderLayout());
+        resultList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        resultList.setFocusable(false);
+        add(query, BorderLayout.NORTH);
+        add(new JScrollPane(resultList), BorderLayout.CENTER);
+        query.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        bind(KeyEvent.VK_UP, "previous", () -> moveSelection(-1));
+        bind(KeyEvent.VK_DOWN, "next", () -> moveSelection(1));
+        bind(KeyEvent.VK_ENTER, "execute", this::executeSelected);
+        resultList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    executeSelected();
+                }
+            }
+        });
+        localizer.addLocalizationListener(localizationListener);
+    }
+
+    private void bind(int key, String name, Runnable action) {
+        query.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(key, 0), name);
+        query.getActionMap().put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Returns the search field, for example to request the focus when the palette is shown.
+     *
+     * @return the search field
+     */
+    public JTextField getQueryField() {
+        return query;
+    }
+
+    /**
+     * Finds the enabled buttons best matching a query.
+     *
+     * @param text the query
+     * @param limit the maximal number of results
+     * @return the matching buttons, the best match first
+     */
+    public List<AbstractButton> search(String text, int limit) {
+        List<AbstractButton> buttons = new ArrayList<>();
+        for (CommandIndex.Match<AbstractButton> match : find(text, limit)) {
+            buttons.add(match.getCommand());
+        }
+        return buttons;
+    }
+
+    /**
+     * Returns the label of a button as shown in the results, including the names of the menus containing it.
+     *
+     * @param button the button
+     * @return the label
+     */
+    public static String getLabel(AbstractButton button) {
+        StringBuilder label = new StringBuilder(button.getText() == null ? "" : button.getText());
+        Component parent = button.getParent();
+        while (parent instanceof JPopupMenu && ((JPopupMenu) parent).getInvoker() instanceof JMenu) {
+            JMenu menu = (JMenu) ((JPopupMenu) parent).getInvoker();
+            label.insert(0, PATH_SEPARATOR).insert(0, menu.getText());
+            parent = menu.getParent();
+        }
+        return label.toString();
+    }
+
+    /**
+     * Stops listening to locale changes. The palette must not be used afterwards.
+     */
+    public void dispose() {
+        localizer.removeLocalizationListener(localizationListener);
+    }
+
+    private List<CommandIndex.Match<AbstractButton>> find(String text, int limit) {
+        List<AbstractButton> registered = localizer.getRegisteredButtons();
+        for (; indexed < registered.size(); ++indexed) {
+            AbstractButton button = registered.get(indexed);
+            if (!(button instanceof JMenu)) {
+                index.add(button, getLabel(button));
+            }
+        }
+        return index.search(text, limit, AbstractButton::isEnabled);
+    }
+
+    private void search() {
+        results.clear();
+        for (CommandIndex.Match<AbstractButton> match : find(query.getText(), MAX_RESULTS)) {
+            results.addElement(match);
+        }
+        if (!results.isEmpty()) {
+            resultList.setSelectedIndex(0);
+        }
+    }
+
+    private void moveSelection(int delta) {
+        if (!results.isEmpty()) {
+            int selected = Math.max(0, Math.min(results.size() - 1, resultList.getSelectedIndex() + delta));
+            resultList.setSelectedIndex(selected);
+            resultList.ensureIndexIsVisible(selected);
+        }
+    }
+
+    private void executeSelected() {
+        CommandIndex.Match<AbstractButton> match = resultList.getSelectedValue();
+        if (match != null) {
+            AbstractButton button = match.getCommand();
+            query.setText("");
+            button.doClick(0);
+            firePropertyChange(COMMAND_EXECUTED_PROPERTY, null, button);
+        }
+    }
+
+    /**
+     * Takes the labels of the registered buttons and builds the index in the background.
+     */
+    private void rebuildIndex() {
+        Snapshot snapshot = new Snapshot();
+        List<AbstractButton> registered = localizer.getRegisteredButtons();
+        snapshot.registered = registered.size();
+        for (AbstractButton button : registered) {
+            if (!(button instanceof JMenu)) {
+                snapshot.buttons.add(button);
+                snapshot.labels.add(getLabel(button));
+            }
+        }
+        rebuild.setModel(snapshot);
+    }
+
+    private void replaceIndex(Snapshot snapshot) {
+        index = snapshot.index;
+        indexed = snapshot.registered;
+        if (!query.getText().isEmpty()) {
+            search();
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.zetool.components;
 import java.awt.Color;
 import java.awt.Graphics;
 import javax.swing.JComponent;
+import org.zetool.components.diagnostics.RepaintProfiler;
 
 /**
  * A simple component that fills itself with white color. Can be used to fill
@@ -38,11 +39,24 @@ public class JCorner extends JComponent {
     }
 
     /**
-     * Initializes a corner with arbitrary color.
+     * Initializes a corner with arbitrary color. The corner is opaque unless
+     * the color is translucent, so the area beneath is not painted needlessly.
      * @param color the color of the corner
      */
     public JCorner( Color color ) {
         this.color = color;
+        setOpaque( color.getAlpha() == 255 );
+    }
+
+    /**
+     * Paints the corner and reports the painting to the {@link RepaintProfiler}.
+     * @param g the graphics context
+     */
+    @Override
+    public void paint( Graphics g ) {
+        long start = RepaintProfiler.paintStarted();
+        super.paint( g );
+        RepaintProfiler.paintFinished( this, g, start );
     }
 
     /**
@@ -18,18 +18,29 @@ package org.zetool.components;
 
 import org.zetool.common.debug.HTMLLoggerHandler;
 import info.clearthought.layout.TableLayout;
+import javax.swing.JComponent;
 import javax.swing.JEditorPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.SwingWorker;
+import java.nio.file.Path;
+import org.zetool.components.log.HTMLLogAppender;
+import org.zetool.components.log.JLogRecordView;
+import org.zetool.components.log.LogExporter;
+import org.zetool.components.log.LogRecordStore;
 
 /**
- * The class {@code JLogPane} is a panel giving out formatted log messages.
+ * The class {@code JLogPane} is a panel giving out formatted log messages. The messages are either written as HTML
+ * into an editor pane by a {@link HTMLLoggerHandler}, or they are kept in a {@link LogRecordStore} and only the
+ * visible records are painted.
  * @author Jan-Philipp Kappmeier
  */
 public class JLogPane extends JPanel {
 
     JEditorPane logPane;
     HTMLLoggerHandler log;
+    /** The store containing the records, if the pane is not HTML based. */
+    LogRecordStore store;
 
     /**
      * Creates a new instance of {@code JLogPane}.
@@ -37,6 +48,43 @@ public class JLogPane extends JPanel {
      * @param log 
      */
     public JLogPane( HTMLLoggerHandler log ) {
+        logPane = new JEditorPane( "text/html", "" );
+        init( logPane );
+        //this.log = log;
+        log.setLogPane( logPane );
+        //da();
+    }
+
+    /**
+     * Creates a new instance of {@code JLogPane} displaying the records of a
+     * {@link LogRecordStore}. The records can be added using a
+     * {@link org.zetool.components.log.LogRecordStoreHandler}.
+     * 
+     * @param store the store containing the log records
+     */
+    public JLogPane( LogRecordStore store ) {
+        this.store = store;
+        init( new JLogRecordView( store ) );
+    }
+
+    /**
+     * Creates a new instance of {@code JLogPane} displaying the records of a
+     * {@link LogRecordStore} as HTML. New records are appended to the document
+     * and the oldest records are removed, if more than {@code maxRecords} are
+     * shown. The text of the pane is never replaced completely.
+     * 
+     * @param store the store containing the log records
+     * @param maxRecords the maximal number of records in the document
+     * @see HTMLLogAppender
+     */
+    public JLogPane( LogRecordStore store, int maxRecords ) {
+        this.store = store;
+        logPane = new JEditorPane( "text/html", "" );
+        new HTMLLogAppender( store, logPane, maxRecords );
+        init( logPane );
+    }
+
+    private void init( JComponent view ) {
         double size[][] = // Columns
                         {
             {TableLayout.FILL},
@@ -46,14 +94,37 @@ public class JLogPane extends JPanel {
 
         setLayout( new TableLayout( size ) );
 
-        logPane = new JEditorPane( "text/html", "" );
-
-        JScrollPane scrollPane = new JScrollPane( logPane );
+        JScrollPane scrollPane = new JScrollPane( view );
 
         add( scrollPane, "0,0" );
-        //this.log = log;
-        log.setLogPane( logPane );
-        //da();
+    }
+
+    /**
+     * Writes the log records in the background to a file. The records are
+     * streamed from the store, the contents of the pane are not copied.
+     * 
+     * @param file the file
+     * @param format the output format
+     * @return the started worker, its progress is updated during the export
+     * @throws IllegalStateException if the pane is filled by a
+     * {@link HTMLLoggerHandler} and has no store
+     */
+    public SwingWorker<Long, Void> exportLog( Path file, LogExporter.Format format ) {
+        if( store == null )
+            throw new IllegalStateException( "The log pane has no record store." );
+        SwingWorker<Long, Void> worker = new LogExporter( store, format ).createWorker( file );
+        worker.execute();
+        return worker;
+    }
+
+    /**
+     * Returns the store containing the log records.
+     * 
+     * @return the store or {@code null} if the pane is filled by a
+     * {@link HTMLLoggerHandler}
+     */
+    public LogRecordStore getStore() {
+        return store;
     }
 
 //    public synchronized void update() {
@@ -19,12 +19,21 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
 import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import org.zetool.components.diagnostics.RepaintProfiler;
 
 /**
  * Provides a scalable ruler. The unit can be scaled using different measurements. Additional ticks and numbers on the
  * ruler are added. The current cursor position can be drawn as well.
+ * <p>
+ * The ticks and labels are painted into an image that is reused as long as neither the ruler settings nor the visible
+ * area change. A position marker and a selected span are painted on top of the image. Moving them repaints only the
+ * strips around the old and new positions.</p>
  *
  * @author Jan-Philipp Kappmeier
  */
@@ -111,13 +120,54 @@ public class JRuler extends JComponent {
     public Font font = new Font("SansSerif", Font.PLAIN, 10);
     /** The step wide that defines the scale elements painted. */
     public double scalePaintStep = 10;
-    /** The most left position. */
-    private double offsetInPixel = 80;
+    /**
+     * The offset of the ruler in pixels, independent of the zoom factor. Tick 0 is drawn at this offset plus the offset
+     * in micrometers scaled by the zoom factor.
+     */
+    private double offsetPixel = 80;
+    /** The offset of the ruler in micrometers, scaled by the zoom factor. */
+    private long offsetMicrometer;
     /** Private zoom factor. */
     private double zoomFactor = 1000;
     static final int longTick = 10;
+    /** The largest absolute tick number whose label is cached. */
+    static final int LABEL_CACHE_LIMIT = 1000;
+    /** The distance before the painted area in which ticks are painted, so that their labels are not cut. */
+    private static final int LABEL_MARGIN = 40;
+    /** The cached labels of the tick numbers from {@code -LABEL_CACHE_LIMIT} to {@code LABEL_CACHE_LIMIT}. */
+    private static final String[] LABELS = new String[2 * LABEL_CACHE_LIMIT + 1];
     private int bigScaleStep = 1;
     private int smallScaleStep = 1;
+    /** The color of the position marker. */
+    public Color markerColor = Color.RED;
+    /** The color of the selected span, usually translucent. */
+    public Color selectionColor = new Color(0, 0, 255, 48);
+    /** The value of the marker and selection positions if they are not shown. */
+    private static final int NONE = Integer.MIN_VALUE;
+    /** The number of pixels on each side of the marker that are repainted when it moves. */
+    private static final int MARKER_MARGIN = 1;
+    /** The pixel position of the marker. */
+    private int markerPosition = NONE;
+    /** The first pixel position of the selected span. */
+    private int selectionStart = NONE;
+    /** The last pixel position of the selected span. */
+    private int selectionEnd = NONE;
+    /** The color of the marks. */
+    public Color markColor = new Color(0, 128, 0);
+    /** The color of the spans covered by marks, usually translucent. */
+    public Color markSpanColor = new Color(0, 128, 0, 40);
+    /** The maximal width of the name of a mark in pixels, longer names are cut. */
+    private static final int MARK_NAME_WIDTH = 100;
+    /** The marks shown on the ruler, {@code null} if no marks are shown. */
+    private RulerMarks marks;
+    /** Repaints the parts of the ruler in which marks changed. */
+    private final RulerMarks.MarksListener marksListener = this::marksChanged;
+    /** The image containing the ticks and labels of the area {@link #tickLayerBounds}. */
+    private transient BufferedImage tickLayer;
+    /** The area of the ruler contained in the tick image. */
+    private final Rectangle tickLayerBounds = new Rectangle();
+    /** The settings the tick image was painted with. */
+    private transient Object[] tickLayerKey;
 
     /**
      * Creates a ruler with the specified orientation and the specified distance measurement.
@@ -128,17 +178,211 @@ public class JRuler extends JComponent {
     public JRuler(RulerOrientation orientation, RulerDisplayUnit unit) {
         this.orientation = orientation;
         this.unit = unit;
+        setOpaque(true);
     }
 
     public RulerDisplayUnit getDisplayUnit() {
         return this.unit;
     }
 
+    @Override
+    public void paint(Graphics g) {
+        long start = RepaintProfiler.paintStarted();
+        super.paint(g);
+        RepaintProfiler.paintFinished(this, g, start);
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
-        // Get bounds
-        Rectangle drawArea = g.getClipBounds();
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        paintTickLayer(g, clip);
+        paintMarks(g, clip);
+        paintOverlay(g);
+    }
+
+    /**
+     * Copies the ticks in the clip from the tick image. The image is painted again if a setting changed or the clip is
+     * not contained in it. It then contains the visible area of the ruler.
+     *
+     * @param g the graphics context
+     * @param clip the area to paint
+     */
+    private void paintTickLayer(Graphics g, Rectangle clip) {
+        double scale = g instanceof Graphics2D ? ((Graphics2D) g).getTransform().getScaleX() : 1;
+        Object[] key = {zoomFactor, offsetPixel, offsetMicrometer, unit, bigScaleStep, smallScaleStep, size, background,
+            foreground, font, scale};
+        if (tickLayer == null || !Arrays.equals(key, tickLayerKey) || !tickLayerBounds.contains(clip)) {
+            Rectangle bounds = getVisibleRect().union(clip);
+            int width = (int) Math.ceil(bounds.width * scale);
+            int height = (int) Math.ceil(bounds.height * scale);
+            if (tickLayer == null || tickLayer.getWidth() != width || tickLayer.getHeight() != height) {
+                tickLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            }
+            Graphics2D layer = tickLayer.createGraphics();
+            try {
+                if (g instanceof Graphics2D) {
+                    layer.setRenderingHints(((Graphics2D) g).getRenderingHints());
+                }
+                layer.scale(scale, scale);
+                layer.translate(-bounds.x, -bounds.y);
+                layer.setClip(bounds);
+                paintTicks(layer, bounds);
+            } finally {
+                layer.dispose();
+            }
+            tickLayerBounds.setBounds(bounds);
+            tickLayerKey = key;
+        }
+        g.drawImage(tickLayer, tickLayerBounds.x, tickLayerBounds.y, tickLayerBounds.width, tickLayerBounds.height,
+                null);
+    }
+
+    /**
+     * Paints the marks in the clip and those whose names reach into the clip.
+     *
+     * @param g the graphics context
+     * @param clip the area to paint
+     */
+    private void paintMarks(Graphics g, Rectangle clip) {
+        if (marks == null || marks.size() == 0) {
+            return;
+        }
+        boolean horizontal = orientation == RulerOrientation.HORIZONTAL;
+        int clipStart = horizontal ? clip.x : clip.y;
+        int clipEnd = clipStart + (int) getRulerLength(clip);
+        // names are drawn after the mark on horizontal rulers and before the mark on vertical rulers
+        int first = clipStart - (horizontal ? MARK_NAME_WIDTH : MARKER_MARGIN);
+        int last = clipEnd + (horizontal ? MARKER_MARGIN : MARK_NAME_WIDTH);
+        double pixelPerMicrometer = zoomFactor / 1_000_000;
+        long from = (long) Math.floor((first - offsetPixel) / pixelPerMicrometer) - offsetMicrometer;
+        long to = (long) Math.ceil((last - offsetPixel) / pixelPerMicrometer) - offsetMicrometer;
+        Graphics names = g.create();
+        try {
+            names.setFont(font);
+            marks.forEach(from, to, (id, start, end, name) -> {
+                int startPixel = toPixel(start, first, last);
+                int endPixel = toPixel(end, first, last);
+                if (endPixel > startPixel) {
+                    g.setColor(markSpanColor);
+                    if (horizontal) {
+                        g.fillRect(startPixel, 0, endPixel - startPixel + 1, size);
+                    } else {
+                        g.fillRect(0, startPixel, size, endPixel - startPixel + 1);
+                    }
+                }
+                g.setColor(markColor);
+                names.setColor(markColor);
+                names.setClip(clip);
+                if (horizontal) {
+                    g.drawLine(startPixel, 0, startPixel, size - 1);
+                    names.clipRect(startPixel + 1, 0, MARK_NAME_WIDTH - 1, size);
+                    names.drawString(name, startPixel + 2, 9);
+                } else {
+                    g.drawLine(0, startPixel, size - 1, startPixel);
+                    names.clipRect(0, startPixel - MARK_NAME_WIDTH + 1, size, MARK_NAME_WIDTH - 1);
+                    names.drawString(name, 2, startPixel - 2);
+                }
+            });
+        } finally {
+            names.dispose();
+        }
+    }
+
+    /**
+     * Converts a position in micrometers to a pixel position. Positions outside of a pixel range are moved just outside
+     * of the range, so that they fit into an integer.
+     *
+     * @param position the position in micrometers
+     * @param from the first pixel of the range
+     * @param to the last pixel of the range
+     * @return the pixel position
+     */
+    private int toPixel(long position, int from, int to) {
+        double pixel = offsetPixel + ((double) position + offsetMicrometer) * zoomFactor / 1_000_000;
+        return (int) Math.round(Math.max(from - 1, Math.min(to + 1, pixel)));
+    }
+
+    /**
+     * Repaints the part of the ruler showing a changed range of marks, including the names of the marks.
+     *
+     * @param from the first changed position in micrometers
+     * @param to the last changed position in micrometers
+     */
+    private void marksChanged(long from, long to) {
+        int length = orientation == RulerOrientation.HORIZONTAL ? getWidth() : getHeight();
+        int start = toPixel(from, 0, length);
+        int end = toPixel(to, 0, length);
+        if (end >= 0 && start <= length) {
+            if (orientation == RulerOrientation.HORIZONTAL) {
+                repaint(getStrip(start - MARKER_MARGIN, end + MARK_NAME_WIDTH));
+            } else {
+                repaint(getStrip(start - MARK_NAME_WIDTH, end + MARKER_MARGIN));
+            }
+        }
+    }
 
+    /**
+     * Sets the marks shown on the ruler. The ruler is repainted when marks are added or removed. The marks are shown
+     * until other marks are set.
+     *
+     * @param marks the marks, {@code null} to show no marks
+     */
+    public void setMarks(RulerMarks marks) {
+        if (this.marks != null) {
+            this.marks.removeMarksListener(marksListener);
+        }
+        this.marks = marks;
+        if (marks != null) {
+            marks.addMarksListener(marksListener);
+        }
+        repaint();
+    }
+
+    /**
+     * Returns the marks shown on the ruler.
+     *
+     * @return the marks, {@code null} if no marks are shown
+     */
+    public RulerMarks getMarks() {
+        return marks;
+    }
+
+    /**
+     * Paints the selected span and the position marker.
+     *
+     * @param g the graphics context
+     */
+    private void paintOverlay(Graphics g) {
+        boolean horizontal = orientation == RulerOrientation.HORIZONTAL;
+        if (selectionStart != NONE) {
+            g.setColor(selectionColor);
+            int length = selectionEnd - selectionStart + 1;
+            if (horizontal) {
+                g.fillRect(selectionStart, 0, length, getHeight());
+            } else {
+                g.fillRect(0, selectionStart, getWidth(), length);
+            }
+        }
+        if (markerPosition != NONE) {
+            g.setColor(markerColor);
+            if (horizontal) {
+                g.drawLine(markerPosition, 0, markerPosition, getHeight() - 1);
+            } else {
+                g.drawLine(0, markerPosition, getWidth() - 1, markerPosition);
+            }
+        }
+    }
+
+    /**
+     * Paints the background, the border line and the ticks of an area.
+     *
+     * @param g the graphics context
+     * @param drawArea the area
+     */
+    private void paintTicks(Graphics g, Rectangle drawArea) {
         // Fill background
         g.setColor(background);
         g.fillRect(drawArea.x, drawArea.y, drawArea.width, drawArea.height);
@@ -154,54 +398,81 @@ public class JRuler extends JComponent {
             g.drawLine(size - 1, drawArea.y, size - 1, drawArea.y + drawArea.height);
         }
 
-        double pixelPerUnit = getPixelPerUnit();
-        double firstTickPosition;
-        int unitCountInOffset = 0;
-        int smallOffsetCounter;
-        int bigOffsetCounter;
-        if (offsetInPixel < 0) {
-            unitCountInOffset = (int) (Math.floor(offsetInPixel / pixelPerUnit) + 1);
-            firstTickPosition = unitCountInOffset * pixelPerUnit;
-        }
-        if (offsetInPixel == 0) {
-            firstTickPosition = 0;
-        } else {
-            unitCountInOffset = (int) (Math.floor(offsetInPixel / pixelPerUnit));
-            firstTickPosition = offsetInPixel - unitCountInOffset * pixelPerUnit;
-        }
-        smallOffsetCounter = smallScaleStep - (unitCountInOffset % smallScaleStep);
-        bigOffsetCounter = bigScaleStep - (unitCountInOffset % bigScaleStep);
+        int start = orientation == RulerOrientation.HORIZONTAL ? drawArea.x : drawArea.y;
+        drawTicks(g, start - LABEL_MARGIN, start + (int) getRulerLength(drawArea));
+    }
 
-        double remainingPixels = getRulerLength(drawArea) - firstTickPosition;
-        double tickCount = 1;
-        if (remainingPixels > 0) {
-            tickCount = remainingPixels / pixelPerUnit;
-        }
+    private double getRulerLength(Rectangle drawArea) {
+        return orientation == RulerOrientation.HORIZONTAL ? drawArea.width : drawArea.height;
+    }
 
-        drawTicks(g, (int) tickCount, firstTickPosition, unitCountInOffset, bigOffsetCounter, smallOffsetCounter);
+    /**
+     * Returns the length of the display unit in micrometers. All units are whole multiples of a micrometer.
+     *
+     * @return the length of the display unit in micrometers
+     */
+    private long getUnitMicrometer() {
+        return Math.round(unit.unit() * 1_000_000);
     }
 
-    private double getPixelPerUnit() {
-        return zoomFactor * unit.unit();
+    /**
+     * Draws the ticks between two pixel positions. The position of each tick is computed from its index, the distance
+     * of a tick to the offset is exact in micrometers and only the distance is scaled to pixels. Thus the ticks do not
+     * drift at large offsets, and only the ticks in the painted area are visited. If the big scale step is a multiple
+     * of the small scale step, only the ticks that are drawn are visited.
+     *
+     * @param g the graphics context
+     * @param from the first pixel position
+     * @param to the last pixel position
+     */
+    private void drawTicks(Graphics g, int from, int to) {
+        long unitMicrometer = getUnitMicrometer();
+        double pixelPerMicrometer = zoomFactor / 1_000_000;
+        int step = bigScaleStep % smallScaleStep == 0 ? smallScaleStep : 1;
+        // the index of the last tick before the first pixel position, rounded down to a multiple of the step
+        long first = Math.floorDiv((long) Math.floor((from - offsetPixel) / pixelPerMicrometer) - offsetMicrometer,
+                unitMicrometer);
+        first = Math.floorDiv(first, step) * step;
+        for (long tick = first;; tick += step) {
+            double drawPos = offsetPixel + (tick * unitMicrometer + offsetMicrometer) * pixelPerMicrometer;
+            if (drawPos > to) {
+                break;
+            }
+            if (drawPos < from) {
+                continue;
+            }
+            if (Math.floorMod(tick, bigScaleStep) == 0) {
+                drawTickWithString(g, 10, (int) Math.round(drawPos), label(tick));
+            } else if (Math.floorMod(tick, smallScaleStep) == 0) {
+                drawTickWithString(g, 7, (int) Math.round(drawPos), null);
+            }
+        }
     }
 
-    private double getRulerLength(Rectangle drawArea) {
-        return orientation == RulerOrientation.HORIZONTAL ? drawArea.width : drawArea.height;
+    /**
+     * Returns the label of a tick number. Labels of small numbers are cached, so painting does not create strings.
+     *
+     * @param number the tick number
+     * @return the label
+     */
+    static String label(long number) {
+        if (number < -LABEL_CACHE_LIMIT || number > LABEL_CACHE_LIMIT) {
+            return Long.toString(number);
+        }
+        String label = LABELS[(int) number + LABEL_CACHE_LIMIT];
+        if (label == null) {
+            label = Long.toString(number);
+            LABELS[(int) number + LABEL_CACHE_LIMIT] = label;
+        }
+        return label;
     }
 
-    private void drawTicks(Graphics g, int tickCount, double firstTickPosition, int tickOffset,
-            int bigOffsetCounter, int smallOffsetCounter) {
-        for (int i = 0; i < tickCount; ++i) {
-            double drawPos = firstTickPosition + i * getPixelPerUnit();
-            if (bigOffsetCounter % bigScaleStep == 0) {
-                drawTickWithString(g, 10, (int) drawPos, Integer.toString(i - tickOffset));
-            } else if (smallOffsetCounter % smallScaleStep == 0) {
-                drawTickWithString(g, 7, (int) drawPos, "");
-            } else {
-                drawTickWithString(g, 0, (int) drawPos, "");
-            }
-            bigOffsetCounter++;
-            smallOffsetCounter++;
+    /**
+     * Fills the cache of tick labels.
+     */
+    static void fillLabelCache() {
+        for (int number = -LABEL_CACHE_LIMIT; number <= LABEL_CACHE_LIMIT; ++number) {
+            label(number);
         }
     }
 
@@ -222,12 +493,198 @@ public class JRuler extends JComponent {
     }
     
     /**
-     * Set an offset in millimeter.
+     * Shows the position marker at a pixel position, usually the position of the mouse. Only the strips around the old
+     * and the new position are repainted.
+     *
+     * @param position the pixel position along the ruler
+     */
+    public void setMarkerPosition(int position) {
+        if (position == NONE) {
+            throw new IllegalArgumentException("Invalid marker position: " + position);
+        }
+        if (position == markerPosition) {
+            return;
+        }
+        int old = markerPosition;
+        markerPosition = position;
+        if (old != NONE) {
+            repaintSpan(old - MARKER_MARGIN, old + MARKER_MARGIN);
+        }
+        repaintSpan(position - MARKER_MARGIN, position + MARKER_MARGIN);
+    }
+
+    /**
+     * Hides the position marker.
+     */
+    public void removeMarker() {
+        if (markerPosition != NONE) {
+            int old = markerPosition;
+            markerPosition = NONE;
+            repaintSpan(old - MARKER_MARGIN, old + MARKER_MARGIN);
+        }
+    }
+
+    /**
+     * Returns whether the position marker is shown.
+     *
+     * @return {@code true} if the position marker is shown
+     */
+    public boolean hasMarker() {
+        return markerPosition != NONE;
+    }
+
+    /**
+     * Returns the pixel position of the marker.
+     *
+     * @return the pixel position of the marker
+     * @throws IllegalStateException if no marker is shown
+     */
+    public int getMarkerPosition() {
+        if (markerPosition == NONE) {
+            throw new IllegalStateException("No marker shown.");
+        }
+        return markerPosition;
+    }
+
+    /**
+     * Highlights the span between two pixel positions, both inclusive. The positions may be given in any order. Only
+     * the parts of the ruler whose highlighting changes are repainted.
+     *
+     * @param from the first pixel position along the ruler
+     * @param to the second pixel position along the ruler
+     */
+    public void setSelection(int from, int to) {
+        if (from == NONE || to == NONE) {
+            throw new IllegalArgumentException("Invalid selection: " + from + " to " + to);
+        }
+        int start = Math.min(from, to);
+        int end = Math.max(from, to);
+        if (selectionStart == NONE || end < selectionStart || start > selectionEnd) {
+            // the spans do not overlap
+            if (selectionStart != NONE) {
+                repaintSpan(selectionStart, selectionEnd);
+            }
+            repaintSpan(start, end);
+        } else {
+            if (start != selectionStart) {
+                repaintSpan(Math.min(start, selectionStart), Math.max(start, selectionStart) - 1);
+            }
+            if (end != selectionEnd) {
+                repaintSpan(Math.min(end, selectionEnd) + 1, Math.max(end, selectionEnd));
+            }
+        }
+        selectionStart = start;
+        selectionEnd = end;
+    }
+
+    /**
+     * Removes the highlighting of the selected span.
+     */
+    public void removeSelection() {
+        if (selectionStart != NONE) {
+            int start = selectionStart;
+            int end = selectionEnd;
+            selectionStart = NONE;
+            selectionEnd = NONE;
+            repaintSpan(start, end);
+        }
+    }
+
+    /**
+     * Returns whether a span is selected.
+     *
+     * @return {@code true} if a span is selected
+     */
+    public boolean hasSelection() {
+        return selectionStart != NONE;
+    }
+
+    /**
+     * Returns the first pixel position of the selected span.
+     *
+     * @return the first pixel position
+     * @throws IllegalStateException if no span is selected
+     */
+    public int getSelectionStart() {
+        if (selectionStart == NONE) {
+            throw new IllegalStateException("No span selected.");
+        }
+        return selectionStart;
+    }
+
+    /**
+     * Returns the last pixel position of the selected span.
+     *
+     * @return the last pixel position
+     * @throws IllegalStateException if no span is selected
+     */
+    public int getSelectionEnd() {
+        if (selectionStart == NONE) {
+            throw new IllegalStateException("No span selected.");
+        }
+        return selectionEnd;
+    }
+
+    /**
+     * Repaints the strip of the ruler between two pixel positions, both inclusive. On the event dispatch thread the
+     * strip is painted immediately, because the repaint manager would merge the strips of the old and new marker
+     * positions into one area containing everything in between.
+     *
+     * @param from the first pixel position along the ruler
+     * @param to the last pixel position along the ruler
+     */
+    private void repaintSpan(int from, int to) {
+        Rectangle strip = getStrip(from, to);
+        if (SwingUtilities.isEventDispatchThread() && isShowing()) {
+            paintImmediately(strip);
+        } else {
+            repaint(strip);
+        }
+    }
+
+    /**
+     * Returns the strip of the ruler between two pixel positions, both inclusive.
+     *
+     * @param from the first pixel position along the ruler
+     * @param to the last pixel position along the ruler
+     * @return the strip
+     */
+    private Rectangle getStrip(int from, int to) {
+        return orientation == RulerOrientation.HORIZONTAL
+                ? new Rectangle(from, 0, to - from + 1, getHeight())
+                : new Rectangle(0, from, getWidth(), to - from + 1);
+    }
+
+    /**
+     * Set an offset in millimeter. The offset is converted to pixels with the current zoom factor and is kept in
+     * pixels if the zoom factor changes.
      * @param offsetMillimeter 
      */
     public void setOffset(int offsetMillimeter) {
-        offsetInPixel = zoomFactor * offsetMillimeter / 1000;
-        
+        offsetPixel = zoomFactor * offsetMillimeter / 1000;
+        offsetMicrometer = 0;
+    }
+
+    /**
+     * Sets the offset in micrometers. Unlike {@link #setOffset(int)}, tick 0 is drawn at the offset scaled by the
+     * current zoom factor, thus the offset is kept in micrometers if the zoom factor changes. The distances of the
+     * ticks to the offset are exact at any offset.
+     *
+     * @param offsetMicrometer the offset in micrometers
+     */
+    public void setOffsetMicrometer(long offsetMicrometer) {
+        this.offsetMicrometer = offsetMicrometer;
+        offsetPixel = 0;
+    }
+
+    /**
+     * Returns the offset in micrometers. An offset set in pixels by {@link #setOffset(int)} or by default is converted
+     * with the current zoom factor.
+     *
+     * @return the offset in micrometers
+     */
+    public long getOffsetMicrometer() {
+        return offsetMicrometer + Math.round(offsetPixel * 1_000_000 / zoomFactor);
     }
 
     public void setBigScaleStep(int scale) {
@@ -16,10 +16,17 @@
 package org.zetool.components;
 
 import info.clearthought.layout.TableLayout;
+import java.awt.Dimension;
+import java.awt.Insets;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.Timer;
 import javax.swing.border.EtchedBorder;
 
 /**
@@ -33,12 +40,36 @@ import javax.swing.border.EtchedBorder;
  * just like bordered components, however, it is possible to assign a percentaged
  * size to each element. If no size is set, the space is divided equally to
  * the elements.</p>
+ * <p>Elements can also be inserted and removed using
+ * {@link #insertElement(int, JComponent, double)} and {@link #removeElement(int)}.
+ * These changes are displayed immediately and only change the affected
+ * column of the layout. Elements with a fixed or minimum width do not cause
+ * a new layout if their text changes, as long as the text fits.</p>
+ * <p>Texts can be posted from any thread using {@link #postStatusText(int, String)}.
+ * Only the latest posted text of an element is kept, the texts are displayed
+ * at most once per frame on the event dispatch thread. A posted text belongs
+ * to the element at the index at the time it is posted, even if elements are
+ * inserted or removed before it is displayed.</p>
  * @author Jan-Philipp Kappmeier
  */
 public class JStatusBar extends JPanel {
 
     /** The array containing the components visible in the status bar. */
     protected ArrayList<JComponent> components = new ArrayList<JComponent>( 3 );
+    /** The delay between two updates of posted texts in milliseconds. */
+    private static final int FRAME_DELAY = 16;
+    /** The latest posted texts that are not yet displayed, by element index. Guarded by itself. */
+    private final HashMap<Integer, String> postedTexts = new HashMap<>();
+    /** Set if the display of posted texts is scheduled. */
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+    /** The timer displaying the posted texts. */
+    private final Timer updateTimer = new Timer( FRAME_DELAY, e -> updatePostedTexts() );
+    /** The client property storing the column width of an element. */
+    private static final String WIDTH_PROPERTY = "JStatusBar.width";
+    /** The layout of the displayed elements. */
+    private TableLayout layout;
+    /** Set if the layout displays exactly the elements, cleared if elements are changed without display. */
+    private boolean layoutCurrent;
 
     /**
      * Creates a new instance of the {@code JStatusBar} containing one
@@ -46,6 +77,7 @@ public class JStatusBar extends JPanel {
      */
     public JStatusBar() {
         super();
+        updateTimer.setRepeats( false );
         addElement();
         rebuild();
     }
@@ -72,13 +104,101 @@ public class JStatusBar extends JPanel {
      * @param text the initial text of the new element
      */
     public void addElement( String text ) {
-        JLabel label = new JLabel( text );
-        label.setBorder( new EtchedBorder() );
-        components.add( label );
+        components.add( new StatusLabel( text, 0 ) );
+        layoutCurrent = false;
     }
 
+    /**
+     * Adds a new element to the status bar.
+     * @param component the new element
+     */
     public void addElement( JComponent component ) {
         components.add( component );
+        layoutCurrent = false;
+    }
+
+    /**
+     * Adds a new element with a fixed width to the status bar. Changing the
+     * text of the element never changes the layout of the status bar. The
+     * element is displayed immediately.
+     * @param text the initial text of the new element
+     * @param width the width of the element in pixels
+     */
+    public void addFixedWidthElement( String text, int width ) {
+        insertElement( components.size(), new StatusLabel( text, 0 ), width );
+    }
+
+    /**
+     * Adds a new element to the status bar that is as wide as its text, but
+     * at least as wide as a given minimum width. Changing the text of the
+     * element changes the layout of the status bar only if the text does not
+     * fit into the minimum width. The element is displayed immediately.
+     * @param text the initial text of the new element
+     * @param minimumWidth the minimum width of the element in pixels
+     */
+    public void addMinimumWidthElement( String text, int minimumWidth ) {
+        insertElement( components.size(), new StatusLabel( text, minimumWidth ), TableLayout.PREFERRED );
+    }
+
+    /**
+     * Inserts an element at a given position and displays it immediately.
+     * Only a column is inserted into the current layout, the other elements
+     * are not added again.
+     * @param index the index of the new element
+     * @param component the new element
+     * @param width the width of the element, a size as accepted by
+     * {@link TableLayout}
+     */
+    public void insertElement( int index, JComponent component, double width ) {
+        boolean displayed = isLayoutUpToDate();
+        component.putClientProperty( WIDTH_PROPERTY, width );
+        components.add( index, component );
+        movePostedTexts( index, 1 );
+        if( displayed && layout.getNumRow() > 0 ) {
+            layout.insertColumn( index, width );
+            add( component, index + ", 0" );
+        } else
+            rebuild();
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Removes the element at a given position and updates the display
+     * immediately. Only the column of the element is deleted from the current
+     * layout, the other elements are not added again.
+     * @param index the index of the element
+     */
+    public void removeElement( int index ) {
+        boolean displayed = isLayoutUpToDate();
+        JComponent component = components.remove( index );
+        movePostedTexts( index, -1 );
+        if( displayed ) {
+            remove( component );
+            layout.deleteColumn( index );
+        } else
+            rebuild();
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Checks whether the layout displays exactly the elements in the list. Runs
+     * in constant time, such that adding elements one by one stays linear.
+     * @return {@code true} if the layout displays exactly the elements
+     */
+    private boolean isLayoutUpToDate() {
+        return layoutCurrent && getLayout() == layout && layout.getNumColumn() == components.size();
+    }
+
+    /**
+     * Returns the width of the column for an element.
+     * @param component the element
+     * @return the width, a size as accepted by {@link TableLayout}
+     */
+    private static double getElementWidth( JComponent component ) {
+        Object width = component.getClientProperty( WIDTH_PROPERTY );
+        return width instanceof Double ? (Double)width : TableLayout.FILL;
     }
 
     /**
@@ -87,6 +207,10 @@ public class JStatusBar extends JPanel {
      */
     public void clear() {
         components.clear();
+        layoutCurrent = false;
+        synchronized( postedTexts ) {
+            postedTexts.clear();
+        }
     }
 
     /**
@@ -94,8 +218,11 @@ public class JStatusBar extends JPanel {
      * called if elements where added or deleted.
      */
     protected void rebuild() {
+        removeAll();
+        layoutCurrent = true;
         if( components.isEmpty() ) {
-            setLayout( new TableLayout() );
+            layout = new TableLayout();
+            setLayout( layout );
             return;
         }
 
@@ -105,8 +232,9 @@ public class JStatusBar extends JPanel {
         size2[1] = new double[1];
         size2[1][0] = TableLayout.PREFERRED;
         for( int i = 0; i < components.size(); i++ )
-            size2[0][i] = TableLayout.FILL;
-        setLayout( new TableLayout( size2 ) );
+            size2[0][i] = getElementWidth( components.get( i ) );
+        layout = new TableLayout( size2 );
+        setLayout( layout );
 
         // for all components, add them
         for( int i = 0; i < components.size(); i++ )
@@ -116,12 +244,132 @@ public class JStatusBar extends JPanel {
     /**
      * Sets a new text on a specified status bar element. The text is also set as
      * tool tip, so that the text can be read if the space is to small. Converts
-     * the component to {@link JLabel} without testing.
+     * the component to {@link JLabel} without testing. Setting the text that
+     * is already displayed has no effect. Has to be called on the event
+     * dispatch thread.
      * @param index the index of the element, begins with 0
      * @param text the new text
      */
     public void setStatusText( int index, String text ) {
-        ((JLabel) components.get( index )).setText( text );
-        components.get( index ).setToolTipText( text );
+        JLabel label = (JLabel) components.get( index );
+        if( Objects.equals( text, label.getText() ) )
+            return;
+        label.setText( text );
+        label.setToolTipText( text );
+    }
+
+    /**
+     * Posts a new text for a specified status bar element. The method can be
+     * called from any thread. The text is not displayed immediately, instead
+     * the texts posted within one frame are displayed together and only the
+     * latest text posted for an element is displayed. The text is displayed by
+     * the element at the index at the time of the call.
+     * @param index the index of the element, begins with 0
+     * @param text the new text
+     * @see #setStatusText(int, java.lang.String)
+     */
+    public void postStatusText( int index, String text ) {
+        synchronized( postedTexts ) {
+            postedTexts.put( index, text == null ? "" : text );
+        }
+        if( updateScheduled.compareAndSet( false, true ) )
+            updateTimer.start();
+    }
+
+    /**
+     * Displays the latest posted texts. Texts for elements that do not exist
+     * any more are dropped.
+     */
+    void updatePostedTexts() {
+        updateScheduled.set( false );
+        HashMap<Integer, String> texts;
+        synchronized( postedTexts ) {
+            if( postedTexts.isEmpty() )
+                return;
+            texts = new HashMap<>( postedTexts );
+            postedTexts.clear();
+        }
+        for( Map.Entry<Integer, String> entry : texts.entrySet() )
+            if( entry.getKey() < components.size() )
+                setStatusText( entry.getKey(), entry.getValue() );
+    }
+
+    /**
+     * Moves the posted texts behind an inserted or removed element, such that
+     * they are displayed by the same element as before. The text posted for a
+     * removed element is dropped.
+     * @param index the index of the inserted or removed element
+     * @param offset 1 if the element was inserted, -1 if it was removed
+     */
+    private void movePostedTexts( int index, int offset ) {
+        synchronized( postedTexts ) {
+            if( postedTexts.isEmpty() )
+                return;
+            if( offset < 0 )
+                postedTexts.remove( index );
+            HashMap<Integer, String> moved = new HashMap<>( postedTexts.size() );
+            for( Map.Entry<Integer, String> entry : postedTexts.entrySet() )
+                moved.put( entry.getKey() < index ? entry.getKey() : entry.getKey() + offset, entry.getValue() );
+            postedTexts.clear();
+            postedTexts.putAll( moved );
+        }
+    }
+
+    /**
+     * A label for the text elements. A text change only causes a new layout
+     * if the changed text changes the size of the layout column of the label.
+     * The label can have a minimum width. The height is the height of a text
+     * line even if the label is empty.
+     */
+    private static class StatusLabel extends JLabel {
+        /** The minimum preferred width of the label. */
+        private final int minimumWidth;
+        /** The preferred size at the last time a layout was requested. */
+        private Dimension laidOut;
+        /** Set while the text is changed. */
+        private boolean textChanging;
+
+        StatusLabel( String text, int minimumWidth ) {
+            super( text );
+            this.minimumWidth = minimumWidth;
+            setBorder( new EtchedBorder() );
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            Dimension size = super.getPreferredSize();
+            if( !isPreferredSizeSet() && getFont() != null ) {
+                Insets insets = getInsets();
+                size.width = Math.max( size.width, minimumWidth );
+                int textHeight = getFontMetrics( getFont() ).getHeight();
+                size.height = Math.max( size.height, textHeight + insets.top + insets.bottom );
+            }
+            return size;
+        }
+
+        @Override
+        public void setText( String text ) {
+            textChanging = true;
+            try {
+                super.setText( text );
+            } finally {
+                textChanging = false;
+            }
+        }
+
+        /**
+         * Requests a new layout unless only the text changed and the column
+         * of the label keeps its size. The width only matters if the column
+         * has the preferred width.
+         */
+        @Override
+        public void revalidate() {
+            Dimension size = getPreferredSize();
+            if( textChanging && laidOut != null && size.height == laidOut.height
+                    && (size.width == laidOut.width || getElementWidth( this ) != TableLayout.PREFERRED) )
+                return;
+            laidOut = size;
+            super.revalidate();
+        }
     }
 }
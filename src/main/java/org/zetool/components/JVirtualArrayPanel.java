@@ -0,0 +1,608 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+import javax.swing.CellRendererPane;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.event.CellEditorListener;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
+import org.zetool.components.diagnostics.RepaintProfiler;
+
+/**
+ * A panel displaying the values of a {@link TableModel} arranged on a table, like a {@link JArrayPanel}, but without a
+ * component for each cell. The cells are painted by a shared {@link ArrayCellRenderer} and only the cells intersecting
+ * the painted area are painted at all. A real component exists only for the cell that is edited by the
+ * {@link ArrayCellEditor}. The editing is stopped as soon as the edited cell is scrolled out of the viewport.
+ * <p>
+ * The columns and rows have a size in pixels. The positions of the columns and rows are stored as prefix sums, so the
+ * cells at a point are found by a binary search. Thus the panel can display grids with millions of cells.</p>
+ * <p>
+ * As in a {@link TableModel} the rows are the first index, all other methods of the panel expect the column first,
+ * like {@link JArrayPanel#set(javax.swing.JComponent, int, int)}.</p>
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class JVirtualArrayPanel extends JComponent implements Scrollable, TableModelListener {
+
+    /** The model containing the values of the cells. */
+    private TableModel model;
+    /** The renderer painting the cells. */
+    private ArrayCellRenderer renderer = new DefaultRenderer();
+    /** The editor for the cells, editing is disabled if {@code null}. */
+    private ArrayCellEditor editor;
+    /** The pane the renderer components are painted in. */
+    private final CellRendererPane rendererPane = new CellRendererPane();
+    /** The width of columns without explicit width. */
+    private int defaultColumnWidth;
+    /** The height of rows without explicit height. */
+    private int defaultRowHeight;
+    /** The widths of the columns. */
+    private int[] columnWidths = new int[0];
+    /** The heights of the rows. */
+    private int[] rowHeights = new int[0];
+    /** The x coordinates of the columns, contains one more entry than columns exist. */
+    private long[] columnOffsets = new long[1];
+    /** The y coordinates of the rows, contains one more entry than rows exist. */
+    private long[] rowOffsets = new long[1];
+    /** The component editing the current cell. */
+    private Component editorComponent;
+    /** The column of the edited cell or -1. */
+    private int editingColumn = -1;
+    /** The row of the edited cell or -1. */
+    private int editingRow = -1;
+    /** The viewport the panel is displayed in. */
+    private JViewport viewport;
+    /** Writes the edited value into the model or removes the editor. */
+    private final CellEditorListener editorListener = new CellEditorListener() {
+        @Override
+        public void editingStopped(ChangeEvent e) {
+            Object value = editor.getCellEditorValue();
+            int column = editingColumn;
+            int row = editingRow;
+            removeEditor();
+            model.setValueAt(value, row, column);
+        }
+
+        @Override
+        public void editingCanceled(ChangeEvent e) {
+            removeEditor();
+        }
+    };
+    /** Stops the editing if the edited cell is scrolled out of the viewport. */
+    private final ChangeListener viewportListener = e -> stopEditingIfHidden();
+
+    /**
+     * Creates a new panel displaying the values of a model.
+     *
+     * @param model the model containing the values
+     * @param columnWidth the width of the columns in pixels
+     * @param rowHeight the height of the rows in pixels
+     */
+    public JVirtualArrayPanel(TableModel model, int columnWidth, int rowHeight) {
+        if (columnWidth < 0 || rowHeight < 0) {
+            throw new IllegalArgumentException("Sizes must not be negative.");
+        }
+        this.defaultColumnWidth = columnWidth;
+        this.defaultRowHeight = rowHeight;
+        setLayout(null);
+        add(rendererPane);
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int column = columnAtPoint(e.getX());
+                int row = rowAtPoint(e.getY());
+                if (column >= 0 && row >= 0 && (column != editingColumn || row != editingRow)
+                        && editor != null && editor.isCellEditable(e)) {
+                    editCellAt(column, row);
+                }
+            }
+        });
+        setModel(model);
+    }
+
+    /**
+     * Sets the model containing the values of the cells. The sizes of the columns and rows are reset.
+     *
+     * @param model the model
+     */
+    public final void setModel(TableModel model) {
+        if (model == null) {
+            throw new IllegalArgumentException("Model must not be null.");
+        }
+        cancelEditing();
+        if (this.model != null) {
+            this.model.removeTableModelListener(this);
+        }
+        this.model = model;
+        columnWidths = new int[0];
+        rowHeights = new int[0];
+        model.addTableModelListener(this);
+        updateStructure();
+    }
+
+    /**
+     * Returns the model containing the values of the cells.
+     *
+     * @return the model
+     */
+    public TableModel getModel() {
+        return model;
+    }
+
+    /**
+     * Sets the renderer painting the cells.
+     *
+     * @param renderer the renderer
+     */
+    public void setRenderer(ArrayCellRenderer renderer) {
+        this.renderer = renderer;
+        repaint();
+    }
+
+    /**
+     * Sets the editor for the cells. A cell is edited if the model allows it and the editor accepts the mouse event.
+     *
+     * @param editor the editor, or {@code null} if the cells cannot be edited
+     */
+    public void setEditor(ArrayCellEditor editor) {
+        cancelEditing();
+        this.editor = editor;
+    }
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return the number of columns
+     */
+    public int getColumnCount() {
+        return columnWidths.length;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the number of rows
+     */
+    public int getRowCount() {
+        return rowHeights.length;
+    }
+
+    /**
+     * Sets the width of a column.
+     *
+     * @param column the index of the column
+     * @param width the width in pixels
+     */
+    public void setColumnWidth(int column, int width) {
+        columnWidths[column] = width;
+        computeOffsets(columnWidths, columnOffsets, column);
+        sizeChanged();
+    }
+
+    /**
+     * Sets the height of a row.
+     *
+     * @param row the index of the row
+     * @param height the height in pixels
+     */
+    public void setRowHeight(int row, int height) {
+        rowHeights[row] = height;
+        computeOffsets(rowHeights, rowOffsets, row);
+        sizeChanged();
+    }
+
+    private void sizeChanged() {
+        if (editorComponent != null) {
+            editorComponent.setBounds(getCellRect(editingColumn, editingRow));
+        }
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Returns the column at a x coordinate.
+     *
+     * @param x the x coordinate
+     * @return the column, or -1 if no column is at the coordinate
+     */
+    public int columnAtPoint(int x) {
+        return indexAt(columnOffsets, x);
+    }
+
+    /**
+     * Returns the row at a y coordinate.
+     *
+     * @param y the y coordinate
+     * @return the row, or -1 if no row is at the coordinate
+     */
+    public int rowAtPoint(int y) {
+        return indexAt(rowOffsets, y);
+    }
+
+    /**
+     * Returns the bounds of a cell.
+     *
+     * @param column the column of the cell
+     * @param row the row of the cell
+     * @return the bounds of the cell
+     */
+    public Rectangle getCellRect(int column, int row) {
+        return new Rectangle((int) columnOffsets[column], (int) rowOffsets[row], columnWidths[column],
+                rowHeights[row]);
+    }
+
+    /**
+     * Finds the interval containing a coordinate using binary search.
+     *
+     * @param offsets the prefix sums of the sizes
+     * @param position the coordinate
+     * @return the index of the interval containing the coordinate, or -1
+     */
+    private static int indexAt(long[] offsets, long position) {
+        int count = offsets.length - 1;
+        if (count == 0 || position < 0 || position >= offsets[count]) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(offsets, 0, count + 1, position);
+        if (index < 0) {
+            return -index - 2;
+        }
+        // empty intervals share the same offset, use the last one
+        while (index < count - 1 && offsets[index + 1] == position) {
+            ++index;
+        }
+        return index;
+    }
+
+    /**
+     * Computes the prefix sums of the sizes starting with a given index.
+     *
+     * @param sizes the sizes
+     * @param offsets the prefix sums
+     * @param from the first index whose size changed
+     */
+    private static void computeOffsets(int[] sizes, long[] offsets, int from) {
+        for (int i = from; i < sizes.length; ++i) {
+            offsets[i + 1] = offsets[i] + sizes[i];
+        }
+    }
+
+    /**
+     * Adapts the sizes to the number of columns and rows in the model. The sizes of existing columns and rows are
+     * kept.
+     */
+    private void updateStructure() {
+        int oldColumns = columnWidths.length;
+        int oldRows = rowHeights.length;
+        columnWidths = Arrays.copyOf(columnWidths, model.getColumnCount());
+        rowHeights = Arrays.copyOf(rowHeights, model.getRowCount());
+        for (int i = oldColumns; i < columnWidths.length; ++i) {
+            columnWidths[i] = defaultColumnWidth;
+        }
+        for (int i = oldRows; i < rowHeights.length; ++i) {
+            rowHeights[i] = defaultRowHeight;
+        }
+        columnOffsets = Arrays.copyOf(columnOffsets, columnWidths.length + 1);
+        rowOffsets = Arrays.copyOf(rowOffsets, rowHeights.length + 1);
+        computeOffsets(columnWidths, columnOffsets, Math.min(oldColumns, columnWidths.length));
+        computeOffsets(rowHeights, rowOffsets, Math.min(oldRows, rowHeights.length));
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Repaints the changed cells. If the number of rows or columns changed, the sizes are updated.
+     *
+     * @param e the event describing the change
+     */
+    @Override
+    public void tableChanged(TableModelEvent e) {
+        if (e.getFirstRow() == TableModelEvent.HEADER_ROW || e.getType() != TableModelEvent.UPDATE
+                || model.getColumnCount() != columnWidths.length || model.getRowCount() != rowHeights.length) {
+            cancelEditing();
+            updateStructure();
+            return;
+        }
+        if (rowHeights.length == 0 || columnWidths.length == 0) {
+            return;
+        }
+        int firstRow = Math.max(0, e.getFirstRow());
+        int lastRow = Math.min(rowHeights.length - 1, e.getLastRow());
+        int firstColumn = e.getColumn() == TableModelEvent.ALL_COLUMNS ? 0 : e.getColumn();
+        int lastColumn = e.getColumn() == TableModelEvent.ALL_COLUMNS ? columnWidths.length - 1 : e.getColumn();
+        if (firstRow > lastRow) {
+            return;
+        }
+        Rectangle dirty = getCellRect(firstColumn, firstRow).union(getCellRect(lastColumn, lastRow));
+        repaint(dirty);
+    }
+
+    /**
+     * Starts editing a cell. A cell that is currently edited is stopped first.
+     *
+     * @param column the column of the cell
+     * @param row the row of the cell
+     * @return {@code true} if the cell is edited
+     */
+    public boolean editCellAt(int column, int row) {
+        if (editor == null || !model.isCellEditable(row, column)) {
+            return false;
+        }
+        if (editorComponent != null && !editor.stopCellEditing()) {
+            return false;
+        }
+        editorComponent = editor.getCellEditorComponent(this, model.getValueAt(row, column), column, row);
+        if (editorComponent == null) {
+            return false;
+        }
+        editingColumn = column;
+        editingRow = row;
+        editorComponent.setBounds(getCellRect(column, row));
+        add(editorComponent);
+        editorComponent.validate();
+        editor.addCellEditorListener(editorListener);
+        editorComponent.requestFocusInWindow();
+        repaint(editorComponent.getBounds());
+        return true;
+    }
+
+    /**
+     * Returns whether a cell is edited.
+     *
+     * @return {@code true} if a cell is edited
+     */
+    public boolean isEditing() {
+        return editorComponent != null;
+    }
+
+    /**
+     * Returns the column of the edited cell.
+     *
+     * @return the column of the edited cell, or -1 if no cell is edited
+     */
+    public int getEditingColumn() {
+        return editingColumn;
+    }
+
+    /**
+     * Returns the row of the edited cell.
+     *
+     * @return the row of the edited cell, or -1 if no cell is edited
+     */
+    public int getEditingRow() {
+        return editingRow;
+    }
+
+    private void cancelEditing() {
+        if (editorComponent != null) {
+            editor.cancelCellEditing();
+            // the editor does not need to notify the listeners
+            removeEditor();
+        }
+    }
+
+    /**
+     * Removes the component of the editor. The editor component is the only child besides the renderer pane.
+     */
+    private void removeEditor() {
+        if (editorComponent == null) {
+            return;
+        }
+        editor.removeCellEditorListener(editorListener);
+        Rectangle bounds = editorComponent.getBounds();
+        remove(editorComponent);
+        editorComponent = null;
+        editingColumn = -1;
+        editingRow = -1;
+        repaint(bounds);
+    }
+
+    /**
+     * Stops the editing if the edited cell is not visible anymore. If the value cannot be stored, the editing is
+     * cancelled.
+     */
+    private void stopEditingIfHidden() {
+        if (editorComponent == null || getVisibleRect().intersects(editorComponent.getBounds())) {
+            return;
+        }
+        if (!editor.stopCellEditing()) {
+            cancelEditing();
+        }
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        Component parent = getParent();
+        if (parent instanceof JViewport) {
+            viewport = (JViewport) parent;
+            viewport.addChangeListener(viewportListener);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        if (viewport != null) {
+            viewport.removeChangeListener(viewportListener);
+            viewport = null;
+        }
+        super.removeNotify();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        return new Dimension((int) Math.min(Integer.MAX_VALUE, columnOffsets[columnWidths.length]),
+                (int) Math.min(Integer.MAX_VALUE, rowOffsets[rowHeights.length]));
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        long start = RepaintProfiler.paintStarted();
+        super.paint(g);
+        RepaintProfiler.paintFinished(this, g, start);
+    }
+
+    /**
+     * Paints the background and all cells intersecting the clip, except the edited cell.
+     *
+     * @param g the graphics context
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        if (isOpaque()) {
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        }
+        long width = columnOffsets[columnWidths.length];
+        long height = rowOffsets[rowHeights.length];
+        if (clip.x >= width || clip.y >= height || clip.x + clip.width <= 0 || clip.y + clip.height <= 0) {
+            return;
+        }
+        int firstColumn = columnAtPoint(Math.max(0, clip.x));
+        int lastColumn = columnAtPoint((int) Math.min(width - 1, clip.x + clip.width - 1));
+        int firstRow = rowAtPoint(Math.max(0, clip.y));
+        int lastRow = rowAtPoint((int) Math.min(height - 1, clip.y + clip.height - 1));
+        for (int row = firstRow; row <= lastRow; ++row) {
+            int y = (int) rowOffsets[row];
+            for (int column = firstColumn; column <= lastColumn; ++column) {
+                if (column == editingColumn && row == editingRow) {
+                    continue;
+                }
+                Component component = renderer.getCellRendererComponent(this, model.getValueAt(row, column),
+                        column, row);
+                rendererPane.paintComponent(g, component, this, (int) columnOffsets[column], y,
+                        columnWidths[column], rowHeights[row], true);
+            }
+        }
+        rendererPane.removeAll();
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        if (orientation == SwingConstants.VERTICAL) {
+            return unitIncrement(rowOffsets, visibleRect.y, direction, defaultRowHeight);
+        }
+        return unitIncrement(columnOffsets, visibleRect.x, direction, defaultColumnWidth);
+    }
+
+    /**
+     * Computes the distance to the next border of a column or row.
+     *
+     * @param offsets the prefix sums of the sizes
+     * @param position the visible position
+     * @param direction negative for scrolling up or left
+     * @param fallback the distance if no cell is at the position
+     * @return the distance to the border
+     */
+    private static int unitIncrement(long[] offsets, int position, int direction, int fallback) {
+        int index = indexAt(offsets, position);
+        if (index < 0) {
+            return Math.max(1, fallback);
+        }
+        long distance = direction < 0 ? position - offsets[index] : offsets[index + 1] - position;
+        if (distance == 0 && direction < 0 && index > 0) {
+            distance = position - offsets[index - 1];
+        }
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, distance));
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return SwingUtilities.getUnwrappedParent(this) instanceof JViewport
+                && getParent().getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return SwingUtilities.getUnwrappedParent(this) instanceof JViewport
+                && getParent().getHeight() > getPreferredSize().height;
+    }
+
+    /**
+     * A renderer displaying the text of the values in a label. As the label is only used for painting, it does not
+     * request layouts and repaints.
+     */
+    private static class DefaultRenderer extends JLabel implements ArrayCellRenderer {
+
+        @Override
+        public Component getCellRendererComponent(JVirtualArrayPanel panel, Object value, int column, int row) {
+            setFont(panel.getFont());
+            setForeground(panel.getForeground());
+            setText(value == null ? "" : value.toString());
+            return this;
+        }
+
+        @Override
+        public void invalidate() {
+        }
+
+        @Override
+        public void validate() {
+        }
+
+        @Override
+        public void revalidate() {
+        }
+
+        @Override
+        public void repaint(long tm, int x, int y, int width, int height) {
+        }
+
+        @Override
+        public void repaint(Rectangle r) {
+        }
+
+        @Override
+        protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+            if ("text".equals(propertyName) || "font".equals(propertyName)) {
+                super.firePropertyChange(propertyName, oldValue, newValue);
+            }
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package org.zetool.components;
 
 import org.zetool.common.localization.Localized;
+import org.zetool.components.framework.FrameScheduler;
 import org.zetool.components.framework.Menu;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import javax.swing.AbstractButton;
 
 /**
@@ -10,8 +15,16 @@ import javax.swing.AbstractButton;
  * @author Jan-Philipp Kappmeier
  */
 public class Localizer {
+    /** The number of components localized in one chunk of a scheduled update. */
+    private static final int LOCALIZATION_CHUNK = 32;
     private volatile static Localizer instance;
     private ArrayList<Localized> localized = new ArrayList<>();
+    /** The registered buttons, in the order of registration. */
+    private final ArrayList<AbstractButton> buttons = new ArrayList<>();
+    /** Notified after the registered components were localized. */
+    private final List<Runnable> localizationListeners = new CopyOnWriteArrayList<>();
+    /** The scheduled update that is not yet finished, if any. */
+    private CompletableFuture<Void> scheduledUpdate;
     
     private Localizer() {
     }
@@ -35,12 +48,71 @@ public class Localizer {
     public <T extends AbstractButton> T registerNewComponent(T t, String locString ) {
         LocalizedAbstractButton abs = new LocalizedAbstractButton( t, locString );
         registerNewComponent( abs );
+        buttons.add( t );
         return t;
     }
 
+    /**
+     * Returns the registered buttons and menu items in the order of registration.
+     * Buttons are never removed, so new buttons are always appended at the end.
+     * @return an unmodifiable view of the registered buttons
+     */
+    public List<AbstractButton> getRegisteredButtons() {
+        return Collections.unmodifiableList( buttons );
+    }
+
     public void updateLocalization() {
+        if( scheduledUpdate != null )
+            scheduledUpdate.cancel( false );
+        Menu.updateBundle();
         for( Localized l : localized )
             l.localize();
+        for( Runnable listener : localizationListeners )
+            listener.run();
+    }
+
+    /**
+     * Localizes the registered components in chunks within the frame budget
+     * of a scheduler, so that the user interface stays responsive while many
+     * components are updated. The listeners are notified after the last
+     * chunk. A scheduled update that is not yet finished is cancelled. Has to
+     * be called on the event dispatch thread.
+     * @param scheduler the scheduler running the chunks
+     * @return a future completed after the listeners were notified
+     */
+    public CompletableFuture<Void> updateLocalization( FrameScheduler scheduler ) {
+        if( scheduledUpdate != null )
+            scheduledUpdate.cancel( false );
+        Menu.updateBundle();
+        int[] next = new int[1];
+        scheduledUpdate = scheduler.submit( FrameScheduler.Priority.NORMAL, () -> {
+            int end = Math.min( localized.size(), next[0] + LOCALIZATION_CHUNK );
+            for( ; next[0] < end; next[0]++ )
+                localized.get( next[0] ).localize();
+            if( next[0] < localized.size() )
+                return true;
+            for( Runnable listener : localizationListeners )
+                listener.run();
+            return false;
+        } );
+        return scheduledUpdate;
+    }
+
+    /**
+     * Adds a listener that is called after the registered components were
+     * localized.
+     * @param listener the listener
+     */
+    public void addLocalizationListener( Runnable listener ) {
+        localizationListeners.add( listener );
+    }
+
+    /**
+     * Removes a localization listener.
+     * @param listener the listener
+     */
+    public void removeLocalizationListener( Runnable listener ) {
+        localizationListeners.remove( listener );
     }
     
     private class LocalizedAbstractButton implements Localized {
@@ -55,9 +127,7 @@ public class Localizer {
 
         @Override
         public final void localize() {
-            String text = Menu.getLocalization().getString( locString );
-            toLocalize.setText( Menu.extractMnemonic( text ) );
-            toLocalize.setMnemonic( Menu.getMnemonic( text ) );
+            Menu.localize( toLocalize, locString );
         }
     }
 
@@ -0,0 +1,201 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.util.Arrays;
+
+/**
+ * A hash map with primitive {@code long} keys using open addressing with linear probing. Keys are not boxed and no
+ * entry objects are created, the memory grows with the number of entries. {@code null} values are not stored.
+ *
+ * @param <V> the type of the values
+ * @author Jan-Philipp Kappmeier
+ */
+class LongMap<V> {
+
+    /**
+     * Receives the entries of the map.
+     *
+     * @param <V> the type of the values
+     */
+    @FunctionalInterface
+    interface EntryVisitor<V> {
+
+        void visit(long key, V value);
+    }
+
+    /** The minimal number of slots. */
+    private static final int MIN_CAPACITY = 16;
+    /** The keys, the slot of a key is empty if the value is {@code null}. */
+    private long[] keys = new long[MIN_CAPACITY];
+    /** The values. */
+    private Object[] values = new Object[MIN_CAPACITY];
+    /** The number of entries. */
+    private int size;
+
+    /**
+     * Returns the value for a key.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if the key is not contained
+     */
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores a value for a key. Storing {@code null} removes the key.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the previous value, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        if (value == null) {
+            return remove(key);
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        for (; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                V old = (V) values[slot];
+                values[slot] = value;
+                return old;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length / 2) {
+            resize(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Removes a key. The following entries of the probe sequence are moved back, so no tombstones are needed.
+     *
+     * @param key the key
+     * @return the removed value, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        for (; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                V old = (V) values[slot];
+                shiftBack(slot);
+                if (--size < keys.length / 8 && keys.length > MIN_CAPACITY) {
+                    resize(keys.length / 2);
+                }
+                return old;
+            }
+        }
+        return null;
+    }
+
+    private void shiftBack(int free) {
+        int mask = keys.length - 1;
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null) {
+                break;
+            }
+            int home = hash(keys[slot]) & mask;
+            // the entry can move to the free slot if its home is not between the free slot and its slot
+            if (((slot - home) & mask) >= ((slot - free) & mask)) {
+                keys[free] = keys[slot];
+                values[free] = values[slot];
+                free = slot;
+            }
+        }
+        values[free] = null;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    void clear() {
+        if (values.length == MIN_CAPACITY) {
+            Arrays.fill(values, null);
+        } else {
+            keys = new long[MIN_CAPACITY];
+            values = new Object[MIN_CAPACITY];
+        }
+        size = 0;
+    }
+
+    /**
+     * Visits all entries in no particular order. The map must not be changed by the visitor.
+     *
+     * @param visitor the visitor
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(EntryVisitor<? super V> visitor) {
+        for (int slot = 0; slot < keys.length; ++slot) {
+            if (values[slot] != null) {
+                visitor.visit(keys[slot], (V) values[slot]);
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldValues[i] != null) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Mixes the bits of a key, packed coordinates otherwise cluster in the lower bits.
+     *
+     * @param key the key
+     * @return the hash
+     */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,316 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Named marks at positions or spans along a {@link JRuler}, for example the positions of walls and doors. Positions
+ * are given in micrometers, like the offset of the ruler. The marks are kept sorted by their start in primitive
+ * arrays. A binary tree over the arrays stores the largest end of each subtree, so a query only descends into subtrees
+ * that contain a mark in the range and finds the {@code k} marks of a range in {@code O(k log n)}, regardless of the
+ * length of the spans. The tree is rebuilt lazily on the first query after a change.
+ * <p>
+ * Listeners are notified with the range of every change, so a ruler repaints only the affected part. The marks must
+ * only be changed and queried on the event dispatch thread.</p>
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class RulerMarks {
+
+    /**
+     * Receives the range of positions that changed.
+     */
+    @FunctionalInterface
+    public interface MarksListener {
+
+        /**
+         * Called after marks in a range were added or removed.
+         *
+         * @param from the first changed position in micrometers
+         * @param to the last changed position in micrometers
+         */
+        void marksChanged(long from, long to);
+    }
+
+    /**
+     * Receives the marks in a range.
+     */
+    @FunctionalInterface
+    public interface MarkVisitor {
+
+        /**
+         * Called for a mark.
+         *
+         * @param id the id of the mark
+         * @param start the start of the mark in micrometers
+         * @param end the end of the mark in micrometers, equal to the start for a mark at a single position
+         * @param name the name of the mark
+         */
+        void visit(int id, long start, long end, String name);
+    }
+
+    /** The initial capacity of the arrays. */
+    private static final int INITIAL_CAPACITY = 16;
+    /** The starts of the marks, sorted. */
+    private long[] starts = new long[INITIAL_CAPACITY];
+    /** The ends of the marks. */
+    private long[] ends = new long[INITIAL_CAPACITY];
+    /** The ids of the marks. */
+    private int[] ids = new int[INITIAL_CAPACITY];
+    /** The names of the marks. */
+    private String[] names = new String[INITIAL_CAPACITY];
+    /** The number of marks. */
+    private int size;
+    /** The id of the next added mark. */
+    private int nextId;
+    /** The starts of the marks by id, to find a mark by binary search. */
+    private final Map<Integer, Long> startsById = new HashMap<>();
+    /** The largest end of each subtree, the root at 1 and the leaves for the marks from {@link #leaves} on. */
+    private long[] maxEnds = new long[0];
+    /** The number of leaves of the tree, a power of two. */
+    private int leaves;
+    /** Set if the tree is built for the current marks. */
+    private boolean treeValid = true;
+    /** The listeners. */
+    private final List<MarksListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Adds a mark at a single position.
+     *
+     * @param position the position in micrometers
+     * @param name the name of the mark
+     * @return the id of the mark
+     */
+    public int add(long position, String name) {
+        return add(position, position, name);
+    }
+
+    /**
+     * Adds a mark covering a span.
+     *
+     * @param start the start of the span in micrometers
+     * @param end the end of the span in micrometers
+     * @param name the name of the mark
+     * @return the id of the mark
+     * @throws IllegalArgumentException if the end is before the start or the name is {@code null}
+     */
+    public int add(long start, long end, String name) {
+        if (end < start || end - start < 0) {
+            throw new IllegalArgumentException("Invalid span: " + start + " to " + end);
+        }
+        if (name == null) {
+            throw new IllegalArgumentException("Name must not be null.");
+        }
+        if (size == starts.length) {
+            int capacity = 2 * size;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+        int index = upperBound(start);
+        System.arraycopy(starts, index, starts, index + 1, size - index);
+        System.arraycopy(ends, index, ends, index + 1, size - index);
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        System.arraycopy(names, index, names, index + 1, size - index);
+        starts[index] = start;
+        ends[index] = end;
+        ids[index] = nextId;
+        names[index] = name;
+        size++;
+        startsById.put(nextId, start);
+        treeValid = false;
+        fireChanged(start, end);
+        return nextId++;
+    }
+
+    /**
+     * Removes a mark.
+     *
+     * @param id the id of the mark
+     * @return {@code true} if the mark existed
+     */
+    public boolean remove(int id) {
+        Long position = startsById.remove(id);
+        if (position == null) {
+            return false;
+        }
+        for (int index = lowerBound(position); index < size; ++index) {
+            if (ids[index] == id) {
+                long start = starts[index];
+                long end = ends[index];
+                int moved = size - index - 1;
+                System.arraycopy(starts, index + 1, starts, index, moved);
+                System.arraycopy(ends, index + 1, ends, index, moved);
+                System.arraycopy(ids, index + 1, ids, index, moved);
+                System.arraycopy(names, index + 1, names, index, moved);
+                names[--size] = null;
+                treeValid = false;
+                fireChanged(start, end);
+                return true;
+            }
+        }
+        throw new IllegalStateException("Mark " + id + " not found at " + position);
+    }
+
+    /**
+     * Removes all marks.
+     */
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        long from = starts[0];
+        long to = Long.MIN_VALUE;
+        for (int index = 0; index < size; ++index) {
+            to = Math.max(to, ends[index]);
+        }
+        Arrays.fill(names, 0, size, null);
+        size = 0;
+        startsById.clear();
+        treeValid = false;
+        fireChanged(from, to);
+    }
+
+    /**
+     * Returns the number of marks.
+     *
+     * @return the number of marks
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visits the marks intersecting a range in the order of their start.
+     *
+     * @param from the first position of the range in micrometers
+     * @param to the last position of the range in micrometers
+     * @param visitor the visitor
+     */
+    public void forEach(long from, long to, MarkVisitor visitor) {
+        int limit = upperBound(to);
+        if (limit == 0) {
+            return;
+        }
+        if (!treeValid) {
+            buildTree();
+        }
+        visit(1, 0, leaves, limit, from, visitor);
+    }
+
+    /**
+     * Visits the marks of a subtree with an index below the limit that end at or after a position.
+     *
+     * @param node the root of the subtree
+     * @param low the first index in the subtree
+     * @param high the index after the last index in the subtree
+     * @param limit the index after the last mark starting in the range
+     * @param from the first position of the range
+     * @param visitor the visitor
+     */
+    private void visit(int node, int low, int high, int limit, long from, MarkVisitor visitor) {
+        if (low >= limit || maxEnds[node] < from) {
+            return;
+        }
+        if (high - low == 1) {
+            visitor.visit(ids[low], starts[low], ends[low], names[low]);
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        visit(2 * node, low, middle, limit, from, visitor);
+        visit(2 * node + 1, middle, high, limit, from, visitor);
+    }
+
+    /**
+     * Builds the tree of the largest ends for the current marks in linear time.
+     */
+    private void buildTree() {
+        leaves = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        if (maxEnds.length < 2 * leaves) {
+            maxEnds = new long[2 * leaves];
+        }
+        System.arraycopy(ends, 0, maxEnds, leaves, size);
+        Arrays.fill(maxEnds, leaves + size, 2 * leaves, Long.MIN_VALUE);
+        for (int node = leaves - 1; node > 0; --node) {
+            maxEnds[node] = Math.max(maxEnds[2 * node], maxEnds[2 * node + 1]);
+        }
+        treeValid = true;
+    }
+
+    /**
+     * Returns the index of the first mark starting at or after a position.
+     */
+    private int lowerBound(long position) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] < position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the first mark starting after a position.
+     */
+    private int upperBound(long position) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds a listener that is notified about changes.
+     *
+     * @param listener the listener
+     */
+    public void addMarksListener(MarksListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener the listener
+     */
+    public void removeMarksListener(MarksListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireChanged(long from, long to) {
+        for (MarksListener listener : listeners) {
+            listener.marksChanged(from, to);
+        }
+    }
+}
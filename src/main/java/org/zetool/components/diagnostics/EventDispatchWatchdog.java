@@ -0,0 +1,357 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.diagnostics;
+
+import java.awt.EventQueue;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Detects stalls of the event dispatch thread. A monitor thread posts a heartbeat task to the event queue and
+ * measures how long it takes until the task runs. If a heartbeat is late by more than a threshold, the stack of the
+ * event dispatch thread is captured and a {@link StallReport} is created. The latencies of all heartbeats are
+ * collected in a histogram with exponentially growing buckets.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class EventDispatchWatchdog {
+
+    /**
+     * Information about a single stall of the event dispatch thread.
+     */
+    public static final class StallReport {
+
+        /** The number of the heartbeat that was late. */
+        private final long heartbeat;
+        /** The time when the heartbeat was posted in milliseconds since the epoch. */
+        private final long startMillis;
+        /** The stack of the event dispatch thread when the stall was detected. */
+        private final StackTraceElement[] stack;
+        /** The duration of the stall in nanoseconds, updated when the heartbeat finally runs. */
+        private volatile long durationNanos;
+        /** Set when the heartbeat ran. */
+        private volatile boolean finished;
+
+        StallReport(long heartbeat, long startMillis, long durationNanos, StackTraceElement[] stack) {
+            this.heartbeat = heartbeat;
+            this.startMillis = startMillis;
+            this.durationNanos = durationNanos;
+            this.stack = stack;
+        }
+
+        /**
+         * Returns the time when the stall began.
+         *
+         * @return the start of the stall in milliseconds since the epoch
+         */
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        /**
+         * Returns the duration of the stall. If the stall is still going on, this is the duration when it was
+         * detected.
+         *
+         * @return the duration of the stall in milliseconds
+         */
+        public long getDurationMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        }
+
+        /**
+         * Returns whether the event dispatch thread is responsive again.
+         *
+         * @return {@code true} if the stall is over
+         */
+        public boolean isFinished() {
+            return finished;
+        }
+
+        /**
+         * Returns the stack of the event dispatch thread at the time the stall was detected.
+         *
+         * @return the stack of the event dispatch thread
+         */
+        public StackTraceElement[] getStack() {
+            return stack.clone();
+        }
+
+        void finish(long durationNanos) {
+            this.durationNanos = durationNanos;
+            this.finished = true;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append("Event dispatch thread stalled at ").append(new Date(startMillis))
+                    .append(" for ").append(getDurationMillis()).append(" ms")
+                    .append(finished ? "" : " (ongoing)").append('\n');
+            for (StackTraceElement element : stack) {
+                builder.append("\tat ").append(element).append('\n');
+            }
+            return builder.toString();
+        }
+    }
+
+    /** The number of buckets of the latency histogram. */
+    public static final int BUCKETS = 16;
+    /** The time between two heartbeats in nanoseconds. */
+    private final long intervalNanos;
+    /** The latency above which a heartbeat is considered as stall, in nanoseconds. */
+    private final long thresholdNanos;
+    /** The maximal number of kept reports. */
+    private final int maxReports;
+    /** The number of heartbeats per latency bucket. */
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    /** The most recent stall reports. */
+    private final ArrayDeque<StallReport> reports = new ArrayDeque<>();
+    /** The heartbeat task, reused for each heartbeat. */
+    private final Runnable heartbeat = this::beat;
+    /** Set while a heartbeat is posted and has not run yet. */
+    private final AtomicBoolean outstanding = new AtomicBoolean();
+    /** The time the last heartbeat was posted in nanoseconds. */
+    private volatile long postedAt;
+    /** The number of the last posted heartbeat. */
+    private volatile long posted;
+    /** The latency of the last heartbeat in nanoseconds. */
+    private volatile long lastLatency;
+    /** The report of the ongoing stall, {@code null} if there is none. */
+    private final AtomicReference<StallReport> currentStall = new AtomicReference<>();
+    /** The number of detected stalls. */
+    private volatile long stallCount;
+    /** The event dispatch thread, known after the first heartbeat. */
+    private volatile Thread dispatchThread;
+    /** The monitor thread, {@code null} if the watchdog is not running. */
+    private Thread monitor;
+
+    /**
+     * Creates a new watchdog sending a heartbeat every 100 milliseconds and detecting stalls of at least 500
+     * milliseconds.
+     */
+    public EventDispatchWatchdog() {
+        this(100, 500, 32);
+    }
+
+    /**
+     * Creates a new watchdog.
+     *
+     * @param intervalMillis the time between two heartbeats in milliseconds
+     * @param thresholdMillis the latency above which a heartbeat is considered as stall
+     * @param maxReports the maximal number of kept stall reports
+     * @throws IllegalArgumentException if one of the values is not positive
+     */
+    public EventDispatchWatchdog(long intervalMillis, long thresholdMillis, int maxReports) {
+        if (intervalMillis <= 0 || thresholdMillis <= 0 || maxReports <= 0) {
+            throw new IllegalArgumentException("Interval, threshold and number of reports must be positive.");
+        }
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.maxReports = maxReports;
+    }
+
+    /**
+     * Starts the monitor thread. Has no effect if the watchdog is already running.
+     */
+    public synchronized void start() {
+        if (monitor != null) {
+            return;
+        }
+        monitor = new Thread(this::monitor, "EDT watchdog");
+        monitor.setDaemon(true);
+        monitor.start();
+    }
+
+    /**
+     * Stops the monitor thread.
+     */
+    public synchronized void stop() {
+        if (monitor != null) {
+            monitor.interrupt();
+            monitor = null;
+        }
+    }
+
+    /**
+     * Returns whether the monitor thread is running.
+     *
+     * @return {@code true} if the watchdog is running
+     */
+    public synchronized boolean isRunning() {
+        return monitor != null;
+    }
+
+    private void monitor() {
+        while (!Thread.currentThread().isInterrupted()) {
+            check(System.nanoTime());
+            try {
+                TimeUnit.NANOSECONDS.sleep(intervalNanos);
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Posts a new heartbeat if the previous one has run, otherwise checks whether the outstanding heartbeat is late.
+     *
+     * @param now the current time in nanoseconds
+     */
+    void check(long now) {
+        if (outstanding.compareAndSet(false, true)) {
+            postedAt = now;
+            posted++;
+            EventQueue.invokeLater(heartbeat);
+            return;
+        }
+        long late = now - postedAt;
+        if (late <= thresholdNanos || currentStall.get() != null) {
+            return;
+        }
+        Thread thread = dispatchThread;
+        StackTraceElement[] stack = thread == null ? new StackTraceElement[0] : thread.getStackTrace();
+        long startMillis = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(late);
+        StallReport report = new StallReport(posted, startMillis, late, stack);
+        if (!currentStall.compareAndSet(null, report)) {
+            return;
+        }
+        stallCount++;
+        synchronized (reports) {
+            if (reports.size() == maxReports) {
+                reports.removeFirst();
+            }
+            reports.addLast(report);
+        }
+        // the heartbeat may have run before the report was opened, then it did not see the report
+        if (!outstanding.get() && currentStall.compareAndSet(report, null)) {
+            report.finish(lastLatency);
+        }
+    }
+
+    /**
+     * The heartbeat, executed on the event dispatch thread. The heartbeat is marked as run before the ongoing stall is
+     * closed, so that either the heartbeat or the monitor closes a report that is opened concurrently.
+     */
+    private void beat() {
+        dispatchThread = Thread.currentThread();
+        long number = posted;
+        long latency = System.nanoTime() - postedAt;
+        lastLatency = latency;
+        histogram.incrementAndGet(bucket(latency));
+        outstanding.set(false);
+        StallReport stall = currentStall.get();
+        if (stall != null && stall.heartbeat == number && currentStall.compareAndSet(stall, null)) {
+            stall.finish(latency);
+        }
+    }
+
+    /**
+     * Returns the histogram bucket of a latency. Bucket 0 contains latencies below 1 ms, bucket {@code i} contains
+     * latencies from {@code 2^(i-1)} to below {@code 2^i} ms and the last bucket contains all larger latencies.
+     *
+     * @param latency the latency in nanoseconds
+     * @return the bucket of the latency
+     */
+    static int bucket(long latency) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(latency);
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis));
+    }
+
+    /**
+     * Returns the upper bound of a histogram bucket.
+     *
+     * @param bucket the bucket
+     * @return the exclusive upper bound of the bucket in milliseconds, {@link Long#MAX_VALUE} for the last bucket
+     */
+    public static long getBucketUpperBound(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /**
+     * Returns the current latency of the event dispatch thread. If a heartbeat is outstanding, this is the time since
+     * it was posted, if it is larger than the latency of the previous heartbeat.
+     *
+     * @return the current latency in milliseconds
+     */
+    public long getCurrentLagMillis() {
+        long latency = lastLatency;
+        if (outstanding.get()) {
+            latency = Math.max(latency, System.nanoTime() - postedAt);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(latency);
+    }
+
+    /**
+     * Returns the number of stalls detected since the watchdog was created.
+     *
+     * @return the number of stalls
+     */
+    public long getStallCount() {
+        return stallCount;
+    }
+
+    /**
+     * Returns the number of heartbeats in each bucket of the latency histogram.
+     *
+     * @return the number of heartbeats per bucket
+     * @see #getBucketUpperBound(int)
+     */
+    public long[] getHistogram() {
+        long[] result = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; ++i) {
+            result[i] = histogram.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the most recent stall reports, the oldest first.
+     *
+     * @return the most recent stall reports
+     */
+    public List<StallReport> getStallReports() {
+        synchronized (reports) {
+            return new ArrayList<>(reports);
+        }
+    }
+
+    /**
+     * Writes the latency histogram and the most recent stall reports in a human readable form.
+     *
+     * @param out the target
+     * @throws IOException if the target cannot be written
+     */
+    public void dumpStallReports(Appendable out) throws IOException {
+        long[] counts = getHistogram();
+        out.append("Event dispatch thread latency histogram:\n");
+        for (int i = 0; i < BUCKETS; ++i) {
+            if (counts[i] > 0) {
+                out.append(i == BUCKETS - 1 ? ">= " + (1L << (i - 1)) : "< " + getBucketUpperBound(i))
+                        .append(" ms: ").append(Long.toString(counts[i])).append('\n');
+            }
+        }
+        for (StallReport report : getStallReports()) {
+            out.append(report.toString());
+        }
+    }
+}
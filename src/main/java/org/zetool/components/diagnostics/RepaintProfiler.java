@@ -0,0 +1,340 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.diagnostics;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.swing.JComponent;
+import javax.swing.RepaintManager;
+
+/**
+ * Records how often components are repainted, painted and revalidated. The profiler is a {@link RepaintManager} that
+ * counts the requested repaints and revalidations of all components. The components of this library additionally
+ * report each time they are painted, with the painted area and the time it took. Other components are only counted
+ * when they request repaints or revalidations.
+ * <p>
+ * The overdraw ratio of a component is the painted area divided by the area of its own repaint requests. A ratio
+ * above 1 means that the component was painted more than requested, usually because a parent or an overlapping
+ * component was repainted. A transparent component is painted whenever the area beneath it is painted.</p>
+ * <p>
+ * The profiler is opt-in, it is only active after {@link #install()}. Replacing the repaint manager influences the
+ * painting slightly, so the results are meant to be compared among each other. The statistics can be read as report
+ * or over JMX after {@link #register()}.</p>
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class RepaintProfiler extends RepaintManager implements RepaintProfilerMXBean {
+
+    /**
+     * The recorded statistics of a single component.
+     */
+    public static final class ComponentStatistics {
+
+        /** The class and name of the component. */
+        private final String description;
+        /** Whether the component was opaque when it was last seen. */
+        private boolean opaque;
+        /** The number of repaint requests. */
+        private long repaintRequests;
+        /** The total area of all repaint requests in pixels. */
+        private long requestedArea;
+        /** The number of paints. */
+        private long paints;
+        /** The total painted area in pixels. */
+        private long paintedArea;
+        /** The total time of all paints in nanoseconds. */
+        private long paintNanos;
+        /** The number of revalidations. */
+        private long revalidations;
+
+        private ComponentStatistics(Component component) {
+            String name = component.getName();
+            description = component.getClass().getName() + (name == null ? "" : " '" + name + "'");
+        }
+
+        private ComponentStatistics(ComponentStatistics statistics) {
+            description = statistics.description;
+            opaque = statistics.opaque;
+            repaintRequests = statistics.repaintRequests;
+            requestedArea = statistics.requestedArea;
+            paints = statistics.paints;
+            paintedArea = statistics.paintedArea;
+            paintNanos = statistics.paintNanos;
+            revalidations = statistics.revalidations;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public boolean isOpaque() {
+            return opaque;
+        }
+
+        public long getRepaintRequests() {
+            return repaintRequests;
+        }
+
+        public long getRequestedArea() {
+            return requestedArea;
+        }
+
+        public long getPaints() {
+            return paints;
+        }
+
+        public long getPaintedArea() {
+            return paintedArea;
+        }
+
+        public long getPaintNanos() {
+            return paintNanos;
+        }
+
+        public long getRevalidations() {
+            return revalidations;
+        }
+
+        /**
+         * Returns the painted area divided by the requested area.
+         *
+         * @return the overdraw ratio, infinite if the component was painted without requesting it, 0 if it was not
+         * painted
+         */
+        public double getOverdrawRatio() {
+            if (paintedArea == 0) {
+                return 0;
+            }
+            return requestedArea == 0 ? Double.POSITIVE_INFINITY : (double) paintedArea / requestedArea;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s%s: %d repaints (%d px), %d paints (%d px, %.1f ms), overdraw %.2f,"
+                    + " %d revalidations", description, opaque ? "" : " (transparent)", repaintRequests,
+                    requestedArea, paints, paintedArea, paintNanos / 1e6, getOverdrawRatio(), revalidations);
+        }
+    }
+
+    /** The name under which the profiler is registered at the platform MBean server. */
+    public static final String OBJECT_NAME = "org.zetool.components:type=RepaintProfiler";
+    /** The installed profiler, {@code null} if no profiler is installed. */
+    private static volatile RepaintProfiler active;
+    /** The statistics of the components. Components that are no longer used are removed. */
+    private final Map<Component, ComponentStatistics> statistics = new WeakHashMap<>();
+    /** The repaint manager that was replaced by the profiler. */
+    private RepaintManager previous;
+    /** The number of paint cycles. */
+    private volatile long paintCycles;
+    /** The total time of the paint cycles in nanoseconds. */
+    private volatile long paintCycleNanos;
+
+    /**
+     * Replaces the current repaint manager by the profiler and activates the paint hooks.
+     *
+     * @throws IllegalStateException if a profiler is already installed
+     */
+    public synchronized void install() {
+        synchronized (RepaintProfiler.class) {
+            if (active != null) {
+                throw new IllegalStateException("A profiler is already installed.");
+            }
+            previous = RepaintManager.currentManager((Component) null);
+            RepaintManager.setCurrentManager(this);
+            active = this;
+        }
+    }
+
+    /**
+     * Restores the repaint manager that was replaced by the profiler. The statistics are kept.
+     */
+    public synchronized void uninstall() {
+        synchronized (RepaintProfiler.class) {
+            if (active == this) {
+                RepaintManager.setCurrentManager(previous);
+                active = null;
+                previous = null;
+            }
+        }
+    }
+
+    /**
+     * Registers the profiler at the platform MBean server under {@link #OBJECT_NAME}.
+     *
+     * @throws IllegalStateException if the registration fails, for example if another profiler is registered
+     */
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException ex) {
+            throw new IllegalStateException("Registration failed.", ex);
+        }
+    }
+
+    /**
+     * Removes the profiler from the platform MBean server.
+     *
+     * @throws IllegalStateException if the profiler is not registered
+     */
+    public void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException ex) {
+            throw new IllegalStateException("Unregistration failed.", ex);
+        }
+    }
+
+    /**
+     * Called by components before they are painted. Costs only a volatile read if no profiler is installed.
+     *
+     * @return the start time, 0 if no profiler is installed
+     */
+    public static long paintStarted() {
+        return active == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Called by components after they were painted.
+     *
+     * @param component the painted component
+     * @param g the graphics context, with the same clip as when the painting started
+     * @param start the value returned by {@link #paintStarted()}
+     */
+    public static void paintFinished(JComponent component, Graphics g, long start) {
+        RepaintProfiler profiler = active;
+        if (profiler != null && start != 0) {
+            long duration = System.nanoTime() - start;
+            Rectangle clip = g.getClipBounds();
+            long area = clip == null ? (long) component.getWidth() * component.getHeight()
+                    : (long) Math.max(0, clip.width) * Math.max(0, clip.height);
+            synchronized (profiler) {
+                ComponentStatistics entry = profiler.getEntry(component);
+                entry.paints++;
+                entry.paintedArea += area;
+                entry.paintNanos += duration;
+            }
+        }
+    }
+
+    @Override
+    public void addDirtyRegion(JComponent component, int x, int y, int w, int h) {
+        Rectangle requested = new Rectangle(x, y, w, h).intersection(
+                new Rectangle(0, 0, component.getWidth(), component.getHeight()));
+        synchronized (this) {
+            ComponentStatistics entry = getEntry(component);
+            entry.repaintRequests++;
+            if (!requested.isEmpty()) {
+                entry.requestedArea += (long) requested.width * requested.height;
+            }
+        }
+        super.addDirtyRegion(component, x, y, w, h);
+    }
+
+    @Override
+    public void addInvalidComponent(JComponent invalidComponent) {
+        synchronized (this) {
+            getEntry(invalidComponent).revalidations++;
+        }
+        super.addInvalidComponent(invalidComponent);
+    }
+
+    @Override
+    public void paintDirtyRegions() {
+        long start = System.nanoTime();
+        super.paintDirtyRegions();
+        paintCycleNanos += System.nanoTime() - start;
+        paintCycles++;
+    }
+
+    private ComponentStatistics getEntry(JComponent component) {
+        ComponentStatistics entry = statistics.computeIfAbsent(component, ComponentStatistics::new);
+        entry.opaque = component.isOpaque();
+        return entry;
+    }
+
+    /**
+     * Returns a copy of the statistics of a component.
+     *
+     * @param component the component
+     * @return the statistics, {@code null} if nothing was recorded for the component
+     */
+    public synchronized ComponentStatistics getStatistics(Component component) {
+        ComponentStatistics entry = statistics.get(component);
+        return entry == null ? null : new ComponentStatistics(entry);
+    }
+
+    /**
+     * Returns copies of the statistics of all components, sorted by decreasing paint time and painted area.
+     *
+     * @return the statistics
+     */
+    public synchronized List<ComponentStatistics> getStatistics() {
+        List<ComponentStatistics> result = new ArrayList<>(statistics.size());
+        for (ComponentStatistics entry : statistics.values()) {
+            result.add(new ComponentStatistics(entry));
+        }
+        result.sort(Comparator.comparingLong(ComponentStatistics::getPaintNanos)
+                .thenComparingLong(ComponentStatistics::getPaintedArea).reversed());
+        return result;
+    }
+
+    @Override
+    public long getPaintCycleCount() {
+        return paintCycles;
+    }
+
+    @Override
+    public long getPaintCycleNanos() {
+        return paintCycleNanos;
+    }
+
+    @Override
+    public synchronized int getComponentCount() {
+        return statistics.size();
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%d paint cycles, %.1f ms%n", paintCycles, paintCycleNanos / 1e6));
+        for (ComponentStatistics entry : getStatistics()) {
+            builder.append(entry).append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public synchronized void reset() {
+        statistics.clear();
+        paintCycles = 0;
+        paintCycleNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return getReport();
+    }
+}
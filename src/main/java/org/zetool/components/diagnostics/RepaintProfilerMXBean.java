@@ -0,0 +1,57 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.diagnostics;
+
+/**
+ * Management interface of the {@link RepaintProfiler}.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public interface RepaintProfilerMXBean {
+
+    /**
+     * Returns the number of times the dirty regions were painted.
+     *
+     * @return the number of paint cycles
+     */
+    long getPaintCycleCount();
+
+    /**
+     * Returns the total time of all paint cycles.
+     *
+     * @return the time in nanoseconds
+     */
+    long getPaintCycleNanos();
+
+    /**
+     * Returns the number of components with recorded repaints, paints or revalidations.
+     *
+     * @return the number of components
+     */
+    int getComponentCount();
+
+    /**
+     * Returns the statistics of all components as text, one line per component.
+     *
+     * @return the report
+     */
+    String getReport();
+
+    /**
+     * Discards all recorded statistics.
+     */
+    void reset();
+}
@@ -0,0 +1,218 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.framework;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.swing.SwingUtilities;
+
+/**
+ * Binds a model to a {@link Displayable} view, preparing the state of the view in the background. Each model passed
+ * to {@link #setModel(java.lang.Object)} is converted to a view state by a preparation function on an executor, the
+ * result is passed to the view on the event dispatch thread. Only the latest model wins: the preparation for a model
+ * that has been replaced by a newer one is skipped if it has not started yet, and the result is dropped if it is
+ * finished after the model has been replaced. Thus the view never shows an outdated state after a newer one. A long
+ * preparation can receive a cancellation signal that becomes {@code true} as soon as its model is replaced, and
+ * should then return early with any result, which is dropped.
+ * <p>
+ * The binding is itself {@link Displayable}, so it can be used wherever the view has been used. The models can be set
+ * from any thread. The number of skipped, dropped and failed preparations is counted. Exceptions thrown by a
+ * preparation are passed to the failure handler, if one is set, and are thrown to the executor otherwise.</p>
+ *
+ * @param <M> the type of the model
+ * @param <V> the type of the view state
+ * @author Jan-Philipp Kappmeier
+ */
+public class AsyncBinding<M, V> implements Displayable<M> {
+
+    /** The view displaying the prepared states. */
+    private final Displayable<? super V> view;
+    /** Converts a model into the state of the view, the second argument signals that the model was replaced. */
+    private final BiFunction<? super M, BooleanSupplier, ? extends V> preparation;
+    /** The executor running the preparations. */
+    private final Executor executor;
+    /** The generation of the latest model, increased for each model. */
+    private final AtomicLong generation = new AtomicLong();
+    /** The number of preparations that were skipped because a newer model was set before they started. */
+    private final AtomicLong cancelled = new AtomicLong();
+    /** The number of prepared states that were dropped because a newer model was set in the meantime. */
+    private final AtomicLong stale = new AtomicLong();
+    /** The number of states passed to the view. */
+    private final AtomicLong applied = new AtomicLong();
+    /** The number of preparations that threw an exception. */
+    private final AtomicLong failed = new AtomicLong();
+    /** Receives the exceptions thrown by preparations, or {@code null} to throw them to the executor. */
+    private volatile Consumer<? super RuntimeException> failureHandler;
+
+    /**
+     * Creates a new binding preparing the view states in the common fork join pool.
+     *
+     * @param view the view
+     * @param preparation converts a model into the state of the view, called in the background
+     */
+    public AsyncBinding(Displayable<? super V> view, Function<? super M, ? extends V> preparation) {
+        this(view, preparation, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new binding preparing the view states with an executor.
+     *
+     * @param view the view
+     * @param preparation converts a model into the state of the view, called by the executor
+     * @param executor the executor running the preparations
+     */
+    public AsyncBinding(Displayable<? super V> view, Function<? super M, ? extends V> preparation,
+            Executor executor) {
+        this(view, preparation == null ? null : (model, cancelled) -> preparation.apply(model), executor);
+    }
+
+    /**
+     * Creates a new binding preparing the view states in the common fork join pool. The preparation receives a signal
+     * that becomes {@code true} when its model has been replaced.
+     *
+     * @param view the view
+     * @param preparation converts a model into the state of the view, called in the background
+     */
+    public AsyncBinding(Displayable<? super V> view,
+            BiFunction<? super M, BooleanSupplier, ? extends V> preparation) {
+        this(view, preparation, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new binding preparing the view states with an executor. The preparation receives a signal that
+     * becomes {@code true} when its model has been replaced.
+     *
+     * @param view the view
+     * @param preparation converts a model into the state of the view, called by the executor
+     * @param executor the executor running the preparations
+     */
+    public AsyncBinding(Displayable<? super V> view,
+            BiFunction<? super M, BooleanSupplier, ? extends V> preparation, Executor executor) {
+        if (view == null || preparation == null || executor == null) {
+            throw new IllegalArgumentException("View, preparation and executor must not be null.");
+        }
+        this.view = view;
+        this.preparation = preparation;
+        this.executor = executor;
+    }
+
+    /**
+     * Sets a new model. The view state is prepared by the executor and displayed later, preparations for previously
+     * set models are abandoned. Can be called from any thread.
+     *
+     * @param model the new model
+     */
+    @Override
+    public void setModel(M model) {
+        long current = generation.incrementAndGet();
+        executor.execute(() -> prepare(model, current));
+    }
+
+    private void prepare(M model, long modelGeneration) {
+        if (!isCurrent(modelGeneration)) {
+            cancelled.incrementAndGet();
+            return;
+        }
+        V state;
+        try {
+            state = preparation.apply(model, () -> !isCurrent(modelGeneration));
+        } catch (RuntimeException ex) {
+            failed.incrementAndGet();
+            Consumer<? super RuntimeException> handler = failureHandler;
+            if (handler == null) {
+                throw ex;
+            }
+            handler.accept(ex);
+            return;
+        }
+        if (!isCurrent(modelGeneration)) {
+            stale.incrementAndGet();
+            return;
+        }
+        SwingUtilities.invokeLater(() -> apply(state, modelGeneration));
+    }
+
+    private void apply(V state, long modelGeneration) {
+        if (!isCurrent(modelGeneration)) {
+            stale.incrementAndGet();
+            return;
+        }
+        applied.incrementAndGet();
+        view.setModel(state);
+    }
+
+    /**
+     * Checks whether a model is still the latest model.
+     *
+     * @param modelGeneration the generation of the model
+     * @return {@code true} if no newer model has been set
+     */
+    private boolean isCurrent(long modelGeneration) {
+        return generation.get() == modelGeneration;
+    }
+
+    /**
+     * Sets the handler receiving the exceptions thrown by preparations. The handler is called by the executor. Without
+     * a handler the exceptions are thrown to the executor.
+     *
+     * @param failureHandler the handler, or {@code null} to throw the exceptions to the executor
+     */
+    public void setFailureHandler(Consumer<? super RuntimeException> failureHandler) {
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Returns the number of preparations that threw an exception.
+     *
+     * @return the number of failed preparations
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Returns the number of preparations that were skipped, because a newer model was set before they started.
+     *
+     * @return the number of skipped preparations
+     */
+    public long getCancelledCount() {
+        return cancelled.get();
+    }
+
+    /**
+     * Returns the number of prepared view states that were dropped, because a newer model was set before they could
+     * be displayed. This includes the preparations that returned early after the cancellation signal.
+     *
+     * @return the number of dropped view states
+     */
+    public long getStaleCount() {
+        return stale.get();
+    }
+
+    /**
+     * Returns the number of view states passed to the view.
+     *
+     * @return the number of displayed view states
+     */
+    public long getAppliedCount() {
+        return applied.get();
+    }
+}
@@ -16,23 +16,18 @@
 
 package org.zetool.components.framework;
 
-import org.zetool.common.localization.Localization;
 import org.zetool.components.Localizer;
 import java.awt.event.ActionListener;
 import javax.swing.AbstractButton;
 import javax.swing.Icon;
 import javax.swing.JButton;
 import javax.swing.JToggleButton;
-import org.zetool.components.ComponentLocalization;
 
 /**
  * Automatic creation of {@link JButton}s.
  * @author Jan-Philipp Kappmeier
  */
 public class Button {
-	/** The localization object used to generate localized menu titles. */
-	private static final Localization loc = ComponentLocalization.LOC;
-
 	/** Private constructor avoids instantiation. */
 	private Button() {}
 	
@@ -52,7 +47,7 @@ public class Button {
 	}
 	
 	public static JButton newButton( String localizationString, ActionListener al, String commandString, String toolTip ) {
-		JButton b = Menu.processMnemonic( Localizer.instance().registerNewComponent( new JButton(), localizationString ), loc.getString( localizationString ) );
+		JButton b = Menu.localize( Localizer.instance().registerNewComponent( new JButton(), localizationString ), localizationString );
 
 		if( toolTip != null )
 			b.setToolTipText( toolTip );
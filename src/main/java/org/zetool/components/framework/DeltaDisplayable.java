@@ -0,0 +1,60 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.framework;
+
+/**
+ * A {@link Displayable} that can update its display for changed parts of the model instead of displaying the complete
+ * model again. The parts of the model are addressed by indices, the ranges contain the index {@code from} and exclude
+ * the index {@code to}. Each method receives the model after the change.
+ * <p>
+ * Changes are usually described by a {@link ModelDelta}, which passes them to a view using
+ * {@link ModelDelta#dispatch(java.lang.Object, Displayable)}. Views that only implement {@link Displayable} receive the
+ * complete model instead.</p>
+ *
+ * @param <M> the type of the model
+ * @author Jan-Philipp Kappmeier
+ */
+public interface DeltaDisplayable<M> extends Displayable<M> {
+
+    /**
+     * Called if parts have been inserted into the model. The parts that were at the indices {@code from} and above
+     * have been moved by {@code to - from}.
+     *
+     * @param model the model containing the inserted parts
+     * @param from the index of the first inserted part
+     * @param to the index after the last inserted part
+     */
+    void partsInserted(M model, int from, int to);
+
+    /**
+     * Called if parts of the model have been changed.
+     *
+     * @param model the model containing the changed parts
+     * @param from the index of the first changed part
+     * @param to the index after the last changed part
+     */
+    void partsUpdated(M model, int from, int to);
+
+    /**
+     * Called if parts have been removed from the model. The parts that were at the indices {@code to} and above have
+     * been moved by {@code from - to}.
+     *
+     * @param model the model without the removed parts
+     * @param from the index of the first removed part
+     * @param to the index after the last removed part
+     */
+    void partsRemoved(M model, int from, int to);
+}
@@ -0,0 +1,400 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.framework;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.Timer;
+
+/**
+ * Runs bulk work on the event dispatch thread within a time budget per frame. Work is submitted as prioritized tasks
+ * that can be split into chunks. In each frame chunks are run until the budget is used up, then the remaining work
+ * continues in the next frame. Between two chunks the scheduler yields if input events are waiting, the remaining work
+ * continues directly after the input is handled. Tasks of higher priority are run first, tasks of the same priority
+ * take turns chunk by chunk.
+ * <p>
+ * A chunk is never interrupted, so the last chunk of a frame may end after the budget. This is expected and not
+ * counted, only a single chunk that takes longer than the whole budget is counted as an overrun.
+ * Tasks can be submitted from any thread, the statistics can be read from any thread.</p>
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class FrameScheduler {
+
+    /**
+     * The priorities of the tasks.
+     */
+    public enum Priority {
+        /** For work the user is waiting for. */
+        HIGH,
+        /** For updates of the displayed state. */
+        NORMAL,
+        /** For background refreshes like log output. */
+        LOW
+    }
+
+    /**
+     * A task that is run in chunks.
+     */
+    @FunctionalInterface
+    public interface ChunkedTask {
+
+        /**
+         * Runs the next chunk of the task. A chunk should take considerably less time than the budget of a frame.
+         *
+         * @return {@code true} if work remains, {@code false} if the task is finished
+         */
+        boolean runChunk();
+    }
+
+    /** The default budget per frame in nanoseconds. */
+    public static final long DEFAULT_BUDGET_NANOS = 8_000_000;
+    /** The delay between two frames in milliseconds. */
+    private static final int FRAME_DELAY = 16;
+    /** The identifiers of the input events the scheduler yields to. */
+    private static final int[] INPUT_EVENTS = {KeyEvent.KEY_PRESSED, KeyEvent.KEY_RELEASED, KeyEvent.KEY_TYPED,
+        MouseEvent.MOUSE_PRESSED, MouseEvent.MOUSE_RELEASED, MouseEvent.MOUSE_DRAGGED, MouseEvent.MOUSE_MOVED,
+        MouseEvent.MOUSE_WHEEL};
+    /** The shared scheduler with the default budget. */
+    private static final FrameScheduler DEFAULT = new FrameScheduler();
+
+    /** The budget per frame in nanoseconds. */
+    private final long budgetNanos;
+    /** The queued tasks by priority. Guarded by itself. */
+    private final List<ArrayDeque<Entry>> queues;
+    /** The number of queued tasks. Guarded by {@link #queues}. */
+    private int depth;
+    /** The maximal number of queued tasks. */
+    private volatile int maxDepth;
+    /** Set if a frame is scheduled. */
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+    /** The timer starting the next frame after the budget of a frame is used up. */
+    private final Timer frameTimer = new Timer(FRAME_DELAY, e -> runFrame());
+    /** The number of frames that ran chunks. */
+    private volatile long frames;
+    /** The number of chunks run. */
+    private volatile long chunks;
+    /** The number of chunks that took longer than the budget. */
+    private volatile long overruns;
+    /** The largest time by which a chunk exceeded the budget, in nanoseconds. */
+    private volatile long maxOverrunNanos;
+    /** The number of frames ended early because input events were waiting. */
+    private volatile long yields;
+
+    /**
+     * Creates a new scheduler with the default budget of 8 milliseconds per frame.
+     */
+    public FrameScheduler() {
+        this(DEFAULT_BUDGET_NANOS);
+    }
+
+    /**
+     * Creates a new scheduler with the given budget per frame.
+     *
+     * @param budgetNanos the time available in each frame in nanoseconds
+     * @throws IllegalArgumentException if the budget is not positive
+     */
+    public FrameScheduler(long budgetNanos) {
+        if (budgetNanos <= 0) {
+            throw new IllegalArgumentException("Budget must be positive: " + budgetNanos);
+        }
+        this.budgetNanos = budgetNanos;
+        queues = new ArrayList<>(Priority.values().length);
+        for (int i = 0; i < Priority.values().length; ++i) {
+            queues.add(new ArrayDeque<>());
+        }
+        frameTimer.setRepeats(false);
+    }
+
+    /**
+     * Returns the scheduler shared by the components, using the default budget.
+     *
+     * @return the shared scheduler
+     */
+    public static FrameScheduler getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Submits a task that is run in chunks. Can be called from any thread. The task is dropped without running
+     * further chunks if the returned future is cancelled. If a chunk fails, the future completes with the exception.
+     *
+     * @param priority the priority of the task
+     * @param task the task
+     * @return a future completed after the last chunk of the task
+     */
+    public CompletableFuture<Void> submit(Priority priority, ChunkedTask task) {
+        if (priority == null || task == null) {
+            throw new IllegalArgumentException("Priority and task must not be null.");
+        }
+        Entry entry = new Entry(task, priority.ordinal());
+        synchronized (queues) {
+            queues.get(entry.priority).addLast(entry);
+            maxDepth = Math.max(maxDepth, ++depth);
+        }
+        if (frameScheduled.compareAndSet(false, true)) {
+            EventQueue.invokeLater(this::runFrame);
+        }
+        return entry.future;
+    }
+
+    /**
+     * Submits a task that is run as a single chunk. Can be called from any thread.
+     *
+     * @param priority the priority of the task
+     * @param task the task
+     * @return a future completed after the task has run
+     */
+    public CompletableFuture<Void> execute(Priority priority, Runnable task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task must not be null.");
+        }
+        return submit(priority, () -> {
+            task.run();
+            return false;
+        });
+    }
+
+    /**
+     * Runs chunks of the queued tasks until the budget is used up, no task is left or input events are waiting. At
+     * least one chunk is run if a task is queued. If work remains, the next frame is scheduled. Has to be called on the
+     * event dispatch thread.
+     */
+    public void runFrame() {
+        frameTimer.stop();
+        frameScheduled.set(true);
+        long start = System.nanoTime();
+        boolean ran = false;
+        boolean yielded = false;
+        Entry entry;
+        while ((entry = poll()) != null) {
+            if (!entry.future.isDone()) {
+                ran = true;
+                runChunk(entry);
+            }
+            if (!entry.future.isDone()) {
+                requeue(entry);
+            }
+            if (System.nanoTime() - start >= budgetNanos) {
+                break;
+            }
+            if (isInputPending()) {
+                yielded = true;
+                break;
+            }
+        }
+        if (ran) {
+            frames++;
+            if (yielded) {
+                yields++;
+            }
+        }
+        if (getQueueDepth() == 0) {
+            frameScheduled.set(false);
+            // a task submitted after the last poll did not schedule a frame
+            if (getQueueDepth() > 0 && frameScheduled.compareAndSet(false, true)) {
+                EventQueue.invokeLater(this::runFrame);
+            }
+        } else if (yielded) {
+            EventQueue.invokeLater(this::runFrame);
+        } else {
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            frameTimer.setInitialDelay((int) Math.max(1, FRAME_DELAY - elapsedMillis));
+            frameTimer.start();
+        }
+    }
+
+    private void runChunk(Entry entry) {
+        chunks++;
+        long start = System.nanoTime();
+        boolean remaining = false;
+        RuntimeException failure = null;
+        try {
+            remaining = entry.task.runChunk();
+        } catch (RuntimeException ex) {
+            failure = ex;
+        }
+        long overrun = System.nanoTime() - start - budgetNanos;
+        if (overrun > 0) {
+            overruns++;
+            maxOverrunNanos = Math.max(maxOverrunNanos, overrun);
+        }
+        if (failure != null) {
+            entry.future.completeExceptionally(failure);
+        } else if (!remaining) {
+            entry.future.complete(null);
+        }
+    }
+
+    /**
+     * Removes the first task of the highest priority from the queue.
+     *
+     * @return the task, or {@code null} if the queue is empty
+     */
+    private Entry poll() {
+        synchronized (queues) {
+            for (ArrayDeque<Entry> queue : queues) {
+                Entry entry = queue.pollFirst();
+                if (entry != null) {
+                    depth--;
+                    return entry;
+                }
+            }
+            return null;
+        }
+    }
+
+    private void requeue(Entry entry) {
+        synchronized (queues) {
+            queues.get(entry.priority).addLast(entry);
+            depth++;
+        }
+    }
+
+    /**
+     * Checks whether input events are waiting in the system event queue.
+     *
+     * @return {@code true} if a key or mouse event is waiting
+     */
+    private static boolean isInputPending() {
+        EventQueue queue = Toolkit.getDefaultToolkit().getSystemEventQueue();
+        for (int id : INPUT_EVENTS) {
+            AWTEvent event = queue.peekEvent(id);
+            if (event != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the budget per frame.
+     *
+     * @return the budget in nanoseconds
+     */
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * Returns the number of queued tasks, including tasks that are partially run.
+     *
+     * @return the number of queued tasks
+     */
+    public int getQueueDepth() {
+        synchronized (queues) {
+            return depth;
+        }
+    }
+
+    /**
+     * Returns the number of queued tasks of a priority.
+     *
+     * @param priority the priority
+     * @return the number of queued tasks of the priority
+     */
+    public int getQueueDepth(Priority priority) {
+        synchronized (queues) {
+            return queues.get(priority.ordinal()).size();
+        }
+    }
+
+    /**
+     * Returns the largest number of tasks that were queued at the same time.
+     *
+     * @return the maximal queue depth
+     */
+    public int getMaxQueueDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the number of frames in which chunks were run.
+     *
+     * @return the number of frames
+     */
+    public long getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * Returns the number of chunks run.
+     *
+     * @return the number of chunks
+     */
+    public long getChunkCount() {
+        return chunks;
+    }
+
+    /**
+     * Returns the number of chunks that took longer than the whole budget of a frame.
+     *
+     * @return the number of budget overruns
+     */
+    public long getOverrunCount() {
+        return overruns;
+    }
+
+    /**
+     * Returns the largest time by which a single chunk exceeded the budget.
+     *
+     * @return the largest overrun in nanoseconds, 0 if the budget was never exceeded
+     */
+    public long getMaxOverrunNanos() {
+        return maxOverrunNanos;
+    }
+
+    /**
+     * Returns the number of frames that were ended before the budget was used up, because input events were waiting.
+     *
+     * @return the number of yields to input events
+     */
+    public long getYieldCount() {
+        return yields;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameScheduler: " + getQueueDepth() + " queued, " + frames + " frames, " + chunks + " chunks, "
+                + overruns + " overruns (max " + maxOverrunNanos / 1000 + " us), " + yields + " yields";
+    }
+
+    /**
+     * A queued task with its future.
+     */
+    private static final class Entry {
+
+        /** The task. */
+        private final ChunkedTask task;
+        /** The index of the priority of the task. */
+        private final int priority;
+        /** Completed after the last chunk of the task. */
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Entry(ChunkedTask task, int priority) {
+            this.task = task;
+            this.priority = priority;
+        }
+    }
+}
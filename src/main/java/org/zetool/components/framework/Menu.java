@@ -20,6 +20,7 @@ import org.zetool.components.Localizer;
 import java.awt.event.ActionListener;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
+import java.util.Locale;
 import javax.swing.AbstractButton;
 import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JMenu;
@@ -28,6 +29,7 @@ import javax.swing.JMenuItem;
 import javax.swing.JPopupMenu;
 import javax.swing.JRadioButtonMenuItem;
 import javax.swing.KeyStroke;
+import org.zetool.components.CompiledBundle;
 import org.zetool.components.ComponentLocalization;
 
 /**
@@ -40,25 +42,123 @@ import org.zetool.components.ComponentLocalization;
 public class Menu {
 
     /**
-     * The localization object used to generate localized menu titles.
+     * The localization object used to generate localized menu titles. Resolved
+     * on first use, so no properties are parsed if all texts are compiled.
      */
-    private static Localization loc = ComponentLocalization.LOC;
+    private static Localization loc;
+    /**
+     * The base name of the precompiled bundles, {@code null} if none are used.
+     */
+    private static String bundleName = ComponentLocalization.BUNDLE_NAME;
+    /**
+     * The precompiled bundle for the current locale that is preferred for the
+     * keys it contains, {@code null} if none exists.
+     */
+    private static CompiledBundle bundle;
+    /**
+     * The locale the bundle was selected for, {@code null} if no bundle was
+     * selected yet.
+     */
+    private static Locale bundleLocale;
 
     private Menu() {
     }
 
     public static Localization getLocalization() {
+        if (loc == null) {
+            loc = ComponentLocalization.LOC;
+        }
         return loc;
     }
 
     /**
      * Sets a {@code AbstractLocalization} object that is used to generate
-     * localized menu entries.
+     * localized menu entries. Setting a localization other than
+     * {@link ComponentLocalization#LOC} disables the precompiled bundles, so
+     * that its texts are not overridden for keys both contain. Precompiled
+     * bundles for the localization can be enabled again afterwards using
+     * {@link #setBundleName(java.lang.String)}.
      *
      * @param loc the {@code AbstractLocalization} opbject.
      */
     public static void setLoc(Localization loc) {
         Menu.loc = loc;
+        if (loc != null && loc != ComponentLocalization.LOC) {
+            setBundleName(null);
+        }
+    }
+
+    /**
+     * Sets the base name of the precompiled bundles that are used instead of
+     * the localization for the keys they contain. The texts and mnemonics are
+     * taken from the bundle for the default locale without parsing, thus the
+     * bundles must belong to a localization following the default locale. By
+     * default the compiled bundles of {@link ComponentLocalization} are used,
+     * if they exist and no other localization is set.
+     *
+     * @param baseName the base name of the bundles, {@code null} to use only
+     * the localization
+     */
+    public static synchronized void setBundleName(String baseName) {
+        bundleName = baseName;
+        bundleLocale = null;
+        bundle = null;
+    }
+
+    public static synchronized String getBundleName() {
+        return bundleName;
+    }
+
+    /**
+     * Selects the precompiled bundle for the current default locale. Called by
+     * {@link Localizer#updateLocalization()} before the components are
+     * localized again after a locale switch.
+     */
+    public static synchronized void updateBundle() {
+        Locale locale = Locale.getDefault();
+        bundle = bundleName == null ? null : CompiledBundle.forLocale(bundleName, locale);
+        bundleLocale = locale;
+    }
+
+    /**
+     * Returns the precompiled bundle for the current default locale. The
+     * bundle is selected again if the default locale changed.
+     *
+     * @return the bundle, {@code null} if none exists
+     */
+    public static synchronized CompiledBundle getBundle() {
+        if (bundleLocale == null || !bundleLocale.equals(Locale.getDefault())) {
+            updateBundle();
+        }
+        return bundle;
+    }
+
+    /**
+     * Sets the localized text and mnemonic of a button. The text is taken
+     * from the precompiled bundle if it contains the key, otherwise from the
+     * localization.
+     *
+     * @param <T> the type of the button
+     * @param guiObject the button
+     * @param localizationString the key of the text
+     * @return the button
+     */
+    public static <T extends AbstractButton> T localize(T guiObject, String localizationString) {
+        CompiledBundle compiled = getBundle();
+        int entry = compiled == null ? -1 : compiled.indexOf(localizationString);
+        if (entry >= 0) {
+            guiObject.setText(compiled.getText(entry));
+            guiObject.setMnemonic(compiled.getMnemonic(entry));
+            int index = compiled.getMnemonicIndex(entry);
+            if (index >= 0) {
+                guiObject.setDisplayedMnemonicIndex(index);
+            }
+            return guiObject;
+        }
+        String text = getLocalization().getString(localizationString);
+        guiObject.setText(extractMnemonic(text));
+        guiObject.setMnemonic(getMnemonic(text));
+        return guiObject;
     }
 
     public static <T extends AbstractButton> T processMnemonic(T guiObject, String s) {
@@ -118,19 +218,19 @@ public class Menu {
             m.addSeparator();
             return null;
         }
-        JMenu menu = processMnemonic(Localizer.instance().registerNewComponent(new JMenu(), localizationString), loc.getString(localizationString));
+        JMenu menu = localize(Localizer.instance().registerNewComponent(new JMenu(), localizationString), localizationString);
         m.add(menu);
         return menu;
     }
 
     public static JMenu addMenu(JMenuBar b, String localizationString) {
-        JMenu menu = processMnemonic(Localizer.instance().registerNewComponent(new JMenu(), localizationString), loc.getString(localizationString));
+        JMenu menu = localize(Localizer.instance().registerNewComponent(new JMenu(), localizationString), localizationString);
         b.add(menu);
         return menu;
     }
 
     public static JMenu addMenu(JPopupMenu p, String localizationString) {
-        JMenu menu = Localizer.instance().registerNewComponent(new JMenu(), loc.getString(localizationString));
+        JMenu menu = localize(Localizer.instance().registerNewComponent(new JMenu(), localizationString), localizationString);
         p.add(menu);
         return menu;
     }
@@ -153,7 +253,7 @@ public class Menu {
             return null;
         }
 
-        JMenuItem menuItem = processMnemonic(Localizer.instance().registerNewComponent(new JMenuItem(), localizedString), loc.getString(localizedString));
+        JMenuItem menuItem = localize(Localizer.instance().registerNewComponent(new JMenuItem(), localizedString), localizedString);
         m.add(menuItem);
 
         menuItem.setAccelerator(KeyStroke.getKeyStroke(inputEvent, inputEvent));
@@ -187,7 +287,7 @@ public class Menu {
             m.addSeparator();
             return null;
         }
-        JMenuItem menuItem = processMnemonic(Localizer.instance().registerNewComponent(new JMenuItem(), localizationString), loc.getString(localizationString));
+        JMenuItem menuItem = localize(Localizer.instance().registerNewComponent(new JMenuItem(), localizationString), localizationString);
         m.add(menuItem);
 
         if (keyEvent != KeyEvent.VK_UNDEFINED) {
@@ -268,15 +368,7 @@ public class Menu {
             return null;
         }
 
-        String s = loc.getString(localizationString);
-        char mn = getMnemonic(s);
-        JCheckBoxMenuItem menuItem;
-        if (mn != 0) {
-            menuItem = Localizer.instance().registerNewComponent(new JCheckBoxMenuItem(extractMnemonic(s), c), localizationString);
-            menuItem.setMnemonic(mn);
-        } else {
-            menuItem = new JCheckBoxMenuItem(s, c);
-        }
+        JCheckBoxMenuItem menuItem = localize(Localizer.instance().registerNewComponent(new JCheckBoxMenuItem((String) null, c), localizationString), localizationString);
 
         if (al != null) {
             menuItem.addActionListener(al);
@@ -303,15 +395,7 @@ public class Menu {
             return null;
         }
 
-        String text = loc.getString(localizationString);
-        char mn = getMnemonic(text);
-        JRadioButtonMenuItem menuItem;
-        if (mn != 0) {
-            menuItem = Localizer.instance().registerNewComponent(new JRadioButtonMenuItem(extractMnemonic(text), selected), localizationString);
-            menuItem.setMnemonic(mn);
-        } else {
-            menuItem = new JRadioButtonMenuItem(text, selected);
-        }
+        JRadioButtonMenuItem menuItem = localize(Localizer.instance().registerNewComponent(new JRadioButtonMenuItem((String) null, selected), localizationString), localizationString);
 
         if (al != null) {
             menuItem.addActionListener(al);
@@ -340,8 +424,7 @@ public class Menu {
             return null;
         }
 
-        JMenuItem menuItem = Localizer.instance().registerNewComponent(new JMenuItem(), localizationKey);
-        menuItem.setText(localizationKey);
+        JMenuItem menuItem = localize(Localizer.instance().registerNewComponent(new JMenuItem(), localizationKey), localizationKey);
         m.add(menuItem);
 
         if (commandString != null) {
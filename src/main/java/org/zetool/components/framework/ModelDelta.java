@@ -0,0 +1,239 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.framework;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A sequence of changes of the parts of a model. The changes are applied in their order, the indices of a change refer
+ * to the model after all previous changes. The ranges contain the index {@code from} and exclude the index {@code to}.
+ * <p>
+ * A delta can be created for a change that is known, or it can be computed from two snapshots of the parts of a model
+ * using {@link #between(java.util.List, java.util.List)}. The delta is passed to a view using
+ * {@link #dispatch(java.lang.Object, Displayable)}.</p>
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public final class ModelDelta {
+
+    /**
+     * The types of changes.
+     */
+    public enum Type {
+        /** Parts were inserted. */
+        INSERT,
+        /** Parts were changed. */
+        UPDATE,
+        /** Parts were removed. */
+        REMOVE;
+    }
+
+    /**
+     * A change of a range of parts.
+     */
+    public static final class Change {
+
+        /** The type of the change. */
+        private final Type type;
+        /** The index of the first changed part. */
+        private final int from;
+        /** The index after the last changed part. */
+        private final int to;
+
+        private Change(Type type, int from, int to) {
+            this.type = type;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Returns the type of the change.
+         *
+         * @return the type of the change
+         */
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Returns the index of the first changed part.
+         *
+         * @return the index of the first changed part
+         */
+        public int getFrom() {
+            return from;
+        }
+
+        /**
+         * Returns the index after the last changed part.
+         *
+         * @return the index after the last changed part
+         */
+        public int getTo() {
+            return to;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Change)) {
+                return false;
+            }
+            Change other = (Change) obj;
+            return type == other.type && from == other.from && to == other.to;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, from, to);
+        }
+
+        @Override
+        public String toString() {
+            return type + "[" + from + ", " + to + ")";
+        }
+    }
+
+    /** A delta without changes. */
+    public static final ModelDelta EMPTY = new ModelDelta(Collections.emptyList());
+    /** The changes. */
+    private final List<Change> changes;
+
+    private ModelDelta(List<Change> changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * Creates a delta consisting of a single change.
+     *
+     * @param type the type of the change
+     * @param from the index of the first changed part
+     * @param to the index after the last changed part
+     * @return the delta
+     * @throws IllegalArgumentException if the range is empty or negative
+     */
+    public static ModelDelta of(Type type, int from, int to) {
+        if (from < 0 || to <= from) {
+            throw new IllegalArgumentException("Invalid range: [" + from + ", " + to + ")");
+        }
+        return new ModelDelta(Collections.singletonList(new Change(type, from, to)));
+    }
+
+    /**
+     * Computes the changes between two snapshots of the parts of a model. The parts are compared using
+     * {@link Object#equals(java.lang.Object)}. Equal parts at the start and at the end are skipped. In the remaining
+     * range, the positions present in both snapshots are reported as updated where the parts differ, the surplus
+     * positions are reported as inserted or removed. Thus a single inserted, changed or removed part results in a
+     * single change. The computation needs linear time.
+     *
+     * @param before the parts before the change
+     * @param after the parts after the change
+     * @return the delta transforming {@code before} into {@code after}
+     */
+    public static ModelDelta between(List<?> before, List<?> after) {
+        int oldSize = before.size();
+        int newSize = after.size();
+        int prefix = 0;
+        while (prefix < oldSize && prefix < newSize && Objects.equals(before.get(prefix), after.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+                && Objects.equals(before.get(oldSize - 1 - suffix), after.get(newSize - 1 - suffix))) {
+            suffix++;
+        }
+        int oldEnd = oldSize - suffix;
+        int newEnd = newSize - suffix;
+        int commonEnd = Math.min(oldEnd, newEnd);
+        List<Change> changes = new ArrayList<>();
+        int runStart = -1;
+        for (int i = prefix; i < commonEnd; ++i) {
+            boolean differs = !Objects.equals(before.get(i), after.get(i));
+            if (differs && runStart < 0) {
+                runStart = i;
+            } else if (!differs && runStart >= 0) {
+                changes.add(new Change(Type.UPDATE, runStart, i));
+                runStart = -1;
+            }
+        }
+        if (runStart >= 0) {
+            changes.add(new Change(Type.UPDATE, runStart, commonEnd));
+        }
+        if (oldEnd > commonEnd) {
+            changes.add(new Change(Type.REMOVE, commonEnd, oldEnd));
+        } else if (newEnd > commonEnd) {
+            changes.add(new Change(Type.INSERT, commonEnd, newEnd));
+        }
+        return changes.isEmpty() ? EMPTY : new ModelDelta(Collections.unmodifiableList(changes));
+    }
+
+    /**
+     * Returns the changes in the order in which they are applied.
+     *
+     * @return the changes
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Checks whether the delta contains no changes.
+     *
+     * @return {@code true} if the delta contains no changes
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * Passes the changes to a view. A {@link DeltaDisplayable} view is informed about each change, any other view
+     * receives the complete model once. Nothing happens if the delta is empty.
+     *
+     * @param <M> the type of the model
+     * @param model the model after all changes
+     * @param view the view
+     */
+    public <M> void dispatch(M model, Displayable<? super M> view) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (!(view instanceof DeltaDisplayable)) {
+            view.setModel(model);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        DeltaDisplayable<? super M> deltaView = (DeltaDisplayable<? super M>) view;
+        for (Change change : changes) {
+            switch (change.type) {
+                case INSERT:
+                    deltaView.partsInserted(model, change.from, change.to);
+                    break;
+                case REMOVE:
+                    deltaView.partsRemoved(model, change.from, change.to);
+                    break;
+                default:
+                    deltaView.partsUpdated(model, change.from, change.to);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return changes.toString();
+    }
+}
@@ -0,0 +1,228 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.framework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.Timer;
+
+/**
+ * Passes published models to any number of {@link Displayable} views. Models can be published from any thread. All
+ * views are updated together by one task on the event dispatch thread at most once per frame, and only with the latest
+ * model published in the meantime. The time each view needs for its update is recorded.
+ *
+ * @param <M> the type of the model
+ * @author Jan-Philipp Kappmeier
+ */
+public class ModelDispatcher<M> {
+
+    /**
+     * The update statistics of a subscribed view. The statistics are written on the event dispatch thread and can be
+     * read from any thread.
+     */
+    public static final class ViewStatistics {
+
+        /** The view. */
+        private final Displayable<?> view;
+        /** The number of updates of the view. */
+        private volatile long updates;
+        /** The total time of all updates in nanoseconds. */
+        private volatile long totalNanos;
+        /** The time of the longest update in nanoseconds. */
+        private volatile long maxNanos;
+        /** The time of the last update in nanoseconds. */
+        private volatile long lastNanos;
+
+        private ViewStatistics(Displayable<?> view) {
+            this.view = view;
+        }
+
+        private void record(long nanos) {
+            updates++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            lastNanos = nanos;
+        }
+
+        /**
+         * Returns the view.
+         *
+         * @return the view
+         */
+        public Displayable<?> getView() {
+            return view;
+        }
+
+        /**
+         * Returns the number of updates of the view.
+         *
+         * @return the number of updates
+         */
+        public long getUpdateCount() {
+            return updates;
+        }
+
+        /**
+         * Returns the total time of all updates of the view.
+         *
+         * @return the total time in nanoseconds
+         */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * Returns the time of the longest update of the view.
+         *
+         * @return the longest time in nanoseconds
+         */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * Returns the time of the last update of the view.
+         *
+         * @return the last time in nanoseconds
+         */
+        public long getLastNanos() {
+            return lastNanos;
+        }
+
+        /**
+         * Returns the average time of the updates of the view.
+         *
+         * @return the average time in nanoseconds, 0 if the view has not been updated
+         */
+        public long getAverageNanos() {
+            long count = updates;
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        @Override
+        public String toString() {
+            return view + ": " + updates + " updates, average " + getAverageNanos() / 1000 + " us, max "
+                    + maxNanos / 1000 + " us";
+        }
+    }
+
+    /** The delay between two updates in milliseconds. */
+    private static final int FRAME_DELAY = 16;
+    /** The marker for no pending model, as {@code null} is a valid model. */
+    private static final Object NONE = new Object();
+    /** The subscribed views with their statistics. */
+    private final List<ViewStatistics> subscribers = new CopyOnWriteArrayList<>();
+    /** The latest published model that is not yet displayed. */
+    private final AtomicReference<Object> pending = new AtomicReference<>(NONE);
+    /** Set if an update is scheduled. */
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+    /** The number of published models that were replaced before they were displayed. */
+    private final AtomicLong coalesced = new AtomicLong();
+    /** The timer performing the update. */
+    private final Timer updateTimer = new Timer(FRAME_DELAY, e -> flush());
+
+    /**
+     * Creates a new dispatcher without views.
+     */
+    public ModelDispatcher() {
+        updateTimer.setRepeats(false);
+    }
+
+    /**
+     * Subscribes a view. The view receives the next published model.
+     *
+     * @param view the view
+     */
+    public void subscribe(Displayable<? super M> view) {
+        subscribers.add(new ViewStatistics(view));
+    }
+
+    /**
+     * Unsubscribes a view.
+     *
+     * @param view the view
+     */
+    public void unsubscribe(Displayable<? super M> view) {
+        subscribers.removeIf(statistics -> statistics.view == view);
+    }
+
+    /**
+     * Publishes a model. The model is displayed by all views in the next frame, unless a newer model is published
+     * before. Can be called from any thread.
+     *
+     * @param model the model
+     */
+    public void publish(M model) {
+        if (pending.getAndSet(model) != NONE) {
+            coalesced.incrementAndGet();
+        }
+        if (updateScheduled.compareAndSet(false, true)) {
+            updateTimer.start();
+        }
+    }
+
+    /**
+     * Displays the latest published model immediately in all views. Has to be called on the event dispatch thread.
+     * Does nothing if no model is pending. If a view fails, the remaining views are updated nevertheless and the first
+     * failure is thrown afterwards.
+     */
+    @SuppressWarnings("unchecked")
+    public void flush() {
+        updateScheduled.set(false);
+        Object model = pending.getAndSet(NONE);
+        if (model == NONE) {
+            return;
+        }
+        RuntimeException failure = null;
+        for (ViewStatistics statistics : subscribers) {
+            long start = System.nanoTime();
+            try {
+                ((Displayable<? super M>) statistics.view).setModel((M) model);
+            } catch (RuntimeException ex) {
+                if (failure == null) {
+                    failure = ex;
+                }
+            }
+            statistics.record(System.nanoTime() - start);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Returns the number of published models that were never displayed, because a newer model was published in the
+     * same frame.
+     *
+     * @return the number of replaced models
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Returns the update statistics of the subscribed views.
+     *
+     * @return the statistics in the order of subscription
+     */
+    public List<ViewStatistics> getStatistics() {
+        return new ArrayList<>(subscribers);
+    }
+}
@@ -0,0 +1,276 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.log;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.JEditorPane;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Caret;
+import javax.swing.text.DefaultCaret;
+import javax.swing.text.Element;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.html.HTML;
+import javax.swing.text.html.HTMLDocument;
+import org.zetool.components.framework.FrameScheduler;
+
+/**
+ * Writes the records of a {@link LogRecordStore} into the {@link HTMLDocument} of a {@link JEditorPane}. The text of
+ * the pane is never replaced. New records are inserted at the end of the document body and the oldest records are
+ * removed from the head of the body, if more than a given number of records is shown.
+ * <p>
+ * All records appended to the store in the meantime are inserted at once on the event dispatch thread. The caret does
+ * not follow the inserted text, instead the pane is scrolled to the end once per insertion if the end was visible
+ * before. If a {@link FrameScheduler} is set, bursts of records are inserted in chunks within its frame budget
+ * instead.</p>
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class HTMLLogAppender implements ChangeListener {
+
+    /** The maximal number of records inserted in one chunk of a scheduled update. */
+    private static final int APPEND_CHUNK = 200;
+
+    /** The store containing the records. */
+    private final LogRecordStore store;
+    /** The editor pane displaying the records. */
+    private final JEditorPane pane;
+    /** The document of the pane. */
+    private final HTMLDocument document;
+    /** The maximal number of records in the document. */
+    private final int maxRecords;
+    /** Set if an update on the event dispatch thread is scheduled. */
+    private final AtomicBoolean updatePending = new AtomicBoolean();
+    /** The builder for the inserted HTML, reused for all updates. */
+    private final StringBuilder builder = new StringBuilder();
+    /** The buffer for the formatted time. */
+    private final char[] time = new char[LogFormat.TIME_LENGTH];
+    /** The time zone used to format the time stamps. */
+    private final TimeZone zone = TimeZone.getDefault();
+    /** The sequence number of the next record to be inserted. */
+    private long nextSequence;
+    /** The scheduler inserting the records in chunks, or {@code null} to insert all records at once. */
+    private volatile FrameScheduler scheduler;
+
+    /**
+     * Creates a new appender and inserts the records that are already in the store.
+     *
+     * @param store the store containing the records
+     * @param pane an editor pane containing a {@link HTMLDocument}
+     * @param maxRecords the maximal number of records in the document
+     * @throws IllegalArgumentException if the pane does not contain a {@link HTMLDocument} or the number of records is
+     * not positive
+     */
+    public HTMLLogAppender(LogRecordStore store, JEditorPane pane, int maxRecords) {
+        if (!(pane.getDocument() instanceof HTMLDocument)) {
+            throw new IllegalArgumentException("The pane does not contain a HTML document.");
+        }
+        if (maxRecords <= 0) {
+            throw new IllegalArgumentException("Number of records must be positive: " + maxRecords);
+        }
+        this.store = store;
+        this.pane = pane;
+        this.document = (HTMLDocument) pane.getDocument();
+        this.maxRecords = maxRecords;
+        pane.setEditable(false);
+        Caret caret = pane.getCaret();
+        if (caret instanceof DefaultCaret) {
+            ((DefaultCaret) caret).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
+        }
+        document.getStyleSheet().addRule("body { font-family: sans-serif; font-size: 10pt; }");
+        nextSequence = store.getFirstSequence();
+        store.addChangeListener(this);
+        stateChanged(null);
+    }
+
+    /**
+     * Returns the maximal number of records in the document.
+     *
+     * @return the maximal number of records in the document
+     */
+    public int getMaxRecords() {
+        return maxRecords;
+    }
+
+    /**
+     * Called if the store changed. Updates from any number of threads are coalesced into one insertion on the event
+     * dispatch thread.
+     *
+     * @param e the change event, not used
+     */
+    @Override
+    public void stateChanged(ChangeEvent e) {
+        if (updatePending.compareAndSet(false, true)) {
+            FrameScheduler current = scheduler;
+            if (current == null) {
+                SwingUtilities.invokeLater(this::append);
+            } else {
+                current.submit(FrameScheduler.Priority.LOW, this::appendChunk);
+            }
+        }
+    }
+
+    /**
+     * Sets the scheduler inserting new records in chunks of at most 200 records within its frame budget. Without a
+     * scheduler all new records are inserted at once.
+     *
+     * @param scheduler the scheduler, or {@code null} to insert all new records at once
+     */
+    public void setScheduler(FrameScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Returns the scheduler inserting new records in chunks.
+     *
+     * @return the scheduler, or {@code null} if all new records are inserted at once
+     */
+    public FrameScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Inserts all new records at the end of the document and removes the records exceeding the limit from the head.
+     * Records that would be removed immediately are not inserted at all.
+     */
+    void append() {
+        updatePending.set(false);
+        append(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Inserts the next chunk of new records as part of a scheduled update.
+     *
+     * @return {@code true} if new records remain
+     */
+    private boolean appendChunk() {
+        if (append(APPEND_CHUNK)) {
+            return true;
+        }
+        updatePending.set(false);
+        // records appended after the store was read are inserted by this task, unless another one was submitted
+        return nextSequence < store.getEndSequence() && updatePending.compareAndSet(false, true);
+    }
+
+    /**
+     * Inserts new records at the end of the document and removes the records exceeding the limit from the head.
+     *
+     * @param maxCount the maximal number of inserted records
+     * @return {@code true} if new records remain
+     */
+    private boolean append(int maxCount) {
+        long end = store.getEndSequence();
+        long from = Math.max(nextSequence, end - maxRecords);
+        builder.setLength(0);
+        nextSequence = store.forEach(from, (int) Math.min(end - from, maxCount), this::appendRecord);
+        if (builder.length() == 0) {
+            return nextSequence < end;
+        }
+        boolean atEnd = isAtEnd();
+        Element body = getBody();
+        try {
+            document.insertBeforeEnd(body, builder.toString());
+            int first = getFirstRecord(body);
+            int excess = body.getElementCount() - first - maxRecords;
+            if (excess > 0) {
+                // also removes the empty paragraph of a new document in front of the records
+                int start = body.getElement(0).getStartOffset();
+                document.remove(start, body.getElement(first + excess - 1).getEndOffset() - start);
+            }
+        } catch (BadLocationException | IOException ex) {
+            throw new IllegalStateException("Could not update the log document.", ex);
+        }
+        if (atEnd) {
+            SwingUtilities.invokeLater(this::scrollToEnd);
+        }
+        return nextSequence < end;
+    }
+
+    private void appendRecord(long sequence, int level, long millis, int logger, int thread, char[] chars,
+            int offset, int length) {
+        LogFormat.formatTime(millis, zone, time, 0);
+        LogFormat.appendHtmlRecord(builder, level, time, store.getName(thread), chars, offset, length);
+    }
+
+    /**
+     * Returns the body element of the document.
+     *
+     * @return the body element of the document
+     */
+    private Element getBody() {
+        Element root = document.getDefaultRootElement();
+        for (int i = 0; i < root.getElementCount(); ++i) {
+            Element element = root.getElement(i);
+            if (element.getAttributes().getAttribute(StyleConstants.NameAttribute) == HTML.Tag.BODY) {
+                return element;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Returns the index of the first record in the body. Only the elements in front of the records are visited.
+     *
+     * @param body the body element of the document
+     * @return the index of the first record, the number of elements if the body contains no record
+     */
+    private static int getFirstRecord(Element body) {
+        int index = 0;
+        while (index < body.getElementCount()
+                && body.getElement(index).getAttributes().getAttribute(StyleConstants.NameAttribute) != HTML.Tag.DIV) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the viewport containing the pane.
+     *
+     * @return the viewport containing the pane, or {@code null} if the pane is not scrollable
+     */
+    private JViewport getViewport() {
+        return (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, pane);
+    }
+
+    /**
+     * Checks whether the end of the pane is visible.
+     *
+     * @return {@code true} if the end of the pane is visible
+     */
+    private boolean isAtEnd() {
+        JViewport viewport = getViewport();
+        if (viewport == null) {
+            return false;
+        }
+        return viewport.getViewPosition().y + viewport.getExtentSize().height >= pane.getHeight() - 16;
+    }
+
+    /**
+     * Scrolls the viewport to the end of the pane without moving the caret.
+     */
+    private void scrollToEnd() {
+        JViewport viewport = getViewport();
+        if (viewport != null) {
+            viewport.setViewPosition(new Point(0, Math.max(0, pane.getHeight() - viewport.getExtentSize().height)));
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.log;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import org.zetool.components.diagnostics.RepaintProfiler;
+
+/**
+ * Displays the records of a {@link LogRecordStore}, one record per row. Only the rows intersecting the clip are
+ * painted. The styling (the color of the level and the bold thread name) is applied while painting, the store only
+ * contains the raw values. The view is meant to be put into a {@link javax.swing.JScrollPane}. If the view is scrolled
+ * to the end, it follows newly appended records.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class JLogRecordView extends JComponent implements Scrollable, ChangeListener {
+
+    /** The space between the columns of a row. */
+    private static final int GAP = 6;
+    /** Messages are not painted beyond this number of characters. */
+    private static final int MAX_PAINTED_CHARS = 1024;
+    /** The store containing the records. */
+    private final LogRecordStore store;
+    /** Set if an update on the event dispatch thread is scheduled. */
+    private final AtomicBoolean updatePending = new AtomicBoolean();
+    /** The copies of the painted rows, reused for each paint. */
+    private final RowBuffer rows = new RowBuffer();
+    /** The number of rows at the last update. */
+    private int rowCount;
+    /** The sequence number of the first row at the last update. */
+    private long firstSequence;
+    /** The font used for the thread names. */
+    private Font boldFont;
+
+    /**
+     * Creates a new view for a given store.
+     *
+     * @param store the store containing the records
+     */
+    public JLogRecordView(LogRecordStore store) {
+        this.store = store;
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        setForeground(Color.BLACK);
+        setFont(new Font("SansSerif", Font.PLAIN, 12));
+        store.addChangeListener(this);
+        update();
+    }
+
+    /**
+     * Returns the store whose records are displayed.
+     *
+     * @return the store whose records are displayed
+     */
+    public LogRecordStore getStore() {
+        return store;
+    }
+
+    /**
+     * Called if the store changed. Updates from any number of threads are coalesced into one update on the event
+     * dispatch thread.
+     *
+     * @param e the change event, not used
+     */
+    @Override
+    public void stateChanged(ChangeEvent e) {
+        if (updatePending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::update);
+        }
+    }
+
+    /**
+     * Reads the current size of the store and repaints. The view scrolls to the end, if the end was visible before.
+     */
+    private void update() {
+        updatePending.set(false);
+        boolean atEnd = isAtEnd();
+        int count;
+        synchronized (store) {
+            count = store.size();
+            firstSequence = store.getFirstSequence();
+        }
+        if (count != rowCount) {
+            rowCount = count;
+            revalidate();
+            if (atEnd) {
+                SwingUtilities.invokeLater(this::scrollToEnd);
+            }
+        }
+        repaint();
+    }
+
+    /**
+     * Checks whether the last row is visible.
+     *
+     * @return {@code true} if the last row is visible
+     */
+    private boolean isAtEnd() {
+        Rectangle visible = getVisibleRect();
+        return visible.y + visible.height >= getHeight() - getRowHeight();
+    }
+
+    /**
+     * Scrolls to the last row.
+     */
+    public void scrollToEnd() {
+        scrollRectToVisible(new Rectangle(0, Math.max(0, getHeight() - 1), 1, 1));
+    }
+
+    /**
+     * Returns the height of a single row.
+     *
+     * @return the height of a single row
+     */
+    public int getRowHeight() {
+        return getFontMetrics(getFont()).getHeight();
+    }
+
+    @Override
+    public void setFont(Font font) {
+        super.setFont(font);
+        boldFont = font.deriveFont(Font.BOLD);
+        revalidate();
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        return new Dimension(100, rowCount * getRowHeight());
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        long start = RepaintProfiler.paintStarted();
+        super.paint(g);
+        RepaintProfiler.paintFinished(this, g, start);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (isOpaque()) {
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        }
+        FontMetrics metrics = g.getFontMetrics(getFont());
+        int rowHeight = metrics.getHeight();
+        int firstRow = Math.max(0, clip.y / rowHeight);
+        int lastRow = Math.min(rowCount - 1, (clip.y + clip.height) / rowHeight);
+        if (lastRow < firstRow) {
+            return;
+        }
+        rows.copy(firstSequence + firstRow, lastRow - firstRow + 1);
+        rows.paint(g, metrics, g.getFontMetrics(boldFont));
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? getRowHeight() : 10;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+    }
+
+    /**
+     * Copies the visible records out of the store and paints them after the lock of the store is released, so that
+     * logging threads are not blocked while text is rendered. The buffers are reused and only grow, so that painting
+     * does not allocate objects per row.
+     */
+    private class RowBuffer implements LogRecordStore.RecordVisitor {
+
+        /** The buffer for the formatted time. */
+        private final char[] time = new char[LogFormat.TIME_LENGTH];
+        /** The time zone used to format the time stamps. */
+        private final TimeZone zone = TimeZone.getDefault();
+        /** The number of copied records. */
+        private int count;
+        /** The sequence numbers of the copied records. */
+        private long[] sequences = new long[0];
+        /** The level codes of the copied records. */
+        private byte[] levels = new byte[0];
+        /** The time stamps of the copied records. */
+        private long[] millis = new long[0];
+        /** The thread names of the copied records. */
+        private String[] threads = new String[0];
+        /** The painted characters of the messages. */
+        private char[] chars = new char[0];
+        /** The start of each message in {@link #chars}. */
+        private int[] starts = new int[0];
+        /** The painted length of each message. */
+        private int[] lengths = new int[0];
+        /** The number of used characters. */
+        private int used;
+
+        /**
+         * Copies the records of some rows from the store.
+         *
+         * @param fromSequence the sequence number of the first row
+         * @param rows the number of rows
+         */
+        void copy(long fromSequence, int rows) {
+            count = 0;
+            used = 0;
+            if (sequences.length < rows) {
+                sequences = new long[rows];
+                levels = new byte[rows];
+                millis = new long[rows];
+                threads = new String[rows];
+                starts = new int[rows];
+                lengths = new int[rows];
+            }
+            store.forEach(fromSequence, rows, this);
+        }
+
+        @Override
+        public void visit(long sequence, int level, long millis, int logger, int thread, char[] messageChars,
+                int offset, int length) {
+            int painted = Math.min(length, MAX_PAINTED_CHARS);
+            if (chars.length < used + painted) {
+                chars = Arrays.copyOf(chars, Math.max(used + painted, 2 * chars.length));
+            }
+            System.arraycopy(messageChars, offset, chars, used, painted);
+            sequences[count] = sequence;
+            levels[count] = (byte) level;
+            this.millis[count] = millis;
+            threads[count] = store.getName(thread);
+            starts[count] = used;
+            lengths[count] = painted;
+            used += painted;
+            count++;
+        }
+
+        /**
+         * Paints the copied records.
+         *
+         * @param g the graphics context
+         * @param plain the metrics of the plain font
+         * @param bold the metrics of the bold font
+         */
+        void paint(Graphics g, FontMetrics plain, FontMetrics bold) {
+            for (int row = 0; row < count; ++row) {
+                int level = levels[row];
+                int y = (int) (sequences[row] - firstSequence) * plain.getHeight() + plain.getAscent();
+                int x = GAP;
+                LogFormat.formatTime(millis[row], zone, time, 0);
+                g.setFont(plain.getFont());
+                g.setColor(Color.GRAY);
+                g.drawChars(time, 0, time.length, x, y);
+                x += plain.charsWidth(time, 0, time.length) + GAP;
+
+                g.setColor(LogFormat.LEVEL_COLORS[level]);
+                g.drawString(LogRecordStore.getLevel(level).getName(), x, y);
+                x += plain.stringWidth("WARNING") + GAP;
+
+                g.setFont(bold.getFont());
+                g.setColor(getForeground());
+                g.drawString(threads[row], x, y);
+                x += bold.stringWidth(threads[row]) + GAP;
+
+                g.setFont(plain.getFont());
+                g.setColor(LogFormat.LEVEL_COLORS[level]);
+                g.drawChars(chars, starts[row], lengths[row], x, y);
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.TimeZone;
+import java.util.function.LongConsumer;
+import javax.swing.SwingWorker;
+
+/**
+ * Writes the records of a {@link LogRecordStore} to a {@link WritableByteChannel}. The records are read in small
+ * chunks directly from the store, formatted into a reused character buffer and encoded as UTF-8 into a reused byte
+ * buffer. The complete log is never held in memory. The store is only locked while a chunk is formatted, so logging
+ * can continue during the export. The records that are in the store when the export starts are written, records that
+ * are dropped during the export are skipped. Characters that cannot be encoded, like unpaired surrogates, are replaced
+ * by {@code ?}.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class LogExporter {
+
+    /**
+     * The supported output formats.
+     */
+    public enum Format {
+        /** One line of plain text per record. */
+        TEXT,
+        /** A HTML document with one {@code div} element per record. */
+        HTML,
+        /** One JSON object per line. */
+        JSON_LINES;
+    }
+
+    /** The number of records formatted while the store is locked. */
+    private static final int CHUNK_SIZE = 256;
+    /** The size of the byte buffer. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** The store containing the records. */
+    private final LogRecordStore store;
+    /** The output format. */
+    private final Format format;
+    /** The time zone used to format the time stamps. */
+    private final TimeZone zone = TimeZone.getDefault();
+    /** The buffer for the formatted time. */
+    private final char[] time = new char[LogFormat.DATE_TIME_LENGTH];
+    /** The formatted records of the current chunk. */
+    private final StringBuilder builder = new StringBuilder();
+    /** The characters of the current chunk, grows if necessary. */
+    private char[] chars = new char[BUFFER_SIZE];
+    /** The buffer for the encoded characters. */
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** The encoder for the characters, replacing malformed input instead of stopping. */
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    /** The number of records written by the current export. */
+    private long written;
+
+    /**
+     * Creates a new exporter for the records of a store.
+     *
+     * @param store the store containing the records
+     * @param format the output format
+     */
+    public LogExporter(LogRecordStore store, Format format) {
+        this.store = store;
+        this.format = format;
+    }
+
+    /**
+     * Writes the records to a file. An existing file is replaced.
+     *
+     * @param file the file
+     * @return the number of written records
+     * @throws IOException if the file cannot be written
+     */
+    public long export(Path file) throws IOException {
+        return export(file, null);
+    }
+
+    /**
+     * Writes the records to a channel. The channel is not closed.
+     *
+     * @param channel the channel
+     * @return the number of written records
+     * @throws IOException if the channel cannot be written
+     */
+    public long export(WritableByteChannel channel) throws IOException {
+        return export(channel, null);
+    }
+
+    private long export(Path file, LongConsumer progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            return export(channel, progress);
+        }
+    }
+
+    /**
+     * Writes the records to a channel and reports the progress after each chunk.
+     *
+     * @param channel the channel
+     * @param progress receives the sequence number after the last written record, may be {@code null}
+     * @return the number of written records
+     * @throws IOException if the channel cannot be written
+     */
+    private synchronized long export(WritableByteChannel channel, LongConsumer progress) throws IOException {
+        long sequence;
+        long end;
+        synchronized (store) {
+            sequence = store.getFirstSequence();
+            end = store.getEndSequence();
+        }
+        encoder.reset();
+        bytes.clear();
+        written = 0;
+        builder.setLength(0);
+        if (format == Format.HTML) {
+            builder.append("<html>\n<body style=\"font-family: sans-serif\">\n");
+        }
+        while (sequence < end) {
+            sequence = store.forEach(sequence, (int) Math.min(CHUNK_SIZE, end - sequence), this::appendRecord);
+            write(channel, false);
+            if (progress != null) {
+                progress.accept(sequence);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+        }
+        if (format == Format.HTML) {
+            builder.append("</body>\n</html>\n");
+        }
+        write(channel, true);
+        return written;
+    }
+
+    private void appendRecord(long sequence, int level, long millis, int logger, int thread, char[] messageChars,
+            int offset, int length) {
+        written++;
+        LogFormat.formatDateTime(millis, zone, time, 0);
+        switch (format) {
+            case HTML:
+                LogFormat.appendHtmlRecord(builder, level, time, store.getName(thread), messageChars, offset, length);
+                break;
+            case JSON_LINES:
+                builder.append("{\"sequence\":").append(sequence).append(",\"millis\":").append(millis)
+                        .append(",\"time\":\"").append(time).append("\",\"level\":\"")
+                        .append(LogRecordStore.getLevel(level).getName()).append("\",\"logger\":\"");
+                LogFormat.appendJson(builder, store.getName(logger));
+                builder.append("\",\"thread\":\"");
+                LogFormat.appendJson(builder, store.getName(thread));
+                builder.append("\",\"message\":\"");
+                LogFormat.appendJson(builder, messageChars, offset, length);
+                builder.append("\"}\n");
+                break;
+            default:
+                builder.append(time).append(' ').append(LogRecordStore.getLevel(level).getName()).append(" [")
+                        .append(store.getName(thread)).append("] ").append(store.getName(logger)).append(": ")
+                        .append(messageChars, offset, length).append('\n');
+        }
+    }
+
+    /**
+     * Encodes the formatted characters and writes them to the channel whenever the byte buffer is full.
+     *
+     * @param channel the channel
+     * @param last whether this is the last call for the export
+     * @throws IOException if the channel cannot be written
+     */
+    private void write(WritableByteChannel channel, boolean last) throws IOException {
+        int length = builder.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, 2 * chars.length)];
+        }
+        builder.getChars(0, length, chars, 0);
+        builder.setLength(0);
+        CharBuffer input = CharBuffer.wrap(chars, 0, length);
+        CoderResult result;
+        do {
+            result = encoder.encode(input, bytes, last);
+            if (result.isOverflow()) {
+                drain(channel);
+            } else if (result.isError()) {
+                result.throwException();
+            }
+        } while (result.isOverflow());
+        // a high surrogate at the end of the chunk is encoded together with the next chunk
+        builder.append(chars, input.position(), input.remaining());
+        if (last) {
+            while (encoder.flush(bytes).isOverflow()) {
+                drain(channel);
+            }
+            drain(channel);
+        }
+    }
+
+    private void drain(WritableByteChannel channel) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Creates a worker that writes the records to a file in the background. The progress of the worker is updated
+     * after each chunk and lies between 0 and 100. The result of the worker is the number of written records.
+     * Cancelling the worker stops the export after the current chunk.
+     *
+     * @param file the file
+     * @return the worker, not yet started
+     */
+    public SwingWorker<Long, Void> createWorker(Path file) {
+        return new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws IOException {
+                long first = store.getFirstSequence();
+                long total = Math.max(1, store.getEndSequence() - first);
+                return export(file, sequence -> setProgress((int) Math.min(100, 100 * (sequence - first) / total)));
+            }
+        };
+    }
+}
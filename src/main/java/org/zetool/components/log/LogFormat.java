@@ -0,0 +1,225 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.log;
+
+import java.awt.Color;
+import java.util.TimeZone;
+
+/**
+ * Formatting helpers shared by the views and writers of log records. None of the methods creates intermediate
+ * strings.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+final class LogFormat {
+
+    /** The colors of the level codes. */
+    static final Color[] LEVEL_COLORS = {Color.GRAY, Color.GRAY, Color.GRAY, new Color(0, 0, 128), Color.BLACK,
+        new Color(192, 112, 0), new Color(192, 0, 0)};
+    /** The hexadecimal digits. */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    /** The colors of the level codes as HTML colors. */
+    private static final String[] HTML_COLORS = new String[LEVEL_COLORS.length];
+    /** The number of characters of a formatted time. */
+    static final int TIME_LENGTH = 12;
+    /** The number of characters of a formatted date and time. */
+    static final int DATE_TIME_LENGTH = 23;
+
+    static {
+        for (int i = 0; i < LEVEL_COLORS.length; ++i) {
+            HTML_COLORS[i] = String.format("#%06x", LEVEL_COLORS[i].getRGB() & 0xffffff);
+        }
+    }
+
+    /** Utility class constructor. */
+    private LogFormat() {
+    }
+
+    /**
+     * Writes the time of day of a time stamp as {@code hh:mm:ss.SSS} into a buffer.
+     *
+     * @param millis the time stamp
+     * @param zone the time zone
+     * @param target the buffer
+     * @param offset the first position in the buffer
+     */
+    static void formatTime(long millis, TimeZone zone, char[] target, int offset) {
+        long local = Math.floorMod(millis + zone.getOffset(millis), 86_400_000L);
+        put(target, offset, (int) (local / 3_600_000), 2);
+        target[offset + 2] = ':';
+        put(target, offset + 3, (int) (local / 60_000 % 60), 2);
+        target[offset + 5] = ':';
+        put(target, offset + 6, (int) (local / 1000 % 60), 2);
+        target[offset + 8] = '.';
+        put(target, offset + 9, (int) (local % 1000), 3);
+    }
+
+    /**
+     * Writes a time stamp as {@code yyyy-MM-dd hh:mm:ss.SSS} into a buffer.
+     *
+     * @param millis the time stamp
+     * @param zone the time zone
+     * @param target the buffer
+     * @param offset the first position in the buffer
+     */
+    static void formatDateTime(long millis, TimeZone zone, char[] target, int offset) {
+        long local = millis + zone.getOffset(millis);
+        // civil date from days since epoch, see H. Hinnant, chrono-Compatible Low-Level Date Algorithms
+        long days = Math.floorDiv(local, 86_400_000L) + 719_468;
+        long era = Math.floorDiv(days, 146_097);
+        long dayOfEra = days - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        put(target, offset, year, 4);
+        target[offset + 4] = '-';
+        put(target, offset + 5, month, 2);
+        target[offset + 7] = '-';
+        put(target, offset + 8, day, 2);
+        target[offset + 10] = ' ';
+        formatTime(millis, zone, target, offset + 11);
+    }
+
+    private static void put(char[] target, int position, int value, int digits) {
+        for (int i = position + digits - 1; i >= position; --i) {
+            target[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Appends characters to a builder and escapes the characters that have a special meaning in HTML.
+     *
+     * @param builder the builder
+     * @param chars the characters
+     * @param offset the first character
+     * @param length the number of characters
+     */
+    static void appendHtml(StringBuilder builder, char[] chars, int offset, int length) {
+        for (int i = offset; i < offset + length; ++i) {
+            appendHtml(builder, chars[i]);
+        }
+    }
+
+    /**
+     * Appends a string to a builder and escapes the characters that have a special meaning in HTML.
+     *
+     * @param builder the builder
+     * @param text the text
+     */
+    static void appendHtml(StringBuilder builder, String text) {
+        for (int i = 0; i < text.length(); ++i) {
+            appendHtml(builder, text.charAt(i));
+        }
+    }
+
+    private static void appendHtml(StringBuilder builder, char c) {
+        switch (c) {
+            case '<':
+                builder.append("&lt;");
+                break;
+            case '>':
+                builder.append("&gt;");
+                break;
+            case '&':
+                builder.append("&amp;");
+                break;
+            case '"':
+                builder.append("&quot;");
+                break;
+            default:
+                builder.append(c);
+        }
+    }
+
+    /**
+     * Appends a record as HTML {@code div} element. The time is gray, the thread name is bold and the level and the
+     * message use the color of the level.
+     *
+     * @param builder the builder
+     * @param level the level code
+     * @param time the formatted time
+     * @param thread the name of the thread
+     * @param chars the characters containing the message
+     * @param offset the first character of the message
+     * @param length the length of the message
+     */
+    static void appendHtmlRecord(StringBuilder builder, int level, char[] time, String thread, char[] chars,
+            int offset, int length) {
+        builder.append("<div><font color=\"#808080\">").append(time).append("</font> <font color=\"")
+                .append(HTML_COLORS[level]).append("\">").append(LogRecordStore.getLevel(level).getName())
+                .append("</font> <b>");
+        appendHtml(builder, thread);
+        builder.append("</b> <font color=\"").append(HTML_COLORS[level]).append("\">");
+        appendHtml(builder, chars, offset, length);
+        builder.append("</font></div>\n");
+    }
+
+    /**
+     * Appends characters to a builder as JSON string content. Quotes, backslashes and control characters are escaped.
+     *
+     * @param builder the builder
+     * @param chars the characters
+     * @param offset the first character
+     * @param length the number of characters
+     */
+    static void appendJson(StringBuilder builder, char[] chars, int offset, int length) {
+        for (int i = offset; i < offset + length; ++i) {
+            appendJson(builder, chars[i]);
+        }
+    }
+
+    /**
+     * Appends a string to a builder as JSON string content. Quotes, backslashes and control characters are escaped.
+     *
+     * @param builder the builder
+     * @param text the text
+     */
+    static void appendJson(StringBuilder builder, String text) {
+        for (int i = 0; i < text.length(); ++i) {
+            appendJson(builder, text.charAt(i));
+        }
+    }
+
+    private static void appendJson(StringBuilder builder, char c) {
+        switch (c) {
+            case '"':
+                builder.append("\\\"");
+                break;
+            case '\\':
+                builder.append("\\\\");
+                break;
+            case '\n':
+                builder.append("\\n");
+                break;
+            case '\r':
+                builder.append("\\r");
+                break;
+            case '\t':
+                builder.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    builder.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+                } else {
+                    builder.append(c);
+                }
+        }
+    }
+}
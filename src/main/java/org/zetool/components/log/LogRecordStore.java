@@ -0,0 +1,436 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * A bounded store for log records that keeps every attribute in a primitive column instead of one formatted object
+ * per record. A record consists of a level code, a time stamp, an interned logger name, an interned thread name and
+ * a message. The messages are copied into one shared character arena, the records only keep the offset and the
+ * length. If the capacity is reached, the oldest records are dropped.
+ * <p>
+ * Records are identified by a sequence number that is increased with every appended record. The live records are
+ * the sequences from {@link #getFirstSequence()} (inclusive) to {@link #getEndSequence()} (exclusive).</p>
+ * <p>
+ * The store is thread safe. Listeners are notified in the thread that appended the record.</p>
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class LogRecordStore {
+
+    /**
+     * Receives the columns of a record without any copying. The character array is the internal arena and must not
+     * be modified or kept after the call returns.
+     */
+    @FunctionalInterface
+    public interface RecordVisitor {
+
+        /**
+         * Called for a single record.
+         *
+         * @param sequence the sequence number of the record
+         * @param level the level code, see {@link #getLevel(int)}
+         * @param millis the time stamp in milliseconds
+         * @param logger the id of the logger name
+         * @param thread the id of the thread name
+         * @param chars the arena containing the message
+         * @param offset the first character of the message in the arena
+         * @param length the length of the message
+         */
+        void visit(long sequence, int level, long millis, int logger, int thread, char[] chars, int offset,
+                int length);
+    }
+
+    /** The standard levels in increasing order. The index is used as level code. */
+    private static final Level[] LEVELS = {Level.FINEST, Level.FINER, Level.FINE, Level.CONFIG, Level.INFO,
+        Level.WARNING, Level.SEVERE};
+    /** The default number of records. */
+    public static final int DEFAULT_CAPACITY = 10000;
+    /** The initial size of the character arena. */
+    private static final int INITIAL_ARENA = 1 << 12;
+
+    /** The maximal number of records. */
+    private final int capacity;
+    /** The maximal number of characters of all messages together. */
+    private final int maxChars;
+    /** The level codes. */
+    private final byte[] levels;
+    /** The time stamps. */
+    private final long[] millis;
+    /** The ids of the logger names. */
+    private final int[] loggers;
+    /** The ids of the thread names. */
+    private final int[] threads;
+    /** The logical start of the messages in the arena. */
+    private final long[] messageStarts;
+    /** The message lengths. */
+    private final int[] messageLengths;
+    /** The shared character arena containing all messages. */
+    private char[] arena = new char[INITIAL_ARENA];
+    /** The logical offset of the first character in the arena. */
+    private long arenaBase;
+    /** The logical offset after the last used character in the arena. */
+    private long arenaEnd;
+    /** The physical index of the oldest record. */
+    private int head;
+    /** The number of live records. */
+    private int size;
+    /** The number of records ever appended. */
+    private long appended;
+    /** The number of interned names that triggers removing the names of dropped records. */
+    private final int nameLimit;
+    /** The interned names. */
+    private final ArrayList<String> names = new ArrayList<>();
+    /** Maps names to their id. */
+    private final HashMap<String, Integer> nameIds = new HashMap<>();
+    /** The listeners notified when records are appended or removed. */
+    private final CopyOnWriteArrayList<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    /** The single event instance sent to the listeners. */
+    private final ChangeEvent event = new ChangeEvent(this);
+
+    /**
+     * Creates a new store with the default capacity.
+     */
+    public LogRecordStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new store that keeps at most {@code capacity} records. The messages may use 200 characters per record
+     * in average.
+     *
+     * @param capacity the maximal number of records
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public LogRecordStore(int capacity) {
+        this(capacity, defaultMaxChars(capacity));
+    }
+
+    /**
+     * Returns the default number of message characters for a capacity, 200 per record but at most the size of the
+     * largest array.
+     *
+     * @param capacity the maximal number of records
+     * @return the maximal number of message characters
+     */
+    static int defaultMaxChars(int capacity) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, capacity * 200L);
+    }
+
+    /**
+     * Creates a new store that keeps at most {@code capacity} records whose messages have at most {@code maxChars}
+     * characters in total.
+     *
+     * @param capacity the maximal number of records
+     * @param maxChars the maximal number of message characters
+     * @throws IllegalArgumentException if one of the values is not positive
+     */
+    public LogRecordStore(int capacity, int maxChars) {
+        if (capacity <= 0 || maxChars <= 0) {
+            throw new IllegalArgumentException("Capacity and characters must be positive.");
+        }
+        this.capacity = capacity;
+        this.maxChars = maxChars;
+        // the live records use at most two names each, so compacting at least halves the table
+        nameLimit = (int) Math.min(Integer.MAX_VALUE - 8, 4L * capacity + 2);
+        levels = new byte[capacity];
+        millis = new long[capacity];
+        loggers = new int[capacity];
+        threads = new int[capacity];
+        messageStarts = new long[capacity];
+        messageLengths = new int[capacity];
+    }
+
+    /**
+     * Appends a new record. If the store is full, the oldest record is dropped. Messages longer than the maximal
+     * number of characters are truncated.
+     *
+     * @param level the level of the record
+     * @param time the time stamp in milliseconds
+     * @param logger the name of the logger, may be {@code null}
+     * @param thread the name of the thread, may be {@code null}
+     * @param message the message, may be {@code null}
+     */
+    public void append(Level level, long time, String logger, String thread, CharSequence message) {
+        synchronized (this) {
+            int length = message == null ? 0 : Math.min(message.length(), maxChars);
+            if (size == capacity) {
+                removeFirst();
+            }
+            if (names.size() + 2 > nameLimit) {
+                compactNames();
+            }
+            int offset = reserve(length);
+            if (message instanceof String) {
+                ((String) message).getChars(0, length, arena, offset);
+            } else {
+                for (int i = 0; i < length; ++i) {
+                    arena[offset + i] = message.charAt(i);
+                }
+            }
+            int index = (head + size) % capacity;
+            levels[index] = levelCode(level);
+            millis[index] = time;
+            loggers[index] = intern(logger);
+            threads[index] = intern(thread);
+            messageStarts[index] = arenaBase + offset;
+            messageLengths[index] = length;
+            arenaEnd = arenaBase + offset + length;
+            size++;
+            appended++;
+        }
+        fireStateChanged();
+    }
+
+    /**
+     * Reserves space for {@code length} characters at the end of the arena. Old records are dropped if the total
+     * number of characters would exceed the limit. Returns the physical offset of the reserved space.
+     *
+     * @param length the number of characters
+     * @return the physical offset of the reserved space
+     */
+    private int reserve(int length) {
+        while (size > 0 && arenaEnd - messageStarts[head] + length > maxChars) {
+            removeFirst();
+        }
+        if (arenaEnd - arenaBase + length <= arena.length) {
+            return (int) (arenaEnd - arenaBase);
+        }
+        long liveStart = size > 0 ? messageStarts[head] : arenaEnd;
+        int used = (int) (arenaEnd - liveStart);
+        char[] target = arena;
+        if (used + length > arena.length) {
+            int newLength = (int) Math.min(maxChars, Math.max(used + (long) length, 2L * arena.length));
+            target = new char[newLength];
+        }
+        System.arraycopy(arena, (int) (liveStart - arenaBase), target, 0, used);
+        arena = target;
+        arenaBase = liveStart;
+        return used;
+    }
+
+    /**
+     * Drops the oldest record.
+     */
+    private void removeFirst() {
+        head = (head + 1) % capacity;
+        size--;
+        if (size == 0) {
+            arenaBase = arenaEnd;
+        }
+    }
+
+    /**
+     * Removes all records and the interned names.
+     */
+    public void clear() {
+        synchronized (this) {
+            head = 0;
+            size = 0;
+            arenaBase = arenaEnd;
+            names.clear();
+            nameIds.clear();
+        }
+        fireStateChanged();
+    }
+
+    /**
+     * Returns the id of a name. New names are added to the name table.
+     *
+     * @param name the name
+     * @return the id of the name
+     */
+    private int intern(String name) {
+        String key = name == null ? "" : name;
+        Integer id = nameIds.get(key);
+        if (id == null) {
+            id = names.size();
+            names.add(key);
+            nameIds.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * Rebuilds the name table with the names of the live records only, so that the table does not grow without limit
+     * if names are not reused, for example for short living threads. The ids of the live records are updated.
+     */
+    private void compactNames() {
+        ArrayList<String> oldNames = new ArrayList<>(names);
+        names.clear();
+        nameIds.clear();
+        for (int i = 0; i < size; ++i) {
+            int index = (head + i) % capacity;
+            loggers[index] = intern(oldNames.get(loggers[index]));
+            threads[index] = intern(oldNames.get(threads[index]));
+        }
+    }
+
+    /**
+     * Returns the number of interned names.
+     *
+     * @return the number of interned names
+     */
+    synchronized int getNameCount() {
+        return names.size();
+    }
+
+    /**
+     * Returns the code of a level. Non standard levels are mapped to the next smaller standard level.
+     *
+     * @param level the level
+     * @return the code for the level
+     */
+    static byte levelCode(Level level) {
+        int value = level == null ? Level.INFO.intValue() : level.intValue();
+        byte code = 0;
+        while (code + 1 < LEVELS.length && LEVELS[code + 1].intValue() <= value) {
+            code++;
+        }
+        return code;
+    }
+
+    /**
+     * Returns the level that belongs to a level code.
+     *
+     * @param code the level code
+     * @return the level for the code
+     */
+    public static Level getLevel(int code) {
+        return LEVELS[code];
+    }
+
+    /**
+     * Returns the number of level codes.
+     *
+     * @return the number of level codes
+     */
+    public static int getLevelCount() {
+        return LEVELS.length;
+    }
+
+    /**
+     * Returns the name with a given id.
+     *
+     * @param id the id of a logger or thread name
+     * @return the name
+     */
+    public synchronized String getName(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Returns the number of live records.
+     *
+     * @return the number of live records
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the maximal number of records.
+     *
+     * @return the maximal number of records
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the sequence number of the oldest live record.
+     *
+     * @return the sequence number of the oldest live record
+     */
+    public synchronized long getFirstSequence() {
+        return appended - size;
+    }
+
+    /**
+     * Returns the sequence number the next appended record will get.
+     *
+     * @return the sequence number after the newest record
+     */
+    public synchronized long getEndSequence() {
+        return appended;
+    }
+
+    /**
+     * Visits records in the order they were appended, starting at a given sequence number. Sequence numbers that
+     * have already been dropped are skipped. The store is locked while the visitor runs, so the visitor should not
+     * block.
+     *
+     * @param fromSequence the sequence number of the first record to visit
+     * @param maxCount the maximal number of records to visit
+     * @param visitor the visitor
+     * @return the sequence number after the last visited record
+     */
+    public synchronized long forEach(long fromSequence, int maxCount, RecordVisitor visitor) {
+        long sequence = Math.max(fromSequence, appended - size);
+        long end = Math.min(appended, sequence + Math.max(maxCount, 0));
+        for (; sequence < end; ++sequence) {
+            int index = (int) ((head + (sequence - appended + size)) % capacity);
+            visitor.visit(sequence, levels[index], millis[index], loggers[index], threads[index], arena,
+                    (int) (messageStarts[index] - arenaBase), messageLengths[index]);
+        }
+        return end;
+    }
+
+    /**
+     * Returns the message of a record as {@code String}. Mainly useful for tests and single records, for bulk access
+     * use {@link #forEach(long, int, RecordVisitor)}.
+     *
+     * @param sequence the sequence number of the record
+     * @return the message or {@code null} if the record is not live
+     */
+    public synchronized String getMessage(long sequence) {
+        if (sequence < appended - size || sequence >= appended) {
+            return null;
+        }
+        int index = (int) ((head + (sequence - appended + size)) % capacity);
+        return new String(arena, (int) (messageStarts[index] - arenaBase), messageLengths[index]);
+    }
+
+    /**
+     * Adds a listener that is notified whenever records are appended or removed.
+     *
+     * @param listener the listener
+     */
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener the listener
+     */
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireStateChanged() {
+        for (ChangeListener listener : listeners) {
+            listener.stateChanged(event);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.log;
+
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * A logging {@link Handler} that appends published records to a {@link LogRecordStore}. The message is formatted
+ * using the parameters of the record, but no other formatting such as HTML is applied.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class LogRecordStoreHandler extends Handler {
+
+    /** The store receiving the records. */
+    private final LogRecordStore store;
+
+    /**
+     * Creates a new handler writing to a given store.
+     *
+     * @param store the store receiving the records
+     */
+    public LogRecordStoreHandler(LogRecordStore store) {
+        this.store = store;
+        setFormatter(new SimpleFormatter());
+    }
+
+    /**
+     * Returns the store receiving the records.
+     *
+     * @return the store receiving the records
+     */
+    public LogRecordStore getStore() {
+        return store;
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        String message = getFormatter().formatMessage(record);
+        if (record.getThrown() != null) {
+            message = message + " " + record.getThrown();
+        }
+        store.append(record.getLevel(), record.getMillis(), record.getLoggerName(), threadName(record), message);
+    }
+
+    /**
+     * Returns the name of the thread that created the record. Logging is usually synchronous, then the name of the
+     * current thread is used. Otherwise only the id is known.
+     *
+     * @param record the record
+     * @return a name for the thread of the record
+     */
+    private static String threadName(LogRecord record) {
+        Thread current = Thread.currentThread();
+        if ((int) current.getId() == record.getThreadID()) {
+            return current.getName();
+        }
+        return "Thread-" + record.getThreadID();
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,68 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.status;
+
+import org.zetool.components.ComponentLocalization;
+import org.zetool.components.diagnostics.EventDispatchWatchdog;
+
+/**
+ * Displays the current latency of the event dispatch thread and the number of detected stalls, as measured by an
+ * {@link EventDispatchWatchdog}. As the gauge is painted by the event dispatch thread itself, a long stall becomes
+ * visible after the thread is responsive again.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class EventDispatchLagGauge extends StatusGauge {
+
+    /** The label preceding the latency. */
+    private final String label;
+    /** The label preceding the number of stalls. */
+    private final String stallLabel;
+    /** The watchdog measuring the latency. */
+    private final EventDispatchWatchdog watchdog;
+
+    /**
+     * Creates a new gauge for a watchdog. The watchdog is not started by the gauge.
+     *
+     * @param watchdog the watchdog measuring the latency
+     */
+    public EventDispatchLagGauge(EventDispatchWatchdog watchdog) {
+        this(watchdog, ComponentLocalization.LOC.getString("Status.EventDispatchLag"),
+                ComponentLocalization.LOC.getString("Status.Stalls"));
+    }
+
+    private EventDispatchLagGauge(EventDispatchWatchdog watchdog, String label, String stallLabel) {
+        super(label + ": 000000 ms, " + stallLabel + ": 0000");
+        this.watchdog = watchdog;
+        this.label = label;
+        this.stallLabel = stallLabel;
+    }
+
+    /**
+     * Returns the watchdog measuring the latency.
+     *
+     * @return the watchdog measuring the latency
+     */
+    public EventDispatchWatchdog getWatchdog() {
+        return watchdog;
+    }
+
+    @Override
+    protected void sample() {
+        append(label).append(": ").append(watchdog.getCurrentLagMillis()).append(" ms, ").append(stallLabel)
+                .append(": ").append(watchdog.getStallCount());
+    }
+}
@@ -0,0 +1,66 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.status;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import org.zetool.components.ComponentLocalization;
+
+/**
+ * Displays the number of garbage collections and the total time spent in garbage collection since the start of the
+ * virtual machine. The values of all collectors are added up. The time of the collections since the previous sample
+ * is displayed in parentheses.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class GarbageCollectionGauge extends StatusGauge {
+
+    /** The label preceding the values. */
+    private final String label;
+    /** The garbage collectors. */
+    private final GarbageCollectorMXBean[] collectors;
+    /** The total collection time at the previous sample. */
+    private long previousTime = -1;
+
+    /**
+     * Creates a new gauge for all garbage collectors of the virtual machine.
+     */
+    public GarbageCollectionGauge() {
+        this(ComponentLocalization.LOC.getString("Status.GC"));
+    }
+
+    private GarbageCollectionGauge(String label) {
+        super(label + ": 000000 / 000000 ms (+00000 ms)");
+        this.label = label;
+        List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+        collectors = beans.toArray(new GarbageCollectorMXBean[beans.size()]);
+    }
+
+    @Override
+    protected void sample() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(0, collector.getCollectionCount());
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        long recent = previousTime < 0 ? 0 : time - previousTime;
+        previousTime = time;
+        append(label).append(": ").append(count).append(" / ").append(time).append(" ms (+").append(recent)
+                .append(" ms)");
+    }
+}
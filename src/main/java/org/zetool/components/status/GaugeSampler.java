@@ -0,0 +1,82 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.status;
+
+import java.util.ArrayList;
+import javax.swing.Timer;
+
+/**
+ * The shared timer sampling all displayed {@link StatusGauge}s. The timer runs on the event dispatch thread and only
+ * while at least one gauge is displayed.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+final class GaugeSampler {
+
+    /** The default time between two samples in milliseconds. */
+    static final int SAMPLE_DELAY = 1000;
+    /** The single instance. */
+    private static final GaugeSampler SAMPLER = new GaugeSampler();
+    /** The displayed gauges. */
+    private final ArrayList<StatusGauge> gauges = new ArrayList<>();
+    /** The timer sampling the gauges. */
+    private final Timer timer = new Timer(SAMPLE_DELAY, e -> sample());
+
+    private GaugeSampler() {
+    }
+
+    /**
+     * Returns the shared sampler.
+     *
+     * @return the shared sampler
+     */
+    static GaugeSampler getSampler() {
+        return SAMPLER;
+    }
+
+    /**
+     * Adds a gauge that is sampled from now on. The gauge is sampled immediately. Called on the event dispatch thread.
+     *
+     * @param gauge the gauge
+     */
+    void register(StatusGauge gauge) {
+        if (!gauges.contains(gauge)) {
+            gauges.add(gauge);
+        }
+        gauge.update();
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Removes a gauge. The timer stops if no gauge is left. Called on the event dispatch thread.
+     *
+     * @param gauge the gauge
+     */
+    void unregister(StatusGauge gauge) {
+        gauges.remove(gauge);
+        if (gauges.isEmpty()) {
+            timer.stop();
+        }
+    }
+
+    private void sample() {
+        for (int i = 0; i < gauges.size(); ++i) {
+            gauges.get(i).update();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.status;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import org.zetool.components.ComponentLocalization;
+
+/**
+ * Displays the used and the maximal memory in megabytes, either of the heap or of the non-heap memory.
+ * <p>
+ * The heap is sampled using {@link Runtime}, which does not create any objects. The non-heap memory is only available
+ * as {@link MemoryUsage} objects, from the {@link MemoryMXBean} as well as from the memory pools, so sampling it creates
+ * one object per sample. Use the heap gauge if sampling must not create objects.</p>
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class MemoryGauge extends StatusGauge {
+
+    /**
+     * The memory areas that can be displayed.
+     */
+    public enum Area {
+        /** The heap containing the objects. */
+        HEAP("Status.Heap"),
+        /** The memory outside of the heap, e.g. for classes and compiled code. */
+        NON_HEAP("Status.NonHeap");
+        /** The localization key for the label. */
+        private final String key;
+
+        Area(String key) {
+            this.key = key;
+        }
+    }
+
+    /** The number of bytes in a megabyte. */
+    private static final long MEGABYTE = 1024 * 1024;
+    /** The displayed memory area. */
+    private final Area area;
+    /** The label preceding the values. */
+    private final String label;
+    /** The runtime used to sample the heap. */
+    private final Runtime runtime = Runtime.getRuntime();
+    /** The bean used to sample the non-heap memory. */
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    /**
+     * Creates a new gauge for the heap.
+     */
+    public MemoryGauge() {
+        this(Area.HEAP);
+    }
+
+    /**
+     * Creates a new gauge for a memory area.
+     *
+     * @param area the displayed memory area
+     */
+    public MemoryGauge(Area area) {
+        this(area, ComponentLocalization.LOC.getString(area.key));
+    }
+
+    private MemoryGauge(Area area, String label) {
+        super(label + ": 00000 / 00000 MB");
+        this.area = area;
+        this.label = label;
+    }
+
+    @Override
+    protected void sample() {
+        long used;
+        long max;
+        if (area == Area.HEAP) {
+            used = runtime.totalMemory() - runtime.freeMemory();
+            max = runtime.maxMemory();
+        } else {
+            MemoryUsage usage = memory.getNonHeapMemoryUsage();
+            used = usage.getUsed();
+            max = usage.getMax() < 0 ? usage.getCommitted() : usage.getMax();
+        }
+        append(label).append(": ").append(used / MEGABYTE).append(" / ").append(max / MEGABYTE).append(" MB");
+    }
+}
@@ -0,0 +1,164 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.status;
+
+/**
+ * Writes numbers into character buffers without creating strings.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+final class NumberFormatter {
+
+    /** The powers of ten that can be represented by a {@code long}. */
+    private static final long[] POWERS = new long[19];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; ++i) {
+            POWERS[i] = 10 * POWERS[i - 1];
+        }
+    }
+
+    /** Utility class constructor. */
+    private NumberFormatter() {
+    }
+
+    /**
+     * Writes the decimal digits of a number into a buffer. The buffer must have space for 20 characters.
+     *
+     * @param value the number
+     * @param target the buffer
+     * @param position the first position in the buffer
+     * @return the position after the last written character
+     */
+    static int format(long value, char[] target, int position) {
+        if (value == Long.MIN_VALUE) {
+            for (char c : "-9223372036854775808".toCharArray()) {
+                target[position++] = c;
+            }
+            return position;
+        }
+        if (value < 0) {
+            target[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        while (digits < 19 && value >= POWERS[digits]) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; --i) {
+            target[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + digits;
+    }
+
+    /**
+     * Writes a number with a fixed number of decimals into a buffer. The number is rounded half up. Numbers that are
+     * not finite or too large to be represented as {@code long} are written using {@link Double#toString(double)}.
+     * The buffer must have space for 40 characters.
+     *
+     * @param value the number
+     * @param decimals the number of decimals, at most 18
+     * @param target the buffer
+     * @param position the first position in the buffer
+     * @return the position after the last written character
+     */
+    static int format(double value, int decimals, char[] target, int position) {
+        decimals = Math.max(0, Math.min(decimals, 18));
+        double scaled = Math.abs(value) * POWERS[decimals];
+        if (Double.isNaN(value) || scaled >= Long.MAX_VALUE) {
+            String text = Double.toString(value);
+            text.getChars(0, Math.min(text.length(), 40), target, position);
+            return position + Math.min(text.length(), 40);
+        }
+        long rounded = Math.round(scaled);
+        if (value < 0 && rounded != 0) {
+            target[position++] = '-';
+        }
+        position = format(rounded / POWERS[decimals], target, position);
+        if (decimals > 0) {
+            target[position++] = '.';
+            long fraction = rounded % POWERS[decimals];
+            for (int i = position + decimals - 1; i >= position; --i) {
+                target[i] = (char) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            position += decimals;
+        }
+        return position;
+    }
+
+    /**
+     * Writes a fixed point number into a buffer. The number is given as integer that is scaled by
+     * {@code 10^decimals}. The buffer must have space for 21 characters.
+     *
+     * @param scaled the number multiplied by {@code 10^decimals}
+     * @param decimals the number of decimals, at most 18
+     * @param target the buffer
+     * @param position the first position in the buffer
+     * @return the position after the last written character
+     */
+    static int formatScaled(long scaled, int decimals, char[] target, int position) {
+        if (decimals <= 0) {
+            return format(scaled, target, position);
+        }
+        long power = POWERS[Math.min(decimals, 18)];
+        long integer = scaled / power;
+        long fraction = Math.abs(scaled % power);
+        if (scaled < 0 && integer == 0) {
+            target[position++] = '-';
+        }
+        position = format(integer, target, position);
+        target[position++] = '.';
+        for (int i = position + decimals - 1; i >= position; --i) {
+            target[i] = (char) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        return position + decimals;
+    }
+
+    /**
+     * Returns a power of ten.
+     *
+     * @param exponent the exponent, between 0 and 18
+     * @return {@code 10^exponent}
+     */
+    static long power(int exponent) {
+        return POWERS[exponent];
+    }
+
+    /**
+     * Compares the first characters of two buffers.
+     *
+     * @param first the first buffer
+     * @param firstLength the number of characters in the first buffer
+     * @param second the second buffer
+     * @param secondLength the number of characters in the second buffer
+     * @return {@code true} if both buffers contain the same characters
+     */
+    static boolean equals(char[] first, int firstLength, char[] second, int secondLength) {
+        if (firstLength != secondLength) {
+            return false;
+        }
+        for (int i = 0; i < firstLength; ++i) {
+            if (first[i] != second[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,273 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.status;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Insets;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import javax.swing.JComponent;
+import javax.swing.UIManager;
+import javax.swing.border.EtchedBorder;
+import org.zetool.components.diagnostics.RepaintProfiler;
+
+/**
+ * A status bar element displaying a number, for example a counter or an elapsed time. The value is kept as primitive
+ * and can be set from any thread without creating objects. The element is repainted only if the displayed value
+ * changes and it never changes its size, so updates never cause a new layout of the status bar.
+ * <p>
+ * The value is displayed with a fixed number of decimals, optionally preceded by a label and followed by a unit. The
+ * digits are painted from images of the glyphs that are rendered once for the font and color of the element. All
+ * digits use the same width, so the number does not jitter while it changes. A value that does not fit into the
+ * maximal number of characters is displayed as a field of {@code #}, so that no digits are cut off silently.</p>
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class NumericElement extends JComponent {
+
+    /** The characters that are rendered as glyph images. */
+    private static final String GLYPHS = "0123456789-.#";
+    /** The space between the border and the text. */
+    private static final int PADDING = 2;
+    /** The label preceding the value. */
+    private final String label;
+    /** The unit following the value. */
+    private final String unit;
+    /** The number of decimals. */
+    private final int decimals;
+    /** The maximal number of displayed characters of the value. */
+    private final int maxCharacters;
+    /** The value multiplied by {@code 10^decimals}. */
+    private volatile long scaled;
+    /** The buffer for the formatted value. */
+    private final char[] text = new char[24];
+    /** The glyph images, by index in {@link #GLYPHS}. */
+    private BufferedImage[] glyphs;
+    /** The font of the glyph images. */
+    private Font glyphFont;
+    /** The color of the glyph images. */
+    private Color glyphColor;
+    /** The scale of the glyph images. */
+    private double glyphScale;
+    /** The width of a glyph cell. */
+    private int glyphWidth;
+
+    /**
+     * Creates a new element displaying an integer without label and unit.
+     *
+     * @param maxCharacters the maximal number of characters of the value, including sign
+     */
+    public NumericElement(int maxCharacters) {
+        this("", 0, "", maxCharacters);
+    }
+
+    /**
+     * Creates a new element.
+     *
+     * @param label the label preceding the value, may be empty
+     * @param decimals the number of decimals, between 0 and 18
+     * @param unit the unit following the value, may be empty
+     * @param maxCharacters the maximal number of characters of the value, including sign and decimal point
+     * @throws IllegalArgumentException if the number of decimals or characters is invalid
+     */
+    public NumericElement(String label, int decimals, String unit, int maxCharacters) {
+        if (decimals < 0 || decimals > 18 || maxCharacters <= 0 || maxCharacters > 21) {
+            throw new IllegalArgumentException("Invalid format: " + decimals + " decimals, " + maxCharacters
+                    + " characters.");
+        }
+        this.label = label;
+        this.unit = unit;
+        this.decimals = decimals;
+        this.maxCharacters = maxCharacters;
+        setBorder(new EtchedBorder());
+        setFont(UIManager.getFont("Label.font"));
+        setForeground(UIManager.getColor("Label.foreground"));
+    }
+
+    /**
+     * Sets an integral value. Can be called from any thread. A value that cannot be represented with the number of
+     * decimals is displayed as overflow.
+     *
+     * @param value the new value
+     */
+    public void setValue(long value) {
+        long power = NumberFormatter.power(decimals);
+        long limit = Long.MAX_VALUE / power;
+        update(value > limit ? Long.MAX_VALUE : value < -limit ? Long.MIN_VALUE : value * power);
+    }
+
+    /**
+     * Sets a value that is rounded to the number of decimals. Can be called from any thread. Infinite values, values
+     * that are too large and {@code NaN} are displayed as overflow.
+     *
+     * @param value the new value
+     */
+    public void setValue(double value) {
+        update(Double.isNaN(value) ? Long.MAX_VALUE : Math.round(value * NumberFormatter.power(decimals)));
+    }
+
+    /**
+     * Returns the displayed value.
+     *
+     * @return the displayed value, rounded to the number of decimals
+     */
+    public double getValue() {
+        return (double) scaled / NumberFormatter.power(decimals);
+    }
+
+    private void update(long newScaled) {
+        if (newScaled != scaled) {
+            scaled = newScaled;
+            repaint();
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        FontMetrics metrics = getFontMetrics(getFont());
+        Insets insets = getInsets();
+        int width = labelWidth(metrics) + maxCharacters * cellWidth(metrics) + unitWidth(metrics);
+        return new Dimension(width + insets.left + insets.right + 2 * PADDING,
+                metrics.getHeight() + insets.top + insets.bottom);
+    }
+
+    private int labelWidth(FontMetrics metrics) {
+        return label.isEmpty() ? 0 : metrics.stringWidth(label) + metrics.charWidth(' ');
+    }
+
+    private int unitWidth(FontMetrics metrics) {
+        return unit.isEmpty() ? 0 : metrics.stringWidth(unit) + metrics.charWidth(' ');
+    }
+
+    private static int cellWidth(FontMetrics metrics) {
+        int width = 0;
+        for (int i = 0; i < GLYPHS.length(); ++i) {
+            width = Math.max(width, metrics.charWidth(GLYPHS.charAt(i)));
+        }
+        return width;
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        long start = RepaintProfiler.paintStarted();
+        super.paint(g);
+        RepaintProfiler.paintFinished(this, g, start);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        FontMetrics metrics = g.getFontMetrics(getFont());
+        Insets insets = getInsets();
+        int height = getHeight() - insets.top - insets.bottom;
+        int top = insets.top + (height - metrics.getHeight()) / 2;
+        int baseline = top + metrics.getAscent();
+        int x = insets.left + PADDING;
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(getFont());
+        g.setColor(getForeground());
+        if (!label.isEmpty()) {
+            g.drawString(label, x, baseline);
+            x += labelWidth(metrics);
+        }
+
+        updateGlyphs(g2, metrics);
+        int length = formatValue();
+        x += (maxCharacters - length) * glyphWidth;
+        for (int i = 0; i < length; ++i) {
+            g.drawImage(glyphs[GLYPHS.indexOf(text[i])], x, top, glyphWidth, metrics.getHeight(), null);
+            x += glyphWidth;
+        }
+
+        if (!unit.isEmpty()) {
+            g.drawString(unit, x + metrics.charWidth(' '), baseline);
+        }
+    }
+
+    /**
+     * Formats the displayed value into {@link #text}. A value with more than the maximal number of characters, or a
+     * value that exceeded the range of a {@code long} when it was scaled, is formatted as a field of {@code #}.
+     *
+     * @return the number of formatted characters
+     */
+    private int formatValue() {
+        long value = scaled;
+        if (value != Long.MAX_VALUE && value != Long.MIN_VALUE) {
+            int length = NumberFormatter.formatScaled(value, decimals, text, 0);
+            if (length <= maxCharacters) {
+                return length;
+            }
+        }
+        Arrays.fill(text, 0, maxCharacters, '#');
+        return maxCharacters;
+    }
+
+    /**
+     * Returns the characters of the displayed value.
+     *
+     * @return the displayed characters
+     */
+    String getDisplayedText() {
+        return new String(text, 0, formatValue());
+    }
+
+    /**
+     * Renders the glyph images if the font, the color or the scale of the graphics changed.
+     *
+     * @param g the graphics context
+     * @param metrics the metrics of the font
+     */
+    private void updateGlyphs(Graphics2D g, FontMetrics metrics) {
+        double scale = g.getTransform().getScaleX();
+        if (glyphs != null && getFont().equals(glyphFont) && getForeground().equals(glyphColor)
+                && scale == glyphScale) {
+            return;
+        }
+        glyphFont = getFont();
+        glyphColor = getForeground();
+        glyphScale = scale;
+        glyphWidth = cellWidth(metrics);
+        int width = (int) Math.ceil(glyphWidth * scale);
+        int height = (int) Math.ceil(metrics.getHeight() * scale);
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        glyphs = new BufferedImage[GLYPHS.length()];
+        for (int i = 0; i < GLYPHS.length(); ++i) {
+            BufferedImage image = configuration == null
+                    ? new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB)
+                    : configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+            Graphics2D ig = image.createGraphics();
+            ig.scale(scale, scale);
+            ig.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            ig.setFont(glyphFont);
+            ig.setColor(glyphColor);
+            char c = GLYPHS.charAt(i);
+            ig.drawString(String.valueOf(c), (glyphWidth - metrics.charWidth(c)) / 2f, metrics.getAscent());
+            ig.dispose();
+            glyphs[i] = image;
+        }
+    }
+}
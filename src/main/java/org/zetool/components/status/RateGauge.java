@@ -0,0 +1,79 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.status;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Displays the rate of events per second. The events are counted by a {@link LongAdder} that can be incremented
+ * from any thread at low cost. At each sample the counter is reset and the rate since the previous sample is
+ * displayed.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class RateGauge extends StatusGauge {
+
+    /** The label preceding the rate. */
+    private final String label;
+    /** The unit following the rate. */
+    private final String unit;
+    /** The counter of the events. */
+    private final LongAdder counter;
+    /** The time of the previous sample in nanoseconds. */
+    private long previousSample = System.nanoTime();
+
+    /**
+     * Creates a new gauge with its own counter.
+     *
+     * @param label the label preceding the rate
+     * @param unit the unit following the rate, for example {@code "events/s"}
+     */
+    public RateGauge(String label, String unit) {
+        this(label, unit, new LongAdder());
+    }
+
+    /**
+     * Creates a new gauge for an existing counter. The counter is reset by each sample.
+     *
+     * @param label the label preceding the rate
+     * @param unit the unit following the rate, for example {@code "events/s"}
+     * @param counter the counter of the events
+     */
+    public RateGauge(String label, String unit, LongAdder counter) {
+        super(label + ": 000000000.0 " + unit);
+        this.label = label;
+        this.unit = unit;
+        this.counter = counter;
+    }
+
+    /**
+     * Returns the counter of the events.
+     *
+     * @return the counter of the events
+     */
+    public LongAdder getCounter() {
+        return counter;
+    }
+
+    @Override
+    protected void sample() {
+        long now = System.nanoTime();
+        long events = counter.sumThenReset();
+        double seconds = (now - previousSample) / 1e9;
+        previousSample = now;
+        append(label).append(": ").append(seconds > 0 ? events / seconds : 0, 1).append(' ').append(unit);
+    }
+}
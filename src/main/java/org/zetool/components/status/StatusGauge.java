@@ -0,0 +1,201 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.status;
+
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.Toolkit;
+import java.util.Arrays;
+import java.util.Map;
+import javax.swing.JComponent;
+import javax.swing.UIManager;
+import javax.swing.border.EtchedBorder;
+import org.zetool.components.diagnostics.RepaintProfiler;
+
+/**
+ * Base class for status bar elements that display a periodically sampled value. The gauges can be added to a
+ * {@link org.zetool.components.JStatusBar} using {@code addElement(JComponent)}.
+ * <p>
+ * All gauges are sampled by one shared timer on the event dispatch thread while they are displayed. The text is
+ * written into a reused character buffer and painted directly, no strings are created per sample. Whether reading the
+ * value itself creates objects depends on the gauge, see {@link MemoryGauge}. The preferred size
+ * is computed from a template text and does not change, so a new sample only causes a repaint and only if the text
+ * changed.</p>
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public abstract class StatusGauge extends JComponent {
+
+    /** The space between the border and the text. */
+    private static final int PADDING = 2;
+    /** The text that is displayed. */
+    private char[] text = new char[32];
+    /** The length of the displayed text. */
+    private int length;
+    /** The text that is written by the current sample. */
+    private char[] next = new char[32];
+    /** The length of the text written by the current sample. */
+    private int nextLength;
+    /** A text at least as wide as all texts displayed by the gauge. */
+    private final String template;
+
+    /**
+     * Creates a new gauge.
+     *
+     * @param template a text that is at least as wide as all texts displayed by the gauge
+     */
+    protected StatusGauge(String template) {
+        this.template = template;
+        setBorder(new EtchedBorder());
+        setFont(UIManager.getFont("Label.font"));
+        setForeground(UIManager.getColor("Label.foreground"));
+    }
+
+    /**
+     * Samples the current value and writes the text using the {@code append} methods. Called on the event dispatch
+     * thread.
+     */
+    protected abstract void sample();
+
+    /**
+     * Samples the value and repaints if the displayed text changed.
+     */
+    final void update() {
+        nextLength = 0;
+        sample();
+        if (!NumberFormatter.equals(text, length, next, nextLength)) {
+            char[] swap = text;
+            text = next;
+            next = swap;
+            length = nextLength;
+            repaint();
+        }
+    }
+
+    /**
+     * Returns the text of the latest sample.
+     *
+     * @return the displayed text
+     */
+    String getText() {
+        return new String(text, 0, length);
+    }
+
+    /**
+     * Appends characters to the text of the current sample.
+     *
+     * @param chars the characters
+     * @return this gauge
+     */
+    protected final StatusGauge append(CharSequence chars) {
+        ensureCapacity(chars.length());
+        for (int i = 0; i < chars.length(); ++i) {
+            next[nextLength++] = chars.charAt(i);
+        }
+        return this;
+    }
+
+    /**
+     * Appends a character to the text of the current sample.
+     *
+     * @param c the character
+     * @return this gauge
+     */
+    protected final StatusGauge append(char c) {
+        ensureCapacity(1);
+        next[nextLength++] = c;
+        return this;
+    }
+
+    /**
+     * Appends the decimal digits of a number to the text of the current sample.
+     *
+     * @param value the number
+     * @return this gauge
+     */
+    protected final StatusGauge append(long value) {
+        ensureCapacity(20);
+        nextLength = NumberFormatter.format(value, next, nextLength);
+        return this;
+    }
+
+    /**
+     * Appends a number with a fixed number of decimals to the text of the current sample.
+     *
+     * @param value the number
+     * @param decimals the number of decimals
+     * @return this gauge
+     */
+    protected final StatusGauge append(double value, int decimals) {
+        ensureCapacity(40);
+        nextLength = NumberFormatter.format(value, decimals, next, nextLength);
+        return this;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (nextLength + additional > next.length) {
+            next = Arrays.copyOf(next, Math.max(2 * next.length, nextLength + additional));
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        FontMetrics metrics = getFontMetrics(getFont());
+        Insets insets = getInsets();
+        return new Dimension(metrics.stringWidth(template) + insets.left + insets.right + 2 * PADDING,
+                metrics.getHeight() + insets.top + insets.bottom);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        GaugeSampler.getSampler().register(this);
+    }
+
+    @Override
+    public void removeNotify() {
+        GaugeSampler.getSampler().unregister(this);
+        super.removeNotify();
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        long start = RepaintProfiler.paintStarted();
+        super.paint(g);
+        RepaintProfiler.paintFinished(this, g, start);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Map<?, ?> hints = (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+        if (hints != null) {
+            ((Graphics2D) g).addRenderingHints(hints);
+        }
+        Insets insets = getInsets();
+        FontMetrics metrics = g.getFontMetrics(getFont());
+        int height = getHeight() - insets.top - insets.bottom;
+        g.setFont(getFont());
+        g.setColor(getForeground());
+        g.drawChars(text, 0, length, insets.left + PADDING,
+                insets.top + (height - metrics.getHeight()) / 2 + metrics.getAscent());
+    }
+}
@@ -0,0 +1,156 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import info.clearthought.layout.TableLayout;
+import java.awt.event.ContainerAdapter;
+import java.awt.event.ContainerEvent;
+import java.lang.reflect.InvocationTargetException;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+import org.zetool.components.framework.FrameScheduler;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests batch updates of a {@link JArrayPanel}.
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestArrayPanel {
+    private JArrayPanel panel;
+    private RepaintManager repaintManager;
+    private int invalidations;
+    private int added;
+
+    @Before
+    public void setup() {
+        panel = new JArrayPanel( 10, 10 );
+        new JPanel().add( panel );
+        for( int i = 0; i < 10; i++ )
+            panel.set( new JLabel( "" + i ), i, i );
+        panel.addContainerListener( new ContainerAdapter() {
+            @Override
+            public void componentAdded( ContainerEvent e ) {
+                added++;
+            }
+        } );
+        repaintManager = RepaintManager.currentManager( panel );
+        RepaintManager.setCurrentManager( new RepaintManager() {
+            @Override
+            public void addInvalidComponent( JComponent invalidComponent ) {
+                invalidations++;
+            }
+        } );
+    }
+
+    @After
+    public void tearDown() {
+        RepaintManager.setCurrentManager( repaintManager );
+    }
+
+    @Test
+    public void testBatchUpdate() throws InterruptedException, InvocationTargetException {
+        JLabel moved = (JLabel)panel.get( 2, 2 );
+        SwingUtilities.invokeAndWait( () -> {
+            invalidations = 0;
+            added = 0;
+            panel.beginUpdate();
+            for( int i = 0; i < 10; i++ )
+                panel.set( new JLabel( "x" ), i, 0 );
+            panel.set( moved, 5, 4 );
+            panel.remove( 2, 2 );
+            panel.remove( 3, 3 );
+            panel.setColumnWidth( 1, 100 );
+            panel.setRowHeight( 4, TableLayout.FILL );
+            assertThat( panel.isUpdating(), is( true ) );
+            assertThat( invalidations, is( 0 ) );
+            panel.commitUpdate();
+        } );
+
+        assertThat( invalidations, is( 1 ) );
+        // ten new labels and the moved one
+        assertThat( added, is( 11 ) );
+        assertThat( panel.getComponentCount(), is( 18 ) );
+        assertThat( panel.get( 2, 2 ), is( nullValue() ) );
+        TableLayout layout = (TableLayout)panel.getLayout();
+        assertThat( layout.getColumn( 1 ), is( 100.0 ) );
+        assertThat( layout.getRow( 4 ), is( TableLayout.FILL ) );
+        assertThat( layout.getConstraints( moved ).col1, is( 5 ) );
+        assertThat( layout.getConstraints( moved ).row1, is( 4 ) );
+    }
+
+    @Test
+    public void testInsertAndDelete() {
+        JLabel first = (JLabel)panel.get( 3, 3 );
+        JLabel second = (JLabel)panel.get( 7, 7 );
+        panel.insertRow( 5, 20 );
+        panel.insertColumn( 0, TableLayout.PREFERRED );
+        assertThat( panel.getRowCount(), is( 11 ) );
+        assertThat( panel.getColumnCount(), is( 11 ) );
+        assertThat( panel.get( 4, 3 ), is( first ) );
+        assertThat( panel.get( 8, 8 ), is( second ) );
+        assertThat( panel.get( 8, 5 ), is( nullValue() ) );
+        TableLayout layout = (TableLayout)panel.getLayout();
+        assertThat( layout.getConstraints( second ).col1, is( 8 ) );
+        assertThat( layout.getConstraints( second ).row1, is( 8 ) );
+        assertThat( layout.getRow( 5 ), is( 20.0 ) );
+
+        panel.deleteRow( 3 );
+        assertThat( panel.getRowCount(), is( 10 ) );
+        assertThat( first.getParent(), is( nullValue() ) );
+        assertThat( panel.getComponentCount(), is( 9 ) );
+        assertThat( panel.get( 8, 7 ), is( second ) );
+        assertThat( layout.getConstraints( second ).row1, is( 7 ) );
+
+        panel.set( first, 0, 9 );
+        panel.rebuild();
+        layout = (TableLayout)panel.getLayout();
+        assertThat( layout.getConstraints( first ).row1, is( 9 ) );
+        assertThat( layout.getConstraints( second ).col1, is( 8 ) );
+    }
+
+    @Test
+    public void testScheduledRebuild() throws InterruptedException, InvocationTargetException {
+        FrameScheduler scheduler = new FrameScheduler();
+        JLabel old = (JLabel)panel.get( 2, 2 );
+        JLabel replacement = new JLabel( "replacement" );
+        SwingUtilities.invokeAndWait( () -> {
+            panel.rebuild( scheduler );
+            assertThat( panel.isUpdating(), is( true ) );
+            panel.set( replacement, 2, 2 );
+            assertThat( replacement.getParent(), is( nullValue() ) );
+            scheduler.runFrame();
+        } );
+        assertThat( panel.isUpdating(), is( false ) );
+        assertThat( old.getParent(), is( nullValue() ) );
+        assertThat( panel.getComponentCount(), is( 10 ) );
+        TableLayout layout = (TableLayout)panel.getLayout();
+        assertThat( layout.getConstraints( replacement ).row1, is( 2 ) );
+        assertThat( layout.getConstraints( panel.get( 7, 7 ) ).col1, is( 7 ) );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testCommitWithoutBegin() {
+        panel.commitUpdate();
+    }
+}
@@ -0,0 +1,103 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import info.clearthought.layout.TableLayout;
+import java.awt.Dimension;
+import java.util.Arrays;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests that a {@link CachedTableLayout} computes the same sizes as a {@link TableLayout} and only measures
+ * invalidated components.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestCachedTableLayout {
+
+    private static final int SIZE = 20;
+    private int measured;
+
+    @Test
+    public void testMeasuresOnlyInvalidComponents() {
+        double[] columns = new double[SIZE];
+        double[] rows = new double[SIZE];
+        Arrays.fill(columns, TableLayout.PREFERRED);
+        Arrays.fill(rows, TableLayout.PREFERRED);
+        columns[3] = TableLayout.FILL;
+        rows[5] = 0.25;
+        JPanel cached = new JPanel(new CachedTableLayout(columns, rows));
+        JPanel plain = new JPanel(new TableLayout(columns, rows));
+        MeasuredLabel[][] labels = new MeasuredLabel[SIZE][SIZE];
+        for (int i = 0; i < SIZE; ++i) {
+            for (int j = 0; j < SIZE; ++j) {
+                labels[i][j] = new MeasuredLabel(i + " " + j);
+                cached.add(labels[i][j], i + ", " + j);
+                plain.add(new JLabel(i + " " + j), i + ", " + j);
+            }
+        }
+        assertThat(cached.getPreferredSize(), is(plain.getPreferredSize()));
+        assertThat(measured, is(SIZE * SIZE));
+
+        measured = 0;
+        cached.setSize(800, 600);
+        plain.setSize(800, 600);
+        cached.doLayout();
+        plain.doLayout();
+        assertThat(measured, is(0));
+        assertThat(labels[7][9].getBounds(), is(plain.getComponent(7 * SIZE + 9).getBounds()));
+
+        labels[7][9].setText("a much longer text than before");
+        labels[7][9].valid = false;
+        ((JLabel) plain.getComponent(7 * SIZE + 9)).setText("a much longer text than before");
+        Dimension preferred = cached.getPreferredSize();
+        assertThat(measured, is(1));
+        assertThat(preferred, is(plain.getPreferredSize()));
+        cached.doLayout();
+        plain.doLayout();
+        for (int i = 0; i < SIZE * SIZE; ++i) {
+            assertThat(cached.getComponent(i).getBounds(), is(plain.getComponent(i).getBounds()));
+        }
+    }
+
+    /**
+     * A label that counts how often it is measured and is valid after it has been measured.
+     */
+    private class MeasuredLabel extends JLabel {
+
+        private boolean valid;
+
+        MeasuredLabel(String text) {
+            super(text);
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            measured++;
+            valid = true;
+            return super.getPreferredSize();
+        }
+
+        @Override
+        public boolean isValid() {
+            return valid;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the ranking of the {@link CommandIndex}.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestCommandIndex {
+
+    private CommandIndex<String> index;
+
+    @Before
+    public void fill() {
+        index = new CommandIndex<>();
+        for (String label : new String[]{"File > Save", "File > Save as", "File > Open", "Edit > Select all",
+            "View > Show rulers", "View > Zoom in", "View > Zoom out", "Disabled > Save copy"}) {
+            index.add(label, label);
+        }
+    }
+
+    @Test
+    public void testRanking() {
+        assertThat(labels("save"), contains("File > Save", "File > Save as"));
+        assertThat(labels("zoom"), contains("View > Zoom in", "View > Zoom out"));
+        assertThat(labels("view > z").subList(0, 2), contains("View > Zoom in", "View > Zoom out"));
+        assertThat(labels("all"), contains("Edit > Select all"));
+    }
+
+    @Test
+    public void testShortQueriesUseWordPrefixes() {
+        assertThat(labels("o"), contains("File > Open", "View > Zoom out"));
+        assertThat(labels("sh"), contains("View > Show rulers"));
+    }
+
+    @Test
+    public void testToleratesTypos() {
+        assertThat(labels("rulrs"), contains("View > Show rulers"));
+        assertThat(labels("slect al"), contains("Edit > Select all"));
+        assertThat(labels("xyz"), is(empty()));
+    }
+
+    @Test
+    public void testEmptyQueryReturnsFirstCommands() {
+        assertThat(index.search(" ", 2, label -> true).size(), is(2));
+    }
+
+    @Test
+    public void testManyCommands() {
+        CommandIndex<Integer> large = new CommandIndex<>();
+        String[] words = {"open", "save", "close", "export", "import", "zoom", "rotate", "select", "copy", "paste"};
+        for (int i = 0; i < 5000; ++i) {
+            large.add(i, "Menu " + i / 100 + " > " + words[i % words.length] + " " + words[i / 10 % words.length]
+                    + " " + i);
+        }
+        List<CommandIndex.Match<Integer>> matches = large.search("export zom 4753", 5, command -> true);
+        assertThat(matches.get(0).getLabel(), is("Menu 47 > export zoom 4753"));
+        assertThat(large.search("paste", 10, command -> command % 2 == 1).size(), is(10));
+    }
+
+    private List<String> labels(String query) {
+        List<String> labels = new ArrayList<>();
+        for (CommandIndex.Match<String> match : index.search(query, 10, label -> !label.startsWith("Disabled"))) {
+            labels.add(match.getLabel());
+        }
+        return labels;
+    }
+}
@@ -0,0 +1,164 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.swing.JButton;
+import javax.swing.JMenu;
+import javax.swing.JMenuItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.zetool.components.framework.Menu;
+
+/**
+ * Tests compiling and reading {@link CompiledBundle}s.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestCompiledBundle {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private final Locale defaultLocale = Locale.getDefault();
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(defaultLocale);
+        System.clearProperty(CompiledBundle.DIRECTORY_PROPERTY);
+        Menu.setLoc(null);
+        Menu.setBundleName(ComponentLocalization.BUNDLE_NAME);
+    }
+
+    @Test
+    public void testLookup() {
+        Map<String, String> texts = new HashMap<>();
+        texts.put("General.Cancel", "A_bbrechen");
+        texts.put("General.OK", "OK");
+        texts.put("General.Quit", "Schließen");
+        texts.put("Trailing", "Under_");
+        CompiledBundle bundle = new CompiledBundle(ByteBuffer.wrap(BundleCompiler.compile(texts)));
+        assertThat(bundle.size(), is(4));
+        assertThat(bundle.getText("General.Cancel"), is("Abbrechen"));
+        assertThat(bundle.getMnemonic("General.Cancel"), is('b'));
+        assertThat(bundle.getMnemonicIndex("General.Cancel"), is(1));
+        assertThat(bundle.getText("General.Quit"), is("Schließen"));
+        assertThat(bundle.getText("General.Quit"), is(sameInstance(bundle.getText("General.Quit"))));
+        assertThat(bundle.getMnemonic("General.OK"), is((char) 0));
+        assertThat(bundle.getMnemonicIndex("General.OK"), is(-1));
+        assertThat(bundle.getText("Trailing"), is("Under_"));
+        assertThat(bundle.getText("General"), is(nullValue()));
+        assertThat(bundle.contains("General.OKAY"), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsOtherData() {
+        new CompiledBundle(ByteBuffer.wrap("General.OK=OK".getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsTruncatedData() {
+        byte[] compiled = BundleCompiler.compile(java.util.Collections.singletonMap("Key", "Value"));
+        new CompiledBundle(ByteBuffer.wrap(Arrays.copyOf(compiled, compiled.length - 2)));
+    }
+
+    @Test
+    public void testCompilesLocaleChain() throws IOException {
+        Path directory = folder.newFolder("org").toPath();
+        write(directory.resolve("Texts.properties"), "A=base\nB=base\nC=base\n");
+        write(directory.resolve("Texts_de.properties"), "B=de\nC=de\n");
+        write(directory.resolve("Texts_de_AT.properties"), "C=at\n");
+        write(directory.resolve("TextsOther.properties"), "A=other\n");
+        assertThat(BundleCompiler.compileAll(folder.getRoot().toPath(), "org/Texts").size(), is(3));
+
+        CompiledBundle austrian = CompiledBundle.map(directory.resolve("Texts_de_AT.zlb"));
+        assertThat(austrian.getText("A"), is("base"));
+        assertThat(austrian.getText("B"), is("de"));
+        assertThat(austrian.getText("C"), is("at"));
+        assertThat(CompiledBundle.map(directory.resolve("Texts.zlb")).getText("C"), is("base"));
+        assertThat(Files.exists(directory.resolve("TextsOther.zlb")), is(false));
+    }
+
+    @Test
+    public void testFallsBackToDefaultLocale() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        write(directory.resolve("Fallback.properties"), "A=base\n");
+        write(directory.resolve("Fallback_de.properties"), "A=de\n");
+        write(directory.resolve("Fallback_fr_CA.properties"), "A=ca\n");
+        BundleCompiler.compileAll(directory, "Fallback");
+        System.setProperty(CompiledBundle.DIRECTORY_PROPERTY, directory.toString());
+        Locale.setDefault(Locale.GERMANY);
+
+        assertThat(CompiledBundle.forLocale("Fallback", Locale.ITALIAN).getText("A"), is("de"));
+        assertThat(CompiledBundle.forLocale("Fallback", Locale.CANADA_FRENCH).getText("A"), is("ca"));
+        assertThat(CompiledBundle.forLocale("Fallback", Locale.FRANCE).getText("A"), is("de"));
+        Locale.setDefault(Locale.JAPAN);
+        assertThat(CompiledBundle.forLocale("Fallback", Locale.ITALIAN).getText("A"), is("base"));
+    }
+
+    @Test
+    public void testMenuFollowsLocale() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        write(directory.resolve("MenuTexts.properties"), "File=_File\n");
+        write(directory.resolve("MenuTexts_de.properties"), "File=_Datei\n");
+        write(directory.resolve("MenuTexts_fr.properties"), "File=F_ichier\n");
+        BundleCompiler.compileAll(directory, "MenuTexts");
+        System.setProperty(CompiledBundle.DIRECTORY_PROPERTY, directory.toString());
+        Menu.setBundleName("MenuTexts");
+
+        Locale.setDefault(Locale.GERMAN);
+        JButton button = Menu.localize(new JButton(), "File");
+        assertThat(button.getText(), is("Datei"));
+        assertThat(button.getMnemonic(), is((int) 'D'));
+        Locale.setDefault(Locale.FRENCH);
+        Menu.updateBundle();
+        Menu.localize(button, "File");
+        assertThat(button.getText(), is("Fichier"));
+        assertThat(button.getDisplayedMnemonicIndex(), is(1));
+    }
+
+    @Test
+    public void testOwnLocalizationIsNotOverridden() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        write(directory.resolve("MenuTexts.properties"), "General.OK=_Compiled\n");
+        BundleCompiler.compileAll(directory, "MenuTexts");
+        System.setProperty(CompiledBundle.DIRECTORY_PROPERTY, directory.toString());
+        Menu.setBundleName("MenuTexts");
+
+        Menu.setLoc(key -> "O_wn " + key);
+        assertThat(Menu.getBundleName(), is(nullValue()));
+        JMenuItem item = Menu.addMenuItem(new JMenu(), "General.OK");
+        assertThat(item.getText(), is("Own General.OK"));
+        assertThat(item.getMnemonic(), is((int) 'W'));
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,52 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+import org.zetool.components.ComponentWarmup.Phase;
+import org.zetool.components.ComponentWarmup.Report;
+
+/**
+ * Tests the {@link ComponentWarmup}.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestComponentWarmup {
+
+    @Test
+    public void testReportsAllPhases() throws Exception {
+        Report report = ComponentWarmup.start().get(1, TimeUnit.MINUTES);
+        long total = 0;
+        for (Phase phase : Phase.values()) {
+            assertThat(report.getNanos(phase), is(greaterThan(0L)));
+            total += report.getNanos(phase);
+        }
+        assertThat(report.getTotalNanos(), is(total));
+    }
+
+    @Test
+    public void testLabelCache() {
+        ComponentWarmup.run();
+        assertThat(JRuler.label(-5), is("-5"));
+        assertThat(JRuler.label(42), is(sameInstance(JRuler.label(42))));
+        assertThat(JRuler.label(JRuler.LABEL_CACHE_LIMIT + 1), is(Integer.toString(JRuler.LABEL_CACHE_LIMIT + 1)));
+    }
+}
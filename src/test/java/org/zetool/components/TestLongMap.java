@@ -0,0 +1,56 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Compares a {@link LongMap} with a {@link HashMap} for random operations.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestLongMap {
+
+    @Test
+    public void testRandomOperations() {
+        LongMap<Integer> map = new LongMap<>();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; ++i) {
+            long key = (long) random.nextInt(64) << 32 | random.nextInt(64);
+            int operation = random.nextInt(3);
+            if (operation == 0) {
+                assertThat(map.put(key, i), is(expected.put(key, i)));
+            } else if (operation == 1) {
+                assertThat(map.remove(key), is(expected.remove(key)));
+            } else {
+                assertThat(map.get(key), is(expected.get(key)));
+            }
+            assertThat(map.size(), is(expected.size()));
+        }
+        int[] count = new int[1];
+        map.forEach((key, value) -> {
+            assertThat(value, is(expected.get(key)));
+            count[0]++;
+        });
+        assertThat(count[0], is(expected.size()));
+    }
+}
@@ -0,0 +1,188 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JComponent;
+import javax.swing.RepaintManager;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+import org.zetool.components.JRuler.RulerDisplayUnit;
+import org.zetool.components.JRuler.RulerOrientation;
+
+/**
+ * Tests the positions of the ticks of a {@link JRuler}.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestRuler {
+
+    private static final int WIDTH = 400;
+    /** The first row below the labels that contains only tick lines. */
+    private static final int TICK_ROW = 20;
+
+    @Test
+    public void testTicksAtExactPositions() {
+        JRuler ruler = new JRuler(RulerOrientation.HORIZONTAL, RulerDisplayUnit.CENTIMETER);
+        ruler.setOffsetMicrometer(-123_456_789_000_000L);
+        BufferedImage image = paint(ruler);
+        for (int x = 0; x < WIDTH; ++x) {
+            assertThat("Pixel " + x, isBlack(image, x, 25), is(x % 10 == 0));
+        }
+    }
+
+    @Test
+    public void testLargeOffsetsDoNotDrift() {
+        JRuler ruler = new JRuler(RulerOrientation.HORIZONTAL, RulerDisplayUnit.INCH);
+        ruler.setZoomFactor(3.7);
+        ruler.setSmallScaleStep(1);
+        ruler.setBigScaleStep(5);
+        ruler.setOffsetMicrometer(12_345);
+        BufferedImage near = paint(ruler);
+        ruler.setOffsetMicrometer(12_345 - 25_400L * 1_000_000_000_000L);
+        BufferedImage far = paint(ruler);
+        for (int x = 0; x < WIDTH; ++x) {
+            for (int y = TICK_ROW; y < 30; ++y) {
+                assertThat("Pixel " + x + ", " + y, far.getRGB(x, y), is(near.getRGB(x, y)));
+            }
+        }
+    }
+
+    @Test
+    public void testPixelOffsetKeptOnZoom() {
+        JRuler ruler = new JRuler(RulerOrientation.HORIZONTAL, RulerDisplayUnit.CENTIMETER);
+        ruler.setZoomFactor(0.5);
+        BufferedImage image = paint(ruler);
+        assertThat(isBlack(image, 80, 25), is(true));
+        assertThat(isBlack(image, 85, 25), is(true));
+        assertThat(isBlack(image, 82, 25), is(false));
+
+        ruler.setZoomFactor(1);
+        ruler.setOffset(5);
+        ruler.setZoomFactor(2);
+        assertThat(ruler.getOffsetMicrometer(), is(2500L));
+        image = paint(ruler);
+        assertThat(isBlack(image, 5, 25), is(true));
+        assertThat(isBlack(image, 25, 25), is(true));
+        assertThat(isBlack(image, 10, 25), is(false));
+    }
+
+    @Test
+    public void testMicrometerOffsetFollowsZoom() {
+        JRuler ruler = new JRuler(RulerOrientation.HORIZONTAL, RulerDisplayUnit.CENTIMETER);
+        ruler.setOffsetMicrometer(5000);
+        ruler.setZoomFactor(2);
+        assertThat(ruler.getOffsetMicrometer(), is(5000L));
+        BufferedImage image = paint(ruler);
+        assertThat(isBlack(image, 10, 25), is(true));
+        assertThat(isBlack(image, 30, 25), is(true));
+        assertThat(isBlack(image, 20, 25), is(false));
+    }
+
+    @Test
+    public void testMarkerAndSelection() {
+        JRuler ruler = new JRuler(RulerOrientation.HORIZONTAL, RulerDisplayUnit.CENTIMETER);
+        ruler.selectionColor = Color.BLUE;
+        ruler.setOffsetMicrometer(0);
+        ruler.setSelection(60, 41);
+        ruler.setMarkerPosition(15);
+        BufferedImage image = paint(ruler);
+        assertThat(image.getRGB(15, 25), is(Color.RED.getRGB()));
+        assertThat(image.getRGB(41, 25), is(Color.BLUE.getRGB()));
+        assertThat(image.getRGB(60, 5), is(Color.BLUE.getRGB()));
+        assertThat(isBlack(image, 70, 25), is(true));
+        ruler.removeMarker();
+        ruler.removeSelection();
+        image = paint(ruler);
+        assertThat(isBlack(image, 50, 25), is(true));
+        assertThat(image.getRGB(15, 25), is(Color.WHITE.getRGB()));
+    }
+
+    @Test
+    public void testMarkerRepaintsStrips() {
+        JRuler ruler = new JRuler(RulerOrientation.HORIZONTAL, RulerDisplayUnit.CENTIMETER);
+        ruler.setSize(WIDTH, 30);
+        List<Rectangle> dirty = new ArrayList<>();
+        RepaintManager repaintManager = RepaintManager.currentManager(ruler);
+        RepaintManager.setCurrentManager(new RepaintManager() {
+            @Override
+            public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+                dirty.add(new Rectangle(x, y, w, h));
+            }
+        });
+        try {
+            ruler.setMarkerPosition(10);
+            ruler.setMarkerPosition(300);
+            ruler.setSelection(100, 200);
+            ruler.setSelection(100, 210);
+            ruler.setSelection(90, 210);
+        } finally {
+            RepaintManager.setCurrentManager(repaintManager);
+        }
+        assertThat(dirty, contains(new Rectangle(9, 0, 3, 30), new Rectangle(9, 0, 3, 30),
+                new Rectangle(299, 0, 3, 30), new Rectangle(100, 0, 101, 30), new Rectangle(201, 0, 10, 30),
+                new Rectangle(90, 0, 10, 30)));
+    }
+
+    @Test
+    public void testMarks() {
+        JRuler ruler = new JRuler(RulerOrientation.HORIZONTAL, RulerDisplayUnit.CENTIMETER);
+        ruler.markColor = Color.GREEN;
+        ruler.setOffsetMicrometer(0);
+        ruler.setSize(WIDTH, 30);
+        RulerMarks marks = new RulerMarks();
+        ruler.setMarks(marks);
+        List<Rectangle> dirty = new ArrayList<>();
+        RepaintManager repaintManager = RepaintManager.currentManager(ruler);
+        RepaintManager.setCurrentManager(new RepaintManager() {
+            @Override
+            public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+                dirty.add(new Rectangle(x, y, w, h));
+            }
+        });
+        try {
+            marks.add(55_000, "Door");
+            marks.add(-1_000_000_000_000L, "Far away");
+        } finally {
+            RepaintManager.setCurrentManager(repaintManager);
+        }
+        assertThat(dirty, contains(new Rectangle(54, 0, 102, 30)));
+        BufferedImage image = paint(ruler);
+        assertThat(image.getRGB(55, 25), is(Color.GREEN.getRGB()));
+        assertThat(isBlack(image, 50, 25), is(true));
+    }
+
+    private static BufferedImage paint(JRuler ruler) {
+        ruler.setSize(WIDTH, 30);
+        BufferedImage image = new BufferedImage(WIDTH, 30, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setClip(0, 0, WIDTH, 30);
+        ruler.paint(g);
+        g.dispose();
+        return image;
+    }
+
+    private static boolean isBlack(BufferedImage image, int x, int y) {
+        return image.getRGB(x, y) == Color.BLACK.getRGB();
+    }
+}
@@ -0,0 +1,108 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests the queries and notifications of {@link RulerMarks}.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestRulerMarks {
+
+    @Test
+    public void testQueryMatchesAllIntersectingMarks() {
+        RulerMarks marks = new RulerMarks();
+        Random random = new Random(7);
+        long[][] added = new long[2000][];
+        for (int i = 0; i < added.length; ++i) {
+            long start = random.nextInt(1_000_000);
+            long end = i % 3 == 0 ? start + random.nextInt(5_000) : start;
+            added[i] = new long[]{marks.add(start, end, "Mark " + i), start, end};
+        }
+        for (int i = 0; i < added.length; i += 4) {
+            assertThat(marks.remove((int) added[i][0]), is(true));
+        }
+        assertThat(marks.size(), is(1500));
+        for (int query = 0; query < 100; ++query) {
+            long from = random.nextInt(1_000_000);
+            long to = from + random.nextInt(20_000);
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < added.length; ++i) {
+                if (i % 4 != 0 && added[i][1] <= to && added[i][2] >= from) {
+                    expected.add((int) added[i][0]);
+                }
+            }
+            List<Integer> found = new ArrayList<>();
+            long[] lastStart = {Long.MIN_VALUE};
+            marks.forEach(from, to, (id, start, end, name) -> {
+                assertThat(start >= lastStart[0], is(true));
+                lastStart[0] = start;
+                found.add(id);
+            });
+            found.sort(null);
+            assertThat(found, is(expected));
+        }
+    }
+
+    @Test
+    public void testLongSpanAmongPoints() {
+        RulerMarks marks = new RulerMarks();
+        for (int i = 0; i < 100; ++i) {
+            marks.add(10 * i, "Mark " + i);
+        }
+        int wall = marks.add(-1_000_000, 1_000_000, "Wall");
+        List<Integer> found = new ArrayList<>();
+        marks.forEach(500, 520, (id, start, end, name) -> found.add(id));
+        assertThat(found, contains(wall, 50, 51, 52));
+
+        assertThat(marks.remove(wall), is(true));
+        assertThat(marks.remove(51), is(true));
+        found.clear();
+        marks.forEach(500, 520, (id, start, end, name) -> found.add(id));
+        assertThat(found, contains(50, 52));
+        found.clear();
+        marks.forEach(-100, -1, (id, start, end, name) -> found.add(id));
+        assertThat(found.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testListenerReceivesChangedRange() {
+        RulerMarks marks = new RulerMarks();
+        List<String> changes = new ArrayList<>();
+        marks.addMarksListener((from, to) -> changes.add(from + "-" + to));
+        int door = marks.add(500, "Door");
+        marks.add(100, 300, "Wall");
+        assertThat(marks.remove(door), is(true));
+        assertThat(marks.remove(door), is(false));
+        marks.add(-20, "Exit");
+        marks.clear();
+        assertThat(changes, contains("500-500", "100-300", "500-500", "-20--20", "-20-300"));
+        assertThat(marks.size(), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSpan() {
+        new RulerMarks().add(10, 5, "Invalid");
+    }
+}
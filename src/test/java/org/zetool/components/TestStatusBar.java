@@ -0,0 +1,166 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import info.clearthought.layout.TableLayout;
+import info.clearthought.layout.TableLayoutConstraints;
+import java.lang.reflect.InvocationTargetException;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests incremental changes of the elements of a {@link JStatusBar}.
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestStatusBar {
+    private JStatusBar statusBar;
+    private RepaintManager repaintManager;
+    private int invalidations;
+
+    @Before
+    public void setup() {
+        statusBar = new JStatusBar( "first" );
+        repaintManager = RepaintManager.currentManager( statusBar );
+        RepaintManager.setCurrentManager( new RepaintManager() {
+            @Override
+            public void addInvalidComponent( JComponent invalidComponent ) {
+                invalidations++;
+            }
+        } );
+    }
+
+    @After
+    public void tearDown() {
+        RepaintManager.setCurrentManager( repaintManager );
+    }
+
+    @Test
+    public void testInsertAndRemove() {
+        JLabel second = new JLabel( "second" );
+        JLabel inserted = new JLabel( "inserted" );
+        statusBar.insertElement( 1, second, TableLayout.FILL );
+        statusBar.insertElement( 1, inserted, 100 );
+
+        TableLayout layout = (TableLayout)statusBar.getLayout();
+        assertThat( layout.getNumColumn(), is( 3 ) );
+        assertThat( layout.getColumn( 1 ), is( 100.0 ) );
+        assertThat( column( layout, inserted ), is( 1 ) );
+        assertThat( column( layout, second ), is( 2 ) );
+
+        statusBar.removeElement( 0 );
+        assertThat( layout.getNumColumn(), is( 2 ) );
+        assertThat( statusBar.getComponentCount(), is( 2 ) );
+        assertThat( statusBar.getLayout(), is( sameInstance( layout ) ) );
+        assertThat( column( layout, inserted ), is( 0 ) );
+        assertThat( column( layout, second ), is( 1 ) );
+    }
+
+    @Test
+    public void testInsertAfterUndisplayedAdd() {
+        JLabel added = new JLabel( "added" );
+        JLabel inserted = new JLabel( "inserted" );
+        statusBar.addElement( added );
+        statusBar.insertElement( 0, inserted, 100 );
+
+        TableLayout layout = (TableLayout)statusBar.getLayout();
+        assertThat( layout.getNumColumn(), is( 3 ) );
+        assertThat( statusBar.getComponentCount(), is( 3 ) );
+        assertThat( column( layout, inserted ), is( 0 ) );
+        assertThat( column( layout, added ), is( 2 ) );
+    }
+
+    @Test
+    public void testFixedWidthDoesNotInvalidate() throws InterruptedException, InvocationTargetException {
+        statusBar.addFixedWidthElement( "", 150 );
+        invalidations = 0;
+
+        SwingUtilities.invokeAndWait( () -> statusBar.setStatusText( 1, "a considerably longer text than before" ) );
+        assertThat( invalidations, is( 0 ) );
+        assertThat( ((JLabel)statusBar.getComponent( 1 )).getText(), is( "a considerably longer text than before" ) );
+    }
+
+    @Test
+    public void testMinimumWidth() throws InterruptedException, InvocationTargetException {
+        statusBar.addMinimumWidthElement( "1", 200 );
+        invalidations = 0;
+
+        SwingUtilities.invokeAndWait( () -> statusBar.setStatusText( 1, "12345" ) );
+        assertThat( invalidations, is( 0 ) );
+
+        StringBuilder text = new StringBuilder();
+        for( int i = 0; i < 100; i++ )
+            text.append( i );
+        SwingUtilities.invokeAndWait( () -> statusBar.setStatusText( 1, text.toString() ) );
+        assertThat( invalidations, is( 1 ) );
+    }
+
+    @Test
+    public void testPostedTextsAreCoalesced() throws InterruptedException, InvocationTargetException {
+        CountingLabel label = new CountingLabel();
+        SwingUtilities.invokeAndWait( () -> statusBar.insertElement( 1, label, TableLayout.FILL ) );
+        label.count = 0;
+        statusBar.postStatusText( 1, "a" );
+        statusBar.postStatusText( 1, "b" );
+        statusBar.postStatusText( 1, "c" );
+        SwingUtilities.invokeAndWait( statusBar::updatePostedTexts );
+        assertThat( label.getText(), is( "c" ) );
+        assertThat( label.count, is( 1 ) );
+
+        statusBar.postStatusText( 1, "c" );
+        SwingUtilities.invokeAndWait( statusBar::updatePostedTexts );
+        assertThat( label.count, is( 1 ) );
+    }
+
+    @Test
+    public void testPostedTextFollowsElement() throws InterruptedException, InvocationTargetException {
+        CountingLabel label = new CountingLabel();
+        JLabel inserted = new JLabel( "inserted" );
+        SwingUtilities.invokeAndWait( () -> statusBar.insertElement( 1, label, TableLayout.FILL ) );
+        statusBar.postStatusText( 1, "posted" );
+        SwingUtilities.invokeAndWait( () -> {
+            statusBar.insertElement( 0, inserted, 50 );
+            statusBar.updatePostedTexts();
+        } );
+        assertThat( label.getText(), is( "posted" ) );
+        assertThat( inserted.getText(), is( "inserted" ) );
+    }
+
+    /**
+     * Counts the text changes.
+     */
+    private static class CountingLabel extends JLabel {
+        private int count;
+
+        @Override
+        public void setText( String text ) {
+            super.setText( text );
+            count++;
+        }
+    }
+
+    private static int column( TableLayout layout, JLabel label ) {
+        TableLayoutConstraints constraints = layout.getConstraints( label );
+        return constraints.col1;
+    }
+}
@@ -0,0 +1,103 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import javax.swing.DefaultCellEditor;
+import javax.swing.JLabel;
+import javax.swing.JTextField;
+import javax.swing.table.DefaultTableModel;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests painting and editing of a {@link JVirtualArrayPanel}.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestVirtualArrayPanel {
+
+    private int rendered;
+
+    @Test
+    public void testPaintsOnlyVisibleCells() {
+        JVirtualArrayPanel panel = new JVirtualArrayPanel(new DefaultTableModel(1000, 1000), 20, 10);
+        JLabel label = new JLabel();
+        panel.setRenderer((p, value, column, row) -> {
+            rendered++;
+            return label;
+        });
+        panel.setSize(panel.getPreferredSize());
+        assertThat(panel.getWidth(), is(20000));
+
+        BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = image.getGraphics();
+        g.translate(-2000, -5000);
+        g.setClip(2000, 5000, 100, 100);
+        panel.paint(g);
+        g.dispose();
+        assertThat(rendered, is(5 * 10));
+    }
+
+    @Test
+    public void testCellAtPoint() {
+        JVirtualArrayPanel panel = new JVirtualArrayPanel(new DefaultTableModel(5, 4), 20, 10);
+        panel.setColumnWidth(1, 0);
+        panel.setColumnWidth(2, 50);
+        assertThat(panel.columnAtPoint(19), is(0));
+        assertThat(panel.columnAtPoint(20), is(2));
+        assertThat(panel.columnAtPoint(69), is(2));
+        assertThat(panel.columnAtPoint(70), is(3));
+        assertThat(panel.columnAtPoint(90), is(-1));
+        assertThat(panel.rowAtPoint(-1), is(-1));
+        assertThat(panel.rowAtPoint(49), is(4));
+        assertThat(panel.getCellRect(3, 2).x, is(70));
+    }
+
+    @Test
+    public void testEditing() {
+        DefaultTableModel model = new DefaultTableModel(100, 100);
+        JVirtualArrayPanel panel = new JVirtualArrayPanel(model, 20, 10);
+        TextEditor editor = new TextEditor();
+        panel.setEditor(editor);
+
+        assertThat(panel.editCellAt(3, 7), is(true));
+        assertThat(panel.getComponentCount(), is(2));
+        assertThat(panel.getEditingColumn(), is(3));
+        ((JTextField) editor.getComponent()).setText("value");
+        editor.stopCellEditing();
+
+        assertThat(panel.isEditing(), is(false));
+        assertThat(panel.getComponentCount(), is(1));
+        assertThat(model.getValueAt(7, 3), is("value"));
+    }
+
+    private static class TextEditor extends DefaultCellEditor implements ArrayCellEditor {
+
+        TextEditor() {
+            super(new JTextField());
+        }
+
+        @Override
+        public Component getCellEditorComponent(JVirtualArrayPanel panel, Object value, int column, int row) {
+            delegate.setValue(value);
+            return editorComponent;
+        }
+    }
+}
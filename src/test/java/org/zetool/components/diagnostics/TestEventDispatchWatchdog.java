@@ -0,0 +1,103 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.diagnostics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import javax.swing.SwingUtilities;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+import org.zetool.components.diagnostics.EventDispatchWatchdog.StallReport;
+
+/**
+ * Tests the detection of stalls of the event dispatch thread by {@link EventDispatchWatchdog}.
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestEventDispatchWatchdog {
+
+    @Test
+    public void testBuckets() {
+        assertThat(EventDispatchWatchdog.bucket(0), is(0));
+        assertThat(EventDispatchWatchdog.bucket(999_999), is(0));
+        assertThat(EventDispatchWatchdog.bucket(1_000_000), is(1));
+        assertThat(EventDispatchWatchdog.bucket(3_000_000), is(2));
+        assertThat(EventDispatchWatchdog.bucket(4_000_000), is(3));
+        assertThat(EventDispatchWatchdog.bucket(Long.MAX_VALUE), is(EventDispatchWatchdog.BUCKETS - 1));
+    }
+
+    @Test
+    public void testDetectsStall() throws InterruptedException, InvocationTargetException {
+        EventDispatchWatchdog watchdog = new EventDispatchWatchdog(10, 50, 4);
+        watchdog.check(System.nanoTime());
+        SwingUtilities.invokeAndWait(() -> {
+        });
+
+        CountDownLatch latch = new CountDownLatch(1);
+        SwingUtilities.invokeLater(() -> block(latch));
+        watchdog.check(System.nanoTime());
+        Thread.sleep(100);
+        watchdog.check(System.nanoTime());
+        assertThat(watchdog.getStallCount(), is(1L));
+        assertThat(watchdog.getCurrentLagMillis(), is(greaterThanOrEqualTo(50L)));
+
+        List<StallReport> reports = watchdog.getStallReports();
+        assertThat(reports.size(), is(1));
+        assertThat(reports.get(0).isFinished(), is(false));
+        boolean blocked = false;
+        for (StackTraceElement element : reports.get(0).getStack()) {
+            blocked |= element.getMethodName().equals("block");
+        }
+        assertThat(blocked, is(true));
+
+        latch.countDown();
+        SwingUtilities.invokeAndWait(() -> {
+        });
+        assertThat(reports.get(0).isFinished(), is(true));
+        assertThat(reports.get(0).getDurationMillis(), is(greaterThanOrEqualTo(100L)));
+        long total = 0;
+        for (long count : watchdog.getHistogram()) {
+            total += count;
+        }
+        assertThat(total, is(2L));
+    }
+
+    @Test
+    public void testHeartbeatPostedAtTimeZero() throws InterruptedException, InvocationTargetException {
+        EventDispatchWatchdog watchdog = new EventDispatchWatchdog(10, 50, 4);
+        CountDownLatch latch = new CountDownLatch(1);
+        SwingUtilities.invokeLater(() -> block(latch));
+        // System.nanoTime() may return any value, including 0
+        watchdog.check(0);
+        watchdog.check(60_000_000);
+        assertThat(watchdog.getStallCount(), is(1L));
+
+        latch.countDown();
+        SwingUtilities.invokeAndWait(() -> {
+        });
+        assertThat(watchdog.getStallReports().get(0).isFinished(), is(true));
+    }
+
+    private static void block(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
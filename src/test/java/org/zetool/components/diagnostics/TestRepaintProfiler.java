@@ -0,0 +1,111 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.diagnostics;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+import javax.swing.JPanel;
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertThat;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.zetool.components.JCorner;
+import org.zetool.components.JRuler;
+import org.zetool.components.JRuler.RulerDisplayUnit;
+import org.zetool.components.JRuler.RulerOrientation;
+
+/**
+ * Tests the recording of the {@link RepaintProfiler}.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestRepaintProfiler {
+
+    private RepaintProfiler profiler;
+    private RepaintManager original;
+
+    @Before
+    public void install() {
+        original = RepaintManager.currentManager(new JPanel());
+        profiler = new RepaintProfiler();
+        profiler.install();
+    }
+
+    @After
+    public void uninstall() {
+        profiler.uninstall();
+    }
+
+    @Test
+    public void testRecordsRepaintsAndPaints() throws Exception {
+        JRuler ruler = new JRuler(RulerOrientation.HORIZONTAL, RulerDisplayUnit.CENTIMETER);
+        ruler.setSize(200, 30);
+        ruler.repaint(0, 0, 50, 30);
+        ruler.repaint(100, 0, 50, 100);
+        BufferedImage image = new BufferedImage(200, 30, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setClip(0, 0, 200, 30);
+        ruler.paint(g);
+        g.dispose();
+        JPanel parent = new JPanel();
+        parent.add(ruler);
+        SwingUtilities.invokeAndWait(ruler::revalidate);
+
+        RepaintProfiler.ComponentStatistics statistics = profiler.getStatistics(ruler);
+        assertThat(statistics.getRepaintRequests(), is(2L));
+        assertThat(statistics.getRequestedArea(), is(3000L));
+        assertThat(statistics.getPaints(), is(1L));
+        assertThat(statistics.getPaintedArea(), is(6000L));
+        assertThat(statistics.getOverdrawRatio(), is(closeTo(2, 1e-9)));
+        assertThat(statistics.getRevalidations(), is(1L));
+        assertThat(statistics.isOpaque(), is(true));
+        assertThat(profiler.getReport(), containsString(JRuler.class.getName()));
+
+        profiler.reset();
+        assertThat(profiler.getStatistics(ruler), is(nullValue()));
+    }
+
+    @Test
+    public void testUninstallRestoresManager() {
+        assertThat(RepaintManager.currentManager(new JPanel()), is(sameInstance(profiler)));
+        profiler.uninstall();
+        assertThat(RepaintManager.currentManager(new JPanel()), is(sameInstance(original)));
+        JCorner corner = new JCorner();
+        corner.paint(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics());
+        assertThat(profiler.getStatistics(corner), is(nullValue()));
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        profiler.register();
+        try {
+            ObjectName name = new ObjectName(RepaintProfiler.OBJECT_NAME);
+            assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "PaintCycleCount"), is(0L));
+            assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "ComponentCount"), is(0));
+        } finally {
+            profiler.unregister();
+        }
+    }
+}
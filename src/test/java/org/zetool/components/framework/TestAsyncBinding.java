@@ -0,0 +1,125 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.framework;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import javax.swing.SwingUtilities;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests that an {@link AsyncBinding} only displays the latest model.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestAsyncBinding {
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final List<String> displayed = new ArrayList<>();
+    private final AsyncBinding<Integer, String> binding
+            = new AsyncBinding<>(displayed::add, model -> "model " + model, tasks::add);
+
+    @Test
+    public void testSkipsReplacedModels() throws InterruptedException, InvocationTargetException {
+        binding.setModel(1);
+        binding.setModel(2);
+        binding.setModel(3);
+        runTasks();
+        SwingUtilities.invokeAndWait(() -> {
+        });
+
+        assertThat(displayed, is(Arrays.asList("model 3")));
+        assertThat(binding.getCancelledCount(), is(2L));
+        assertThat(binding.getStaleCount(), is(0L));
+        assertThat(binding.getAppliedCount(), is(1L));
+    }
+
+    @Test
+    public void testDropsStaleState() throws InterruptedException, InvocationTargetException {
+        binding.setModel(1);
+        // the prepared state is displayed after this task, when the second model is already set
+        SwingUtilities.invokeAndWait(() -> {
+            runTasks();
+            binding.setModel(2);
+        });
+        runTasks();
+        SwingUtilities.invokeAndWait(() -> {
+        });
+
+        assertThat(displayed, is(Arrays.asList("model 2")));
+        assertThat(binding.getStaleCount(), is(1L));
+        assertThat(binding.getAppliedCount(), is(1L));
+    }
+
+    @Test
+    public void testRunningPreparationIsCancelled() throws InterruptedException, InvocationTargetException {
+        List<Boolean> signals = new ArrayList<>();
+        List<AsyncBinding<Integer, String>> self = new ArrayList<>();
+        AsyncBinding<Integer, String> cancellable = new AsyncBinding<>(displayed::add, (model, cancelled) -> {
+            signals.add(cancelled.getAsBoolean());
+            if (model == 1) {
+                // a newer model is set while the first one is prepared
+                self.get(0).setModel(2);
+                signals.add(cancelled.getAsBoolean());
+            }
+            return "model " + model;
+        }, tasks::add);
+        self.add(cancellable);
+        cancellable.setModel(1);
+        runTasks();
+        SwingUtilities.invokeAndWait(() -> {
+        });
+
+        assertThat(signals, is(Arrays.asList(false, true, false)));
+        assertThat(displayed, is(Arrays.asList("model 2")));
+        assertThat(cancellable.getStaleCount(), is(1L));
+    }
+
+    @Test
+    public void testFailuresAreReported() throws InterruptedException, InvocationTargetException {
+        List<RuntimeException> failures = new ArrayList<>();
+        AsyncBinding<Integer, String> failing = new AsyncBinding<>(displayed::add, model -> {
+            if (model < 0) {
+                throw new IllegalArgumentException("negative");
+            }
+            return "model " + model;
+        }, tasks::add);
+        failing.setFailureHandler(failures::add);
+        failing.setModel(-1);
+        runTasks();
+        failing.setModel(1);
+        runTasks();
+        SwingUtilities.invokeAndWait(() -> {
+        });
+
+        assertThat(failing.getFailedCount(), is(1L));
+        assertThat(failures.size(), is(1));
+        assertThat(failures.get(0).getMessage(), is("negative"));
+        assertThat(displayed, is(Arrays.asList("model 1")));
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+    }
+}
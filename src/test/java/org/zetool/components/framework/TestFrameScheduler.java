@@ -0,0 +1,146 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.framework;
+
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+import org.zetool.components.framework.FrameScheduler.Priority;
+
+/**
+ * Tests that a {@link FrameScheduler} runs chunks by priority and within the budget.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestFrameScheduler {
+
+    @Test
+    public void testPriorities() throws InterruptedException, InvocationTargetException {
+        FrameScheduler scheduler = new FrameScheduler(TimeUnit.SECONDS.toNanos(10));
+        List<String> order = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        EventQueue.invokeAndWait(() -> {
+            futures.add(scheduler.submit(Priority.LOW, chunks("low", 2, order)));
+            futures.add(scheduler.submit(Priority.NORMAL, chunks("first", 2, order)));
+            futures.add(scheduler.submit(Priority.NORMAL, chunks("second", 1, order)));
+            futures.add(scheduler.execute(Priority.HIGH, () -> order.add("high")));
+            assertThat(scheduler.getQueueDepth(), is(4));
+            assertThat(scheduler.getQueueDepth(Priority.NORMAL), is(2));
+            scheduler.runFrame();
+        });
+
+        assertThat(order, is(Arrays.asList("high", "first0", "second0", "first1", "low0", "low1")));
+        for (CompletableFuture<Void> future : futures) {
+            assertThat(future.isDone(), is(true));
+        }
+        assertThat(scheduler.getQueueDepth(), is(0));
+        assertThat(scheduler.getMaxQueueDepth(), is(4));
+        assertThat(scheduler.getFrameCount(), is(1L));
+        assertThat(scheduler.getChunkCount(), is(6L));
+        assertThat(scheduler.getOverrunCount(), is(0L));
+    }
+
+    @Test
+    public void testBudget() throws InterruptedException, ExecutionException, TimeoutException,
+            InvocationTargetException {
+        // each frame exceeds the budget after its first chunk
+        FrameScheduler scheduler = new FrameScheduler(1);
+        List<String> order = new ArrayList<>();
+        scheduler.submit(Priority.NORMAL, chunks("chunk", 5, order)).get(5, TimeUnit.SECONDS);
+        // the future completes within the last frame
+        EventQueue.invokeAndWait(() -> {
+        });
+
+        assertThat(order.size(), is(5));
+        assertThat(scheduler.getFrameCount(), is(5L));
+        assertThat(scheduler.getOverrunCount(), is(5L));
+        assertThat(scheduler.getMaxOverrunNanos() > 0, is(true));
+    }
+
+    @Test
+    public void testOverrunsOnlyForLongChunks() throws InterruptedException, InvocationTargetException {
+        FrameScheduler scheduler = new FrameScheduler(TimeUnit.MILLISECONDS.toNanos(20));
+        EventQueue.invokeAndWait(() -> {
+            scheduler.submit(Priority.NORMAL, new FrameScheduler.ChunkedTask() {
+                private int count;
+
+                @Override
+                public boolean runChunk() {
+                    busyWait(TimeUnit.MILLISECONDS.toNanos(1));
+                    return ++count < 60;
+                }
+            });
+            // the last chunk of each frame ends after the budget, which is no overrun
+            while (scheduler.getQueueDepth() > 0) {
+                scheduler.runFrame();
+            }
+            assertThat(scheduler.getFrameCount() > 1, is(true));
+            assertThat(scheduler.getChunkCount(), is(60L));
+            assertThat(scheduler.getOverrunCount(), is(0L));
+
+            scheduler.execute(Priority.NORMAL, () -> busyWait(TimeUnit.MILLISECONDS.toNanos(30)));
+            scheduler.runFrame();
+            assertThat(scheduler.getOverrunCount(), is(1L));
+            assertThat(scheduler.getMaxOverrunNanos() >= TimeUnit.MILLISECONDS.toNanos(10), is(true));
+        });
+    }
+
+    @Test
+    public void testFailureAndCancellation() throws InterruptedException, InvocationTargetException {
+        FrameScheduler scheduler = new FrameScheduler();
+        List<String> order = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        EventQueue.invokeAndWait(() -> {
+            futures.add(scheduler.execute(Priority.NORMAL, () -> {
+                throw new IllegalStateException("failed");
+            }));
+            futures.add(scheduler.submit(Priority.NORMAL, chunks("cancelled", 3, order)));
+            futures.add(scheduler.submit(Priority.LOW, chunks("after", 1, order)));
+            futures.get(1).cancel(false);
+            scheduler.runFrame();
+        });
+
+        assertThat(futures.get(0).isCompletedExceptionally(), is(true));
+        assertThat(futures.get(1).isCancelled(), is(true));
+        assertThat(futures.get(2).isDone(), is(true));
+        assertThat(order, is(Arrays.asList("after0")));
+        assertThat(scheduler.getChunkCount(), is(2L));
+    }
+
+    private static void busyWait(long nanos) {
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < nanos) {
+            // the chunk has to take the time on the event dispatch thread
+        }
+    }
+
+    private static FrameScheduler.ChunkedTask chunks(String name, int count, List<String> order) {
+        int[] next = new int[1];
+        return () -> {
+            order.add(name + next[0]);
+            return ++next[0] < count;
+        };
+    }
+}
@@ -0,0 +1,78 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests the computation and dispatching of a {@link ModelDelta}.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestModelDelta {
+
+    @Test
+    public void testSingleChanges() {
+        List<String> before = Arrays.asList("a", "b", "c", "d");
+        assertThat(ModelDelta.between(before, before).isEmpty(), is(true));
+        assertThat(ModelDelta.between(before, Arrays.asList("a", "x", "c", "d")).toString(), is("[UPDATE[1, 2)]"));
+        assertThat(ModelDelta.between(before, Arrays.asList("a", "b", "x", "y", "c", "d")).toString(),
+                is("[INSERT[2, 4)]"));
+        assertThat(ModelDelta.between(before, Arrays.asList("a", "d")).toString(), is("[REMOVE[1, 3)]"));
+        assertThat(ModelDelta.between(before, Arrays.asList("x", "b", "y")).toString(),
+                is("[UPDATE[0, 1), UPDATE[2, 3), REMOVE[3, 4)]"));
+    }
+
+    @Test
+    public void testDispatch() {
+        List<String> before = Arrays.asList("a", "b", "c");
+        List<String> after = Arrays.asList("x", "b", "c", "d");
+        ModelDelta delta = ModelDelta.between(before, after);
+
+        List<String> calls = new ArrayList<>();
+        delta.dispatch(after, new DeltaDisplayable<List<String>>() {
+            @Override
+            public void partsInserted(List<String> model, int from, int to) {
+                calls.add("insert " + from + " " + to);
+            }
+
+            @Override
+            public void partsUpdated(List<String> model, int from, int to) {
+                calls.add("update " + from + " " + to);
+            }
+
+            @Override
+            public void partsRemoved(List<String> model, int from, int to) {
+                calls.add("remove " + from + " " + to);
+            }
+
+            @Override
+            public void setModel(List<String> model) {
+                calls.add("model");
+            }
+        });
+        assertThat(calls, is(Arrays.asList("update 0 1", "insert 3 4")));
+
+        calls.clear();
+        delta.dispatch(after, model -> calls.add("model " + model.size()));
+        assertThat(calls, is(Arrays.asList("model 4")));
+    }
+}
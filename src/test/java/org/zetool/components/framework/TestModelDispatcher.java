@@ -0,0 +1,57 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests that a {@link ModelDispatcher} updates all views once with the latest model.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestModelDispatcher {
+
+    @Test
+    public void testLatestModelPerFrame() throws InterruptedException {
+        ModelDispatcher<Integer> dispatcher = new ModelDispatcher<>();
+        List<Integer> first = new ArrayList<>();
+        List<Integer> second = new ArrayList<>();
+        CountDownLatch updated = new CountDownLatch(1);
+        dispatcher.subscribe(first::add);
+        dispatcher.subscribe(model -> {
+            second.add(model);
+            updated.countDown();
+        });
+
+        for (int i = 0; i < 10; ++i) {
+            dispatcher.publish(i);
+        }
+        assertThat(updated.await(5, TimeUnit.SECONDS), is(true));
+
+        assertThat(first, is(Arrays.asList(9)));
+        assertThat(second, is(Arrays.asList(9)));
+        assertThat(dispatcher.getCoalescedCount(), is(9L));
+        assertThat(dispatcher.getStatistics().size(), is(2));
+        assertThat(dispatcher.getStatistics().get(0).getUpdateCount(), is(1L));
+    }
+}
@@ -0,0 +1,128 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.log;
+
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import javax.swing.JEditorPane;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.html.HTML;
+import javax.swing.text.html.HTMLDocument;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+import org.zetool.components.framework.FrameScheduler;
+
+/**
+ * Tests the insertion of records into the document of a {@link HTMLLogAppender}.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestHTMLLogAppender {
+
+    private final LogRecordStore store = new LogRecordStore(1000);
+    private JEditorPane pane;
+    private HTMLLogAppender appender;
+
+    @Test
+    public void testOldestRecordsAreRemoved() throws InterruptedException, InvocationTargetException {
+        EventQueue.invokeAndWait(() -> create(3));
+        for (int i = 0; i < 5; ++i) {
+            store.append(Level.INFO, i, "logger", "main", "message " + i);
+            EventQueue.invokeAndWait(appender::append);
+        }
+        EventQueue.invokeAndWait(() -> {
+            assertThat(countRecords(), is(3));
+            String text = getText();
+            assertThat(text, not(containsString("message 1")));
+            assertThat(text, containsString("message 2"));
+            assertThat(text, containsString("message 4"));
+        });
+    }
+
+    @Test
+    public void testMarkupIsEscaped() throws InterruptedException, InvocationTargetException {
+        EventQueue.invokeAndWait(() -> create(10));
+        store.append(Level.WARNING, 0, "logger", "<i>thread</i>", "<b>bold</b> & \"quoted\"");
+        EventQueue.invokeAndWait(() -> {
+            appender.append();
+            assertThat(countRecords(), is(1));
+            assertThat(getText(), containsString("<i>thread</i>"));
+            assertThat(getText(), containsString("<b>bold</b> & \"quoted\""));
+        });
+    }
+
+    @Test
+    public void testScheduledUpdateInsertsChunks() throws InterruptedException, InvocationTargetException {
+        FrameScheduler scheduler = new FrameScheduler(TimeUnit.SECONDS.toNanos(10));
+        EventQueue.invokeAndWait(() -> {
+            create(1000);
+            appender.setScheduler(scheduler);
+        });
+        // the records are appended before the first chunk can run
+        EventQueue.invokeAndWait(() -> {
+            for (int i = 0; i < 450; ++i) {
+                store.append(Level.INFO, i, "logger", "main", "message " + i);
+            }
+        });
+        long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        int[] count = {0};
+        while (count[0] < 450 && System.nanoTime() < timeout) {
+            EventQueue.invokeAndWait(() -> count[0] = countRecords());
+        }
+        assertThat(count[0], is(450));
+        assertThat(scheduler.getChunkCount(), is(3L));
+    }
+
+    private void create(int maxRecords) {
+        pane = new JEditorPane("text/html", "");
+        appender = new HTMLLogAppender(store, pane, maxRecords);
+    }
+
+    /**
+     * Counts the record elements in the body of the document.
+     */
+    private int countRecords() {
+        HTMLDocument document = (HTMLDocument) pane.getDocument();
+        Element body = document.getDefaultRootElement();
+        for (int i = 0; i < body.getElementCount(); ++i) {
+            if (body.getElement(i).getAttributes().getAttribute(StyleConstants.NameAttribute) == HTML.Tag.BODY) {
+                body = body.getElement(i);
+            }
+        }
+        int count = 0;
+        for (int i = 0; i < body.getElementCount(); ++i) {
+            if (body.getElement(i).getAttributes().getAttribute(StyleConstants.NameAttribute) == HTML.Tag.DIV) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private String getText() {
+        try {
+            return pane.getDocument().getText(0, pane.getDocument().getLength());
+        } catch (BadLocationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
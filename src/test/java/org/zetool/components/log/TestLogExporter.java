@@ -0,0 +1,94 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.TimeZone;
+import java.util.logging.Level;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests the streaming export of {@link LogRecordStore} contents by {@link LogExporter}.
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestLogExporter {
+
+    @Test
+    public void testDateTime() {
+        char[] buffer = new char[LogFormat.DATE_TIME_LENGTH];
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        LogFormat.formatDateTime(0, utc, buffer, 0);
+        assertThat(new String(buffer), is("1970-01-01 00:00:00.000"));
+        LogFormat.formatDateTime(951_827_696_789L, utc, buffer, 0);
+        assertThat(new String(buffer), is("2000-02-29 12:34:56.789"));
+    }
+
+    @Test
+    public void testJsonLines() throws IOException {
+        LogRecordStore store = new LogRecordStore();
+        store.append(Level.SEVERE, 0, "logger", "main", "quote \" and\nnewline");
+        store.append(Level.INFO, 0, "logger", "main", "\u00fc");
+
+        String[] lines = export(store, LogExporter.Format.JSON_LINES).split("\n");
+        assertThat(lines.length, is(2));
+        assertThat(lines[0].startsWith("{\"sequence\":0,\"millis\":0,"), is(true));
+        assertThat(lines[0].endsWith("\"level\":\"SEVERE\",\"logger\":\"logger\",\"thread\":\"main\","
+                + "\"message\":\"quote \\\" and\\nnewline\"}"), is(true));
+        assertThat(lines[1].endsWith("\"message\":\"\u00fc\"}"), is(true));
+    }
+
+    @Test
+    public void testLargeExport() throws IOException {
+        LogRecordStore store = new LogRecordStore(5000);
+        for (int i = 0; i < 5000; ++i) {
+            store.append(Level.INFO, 0, "logger", "main", "message <" + i + ">");
+        }
+        String text = export(store, LogExporter.Format.TEXT);
+        assertThat(text.split("\n").length, is(5000));
+        assertThat(text.endsWith(" INFO [main] logger: message <4999>\n"), is(true));
+
+        String html = export(store, LogExporter.Format.HTML);
+        assertThat(html.startsWith("<html>"), is(true));
+        assertThat(html.contains("message &lt;4999&gt;"), is(true));
+        assertThat(html.endsWith("</html>\n"), is(true));
+    }
+
+    @Test
+    public void testUnpairedSurrogate() throws IOException {
+        LogRecordStore store = new LogRecordStore();
+        store.append(Level.INFO, 0, "logger", "main", "lone \ud800 surrogate");
+        store.append(Level.INFO, 0, "logger", "main", "pair \ud83d\ude00");
+        store.append(Level.INFO, 0, "logger", "main", "after");
+
+        String[] lines = export(store, LogExporter.Format.TEXT).split("\n");
+        assertThat(lines.length, is(3));
+        assertThat(lines[0].endsWith("logger: lone ? surrogate"), is(true));
+        assertThat(lines[1].endsWith("logger: pair \ud83d\ude00"), is(true));
+        assertThat(lines[2].endsWith("logger: after"), is(true));
+    }
+
+    private static String export(LogRecordStore store, LogExporter.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = new LogExporter(store, format).export(Channels.newChannel(out));
+        assertThat(count, is((long) store.size()));
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
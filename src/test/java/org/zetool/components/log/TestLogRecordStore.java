@@ -0,0 +1,110 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests the columnar storage of log records in {@link LogRecordStore}.
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestLogRecordStore {
+
+    @Test
+    public void testAppend() {
+        LogRecordStore store = new LogRecordStore(4);
+        store.append(Level.WARNING, 17, "logger", "main", "first");
+        store.append(Level.FINE, 18, "logger", "worker", "second");
+
+        assertThat(store.size(), is(2));
+        assertThat(store.getFirstSequence(), is(0L));
+        assertThat(store.getEndSequence(), is(2L));
+        assertThat(store.getMessage(0), is("first"));
+        assertThat(store.getMessage(1), is("second"));
+
+        List<String> visited = new ArrayList<>();
+        store.forEach(0, 10, (sequence, level, millis, logger, thread, chars, offset, length) -> visited.add(
+                LogRecordStore.getLevel(level) + " " + millis + " " + store.getName(logger) + " "
+                + store.getName(thread) + " " + new String(chars, offset, length)));
+        assertThat(visited.get(0), is("WARNING 17 logger main first"));
+        assertThat(visited.get(1), is("FINE 18 logger worker second"));
+    }
+
+    @Test
+    public void testCapacity() {
+        LogRecordStore store = new LogRecordStore(3);
+        for (int i = 0; i < 10; ++i) {
+            store.append(Level.INFO, i, null, null, "message " + i);
+        }
+        assertThat(store.size(), is(3));
+        assertThat(store.getFirstSequence(), is(7L));
+        assertThat(store.getMessage(6), is(nullValue()));
+        assertThat(store.getMessage(7), is("message 7"));
+        assertThat(store.getMessage(9), is("message 9"));
+    }
+
+    @Test
+    public void testCharacterLimit() {
+        LogRecordStore store = new LogRecordStore(100, 10);
+        store.append(Level.INFO, 0, null, null, "1234");
+        store.append(Level.INFO, 0, null, null, "5678");
+        store.append(Level.INFO, 0, null, null, "abcd");
+        assertThat(store.size(), is(2));
+        assertThat(store.getMessage(1), is("5678"));
+        assertThat(store.getMessage(2), is("abcd"));
+
+        store.append(Level.INFO, 0, null, null, "this is too long");
+        assertThat(store.size(), is(1));
+        assertThat(store.getMessage(3), is("this is to"));
+    }
+
+    @Test
+    public void testNamesOfDroppedRecordsAreRemoved() {
+        LogRecordStore store = new LogRecordStore(4);
+        for (int i = 0; i < 1000; ++i) {
+            store.append(Level.INFO, i, "logger", "thread-" + i, "message");
+        }
+        assertThat(store.getNameCount() <= 4 * 4 + 2, is(true));
+        List<String> threads = new ArrayList<>();
+        store.forEach(store.getFirstSequence(), 4, (sequence, level, millis, logger, thread, chars, offset, length) -> {
+            assertThat(store.getName(logger), is("logger"));
+            threads.add(store.getName(thread));
+        });
+        assertThat(threads.toString(), is("[thread-996, thread-997, thread-998, thread-999]"));
+
+        store.clear();
+        assertThat(store.getNameCount(), is(0));
+    }
+
+    @Test
+    public void testDefaultCharactersDoNotOverflow() {
+        assertThat(LogRecordStore.defaultMaxChars(10), is(2000));
+        assertThat(LogRecordStore.defaultMaxChars(20_000_000), is(Integer.MAX_VALUE - 8));
+    }
+
+    @Test
+    public void testLevelCodes() {
+        assertThat(LogRecordStore.getLevel(LogRecordStore.levelCode(Level.SEVERE)), is(Level.SEVERE));
+        assertThat(LogRecordStore.getLevel(LogRecordStore.levelCode(Level.ALL)), is(Level.FINEST));
+        assertThat(LogRecordStore.getLevel(LogRecordStore.levelCode(Level.parse("850"))), is(Level.INFO));
+    }
+}
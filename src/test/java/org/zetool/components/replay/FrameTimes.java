@@ -0,0 +1,88 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.replay;
+
+import java.util.Arrays;
+
+/**
+ * Collects durations and computes percentiles using the nearest rank method.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class FrameTimes {
+
+    /** The recorded durations in nanoseconds. */
+    private long[] nanos = new long[64];
+    /** The number of recorded durations. */
+    private int count;
+
+    /**
+     * Records a duration.
+     *
+     * @param duration the duration in nanoseconds
+     */
+    public void add(long duration) {
+        if (count == nanos.length) {
+            nanos = Arrays.copyOf(nanos, 2 * count);
+        }
+        nanos[count++] = duration;
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return the number of recorded durations
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns a percentile of the recorded durations.
+     *
+     * @param percent the percentile between 0 and 100
+     * @return the smallest recorded duration such that at least the given percentage of the durations is not larger,
+     * 0 if no duration is recorded
+     */
+    public long getPercentile(double percent) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percent / 100 * count);
+        return sorted[Math.max(0, Math.min(count, rank) - 1)];
+    }
+
+    /**
+     * Returns the largest recorded duration.
+     *
+     * @return the largest duration, 0 if no duration is recorded
+     */
+    public long getMax() {
+        return getPercentile(100);
+    }
+
+    /**
+     * Appends the percentiles 50 and 99 and the maximum in milliseconds as JSON object.
+     *
+     * @param builder the builder
+     */
+    void appendJson(StringBuilder builder) {
+        builder.append("{\"p50\": ").append(getPercentile(50) / 1e6).append(", \"p99\": ")
+                .append(getPercentile(99) / 1e6).append(", \"max\": ").append(getMax() / 1e6).append('}');
+    }
+}
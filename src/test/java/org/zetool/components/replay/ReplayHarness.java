@@ -0,0 +1,240 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.replay;
+
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.EventQueue;
+import java.awt.Graphics2D;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+/**
+ * Replays {@link Scenario}s and measures the durations of the frames. The harness works in headless mode as well as
+ * with a (virtual) display, the components are always painted into an offscreen image, so the results are comparable.
+ * <p>
+ * For each frame, the duration of the scenario task on the event dispatch thread, the time spent dispatching all other
+ * events in the frame and the duration of laying out and painting the component are measured. The frame time is the
+ * sum of the three. Each frame lasts at least the frame period given in the system property {@code replay.period} in
+ * milliseconds, 20 by default, such that work posted with a delay of up to one display frame, for example by a Swing
+ * timer, is dispatched and measured within the frame. The percentiles 50 and 99 and the maximum of each duration are
+ * reported per scenario in a JSON file.</p>
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class ReplayHarness {
+
+    /**
+     * The measured durations of a scenario.
+     */
+    public static class Result {
+
+        /** The durations of the tasks on the event dispatch thread. */
+        private final FrameTimes tasks = new FrameTimes();
+        /** The durations of dispatching the other events, including those posted with a delay. */
+        private final FrameTimes events = new FrameTimes();
+        /** The durations of layout and painting. */
+        private final FrameTimes paints = new FrameTimes();
+        /** The total durations of the frames. */
+        private final FrameTimes frames = new FrameTimes();
+
+        public FrameTimes getTasks() {
+            return tasks;
+        }
+
+        public FrameTimes getEvents() {
+            return events;
+        }
+
+        public FrameTimes getPaints() {
+            return paints;
+        }
+
+        public FrameTimes getFrames() {
+            return frames;
+        }
+    }
+
+    /**
+     * Measures the time spent dispatching events while it is installed.
+     */
+    private static class DispatchClock extends EventQueue {
+
+        /** The total time spent dispatching events in nanoseconds, only accessed on the event dispatch thread. */
+        private long busyNanos;
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            long start = System.nanoTime();
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                busyNanos += System.nanoTime() - start;
+            }
+        }
+
+        void uninstall() {
+            pop();
+        }
+    }
+
+    /** The minimal duration of a frame in nanoseconds. */
+    private static final long PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("replay.period", 20));
+    /** The size of the painted components. */
+    private final Dimension size;
+    /** The results of the replayed scenarios by name. */
+    private final Map<String, Result> results = new LinkedHashMap<>();
+    /** The image the components are painted into. */
+    private final BufferedImage image;
+
+    /**
+     * Creates a harness painting the components with a given size.
+     *
+     * @param width the width of the components
+     * @param height the height of the components
+     */
+    public ReplayHarness(int width, int height) {
+        size = new Dimension(width, height);
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Replays a scenario. Must not be called on the event dispatch thread.
+     *
+     * @param scenario the scenario
+     * @return the measured durations
+     * @throws InterruptedException if the thread is interrupted
+     * @throws InvocationTargetException if the scenario fails
+     */
+    public Result replay(Scenario scenario) throws InterruptedException, InvocationTargetException {
+        Result result = new Result();
+        JComponent[] view = new JComponent[1];
+        SwingUtilities.invokeAndWait(() -> {
+            view[0] = scenario.createView();
+            view[0].setSize(size);
+        });
+        DispatchClock clock = new DispatchClock();
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(clock);
+        try {
+            replay(scenario, view[0], clock, result);
+        } finally {
+            clock.uninstall();
+        }
+        results.put(scenario.getName(), result);
+        return result;
+    }
+
+    private void replay(Scenario scenario, JComponent view, DispatchClock clock, Result result)
+            throws InterruptedException, InvocationTargetException {
+        long[] duration = new long[1];
+        long[] busy = new long[2];
+        for (int frame = 0; frame < scenario.getFrames(); ++frame) {
+            long frameStart = System.nanoTime();
+            // read on the event dispatch thread, after the time of all previous events has been added
+            SwingUtilities.invokeAndWait(() -> busy[0] = clock.busyNanos);
+            scenario.background(frame);
+            int index = frame;
+            SwingUtilities.invokeAndWait(() -> {
+                long start = System.nanoTime();
+                scenario.frame(index);
+                duration[0] = System.nanoTime() - start;
+            });
+            long task = duration[0];
+            long remaining = PERIOD_NANOS - (System.nanoTime() - frameStart);
+            if (remaining > 0) {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            }
+            SwingUtilities.invokeAndWait(() -> busy[1] = clock.busyNanos);
+            long events = Math.max(0, busy[1] - busy[0] - task);
+            SwingUtilities.invokeAndWait(() -> {
+                long paintStart = System.nanoTime();
+                layout(view);
+                Graphics2D g = image.createGraphics();
+                try {
+                    view.paint(g);
+                } finally {
+                    g.dispose();
+                }
+                duration[0] = System.nanoTime() - paintStart;
+            });
+            result.tasks.add(task);
+            result.events.add(events);
+            result.paints.add(duration[0]);
+            result.frames.add(task + events + duration[0]);
+        }
+    }
+
+    /**
+     * Lays out a component tree without a native peer, which {@link Container#validate()} requires.
+     *
+     * @param component the root of the tree
+     */
+    private static void layout(Component component) {
+        if (component instanceof Container) {
+            Container container = (Container) component;
+            container.doLayout();
+            for (Component child : container.getComponents()) {
+                layout(child);
+            }
+        }
+    }
+
+    /**
+     * Writes the results of all replayed scenarios as JSON object. For each scenario the percentiles 50 and 99 and the
+     * maximum of the frame, task, event and paint durations in milliseconds are written.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeReport(Path file) throws IOException {
+        StringBuilder builder = new StringBuilder("{\n");
+        boolean first = true;
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            if (!first) {
+                builder.append(",\n");
+            }
+            first = false;
+            Result result = entry.getValue();
+            builder.append("  \"").append(entry.getKey()).append("\": {\"frames\": ")
+                    .append(result.frames.getCount()).append(", \"frame\": ");
+            result.frames.appendJson(builder);
+            builder.append(", \"task\": ");
+            result.tasks.appendJson(builder);
+            builder.append(", \"events\": ");
+            result.events.appendJson(builder);
+            builder.append(", \"paint\": ");
+            result.paints.appendJson(builder);
+            builder.append('}');
+        }
+        builder.append("\n}\n");
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,73 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.replay;
+
+import javax.swing.JComponent;
+
+/**
+ * A scripted sequence of interactions with a component. Each frame consists of an optional background action, a task
+ * on the event dispatch thread and the painting of the component.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public abstract class Scenario {
+
+    /** The name of the scenario in the report. */
+    private final String name;
+    /** The number of frames. */
+    private final int frames;
+
+    /**
+     * Creates a new scenario.
+     *
+     * @param name the name of the scenario in the report
+     * @param frames the number of frames
+     */
+    protected Scenario(String name, int frames) {
+        this.name = name;
+        this.frames = frames;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    /**
+     * Creates the component. Called on the event dispatch thread.
+     *
+     * @return the component
+     */
+    protected abstract JComponent createView();
+
+    /**
+     * Performs the action of a frame outside of the event dispatch thread, for example logging from a worker thread.
+     *
+     * @param frame the index of the frame
+     */
+    protected void background(int frame) {
+    }
+
+    /**
+     * Performs the interaction of a frame on the event dispatch thread.
+     *
+     * @param frame the index of the frame
+     */
+    protected abstract void frame(int frame);
+}
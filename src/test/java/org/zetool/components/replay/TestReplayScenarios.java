@@ -0,0 +1,196 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.replay;
+
+import java.awt.BorderLayout;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.logging.Level;
+import javax.swing.JComponent;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JPanel;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zetool.components.JLogPane;
+import org.zetool.components.JRuler.RulerDisplayUnit;
+import org.zetool.components.JRuler.RulerOrientation;
+import org.zetool.components.JStatusBar;
+import org.zetool.components.JZoomableRuler;
+import org.zetool.components.Localizer;
+import org.zetool.components.framework.Menu;
+import org.zetool.components.log.LogRecordStore;
+
+/**
+ * Replays interaction scenarios with the {@link ReplayHarness} and writes the frame times to
+ * {@code target/replay-results.json}, or to the file given in the system property {@code replay.report}. The number
+ * of frames per scenario can be set in the system property {@code replay.frames}, the minimal duration of a frame in
+ * {@code replay.period}. If the system property {@code replay.budget} is set, the 99th percentile of the frame times of
+ * each scenario must not exceed this number of milliseconds.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestReplayScenarios {
+
+    private static final int FRAMES = Integer.getInteger("replay.frames", 100);
+    private static final ReplayHarness harness = new ReplayHarness(800, 600);
+    private static Locale defaultLocale;
+
+    @BeforeClass
+    public static void rememberLocale() {
+        defaultLocale = Locale.getDefault();
+    }
+
+    @AfterClass
+    public static void writeReport() throws Exception {
+        Locale.setDefault(defaultLocale);
+        harness.writeReport(Paths.get(System.getProperty("replay.report", "target/replay-results.json")));
+    }
+
+    @Test
+    public void testFrameTimes() {
+        FrameTimes times = new FrameTimes();
+        assertThat(times.getPercentile(50), is(0L));
+        for (int i = 100; i > 0; --i) {
+            times.add(i);
+        }
+        assertThat(times.getCount(), is(100));
+        assertThat(times.getPercentile(50), is(50L));
+        assertThat(times.getPercentile(99), is(99L));
+        assertThat(times.getPercentile(0), is(1L));
+        assertThat(times.getMax(), is(100L));
+    }
+
+    @Test
+    public void testRulerZoomAndScroll() throws Exception {
+        check(harness.replay(new Scenario("ruler zoom and scroll", FRAMES) {
+            private JZoomableRuler ruler;
+
+            @Override
+            protected JComponent createView() {
+                ruler = new JZoomableRuler(RulerOrientation.HORIZONTAL, RulerDisplayUnit.CENTIMETER);
+                return ruler;
+            }
+
+            @Override
+            protected void frame(int frame) {
+                ruler.setZoomFactor(0.1 + (frame % 40) / 10.0);
+                ruler.setOffset(frame * 25);
+                ruler.repaint();
+            }
+        }));
+    }
+
+    @Test
+    public void testLogStorm() throws Exception {
+        LogRecordStore store = new LogRecordStore();
+        check(harness.replay(new Scenario("log storm", FRAMES) {
+            @Override
+            protected JComponent createView() {
+                return new JLogPane(store);
+            }
+
+            @Override
+            protected void background(int frame) {
+                for (int i = 0; i < 500; ++i) {
+                    store.append(i % 50 == 0 ? Level.WARNING : Level.INFO, System.currentTimeMillis(), "replay",
+                            "worker", "Record " + i + " of frame " + frame);
+                }
+            }
+
+            @Override
+            protected void frame(int frame) {
+            }
+        }));
+    }
+
+    @Test
+    public void testStatusUpdates() throws Exception {
+        check(harness.replay(new Scenario("status updates", FRAMES) {
+            private JStatusBar statusBar;
+
+            @Override
+            protected JComponent createView() {
+                statusBar = new JStatusBar("Ready");
+                statusBar.addElement("");
+                statusBar.addFixedWidthElement("", 120);
+                return statusBar;
+            }
+
+            @Override
+            protected void background(int frame) {
+                statusBar.postStatusText(1, "Progress " + frame);
+            }
+
+            @Override
+            protected void frame(int frame) {
+                statusBar.setStatusText(0, "Step " + frame);
+                statusBar.setStatusText(2, frame % 2 == 0 ? "Busy" : "Idle");
+            }
+        }));
+    }
+
+    @Test
+    public void testLocaleSwitch() throws Exception {
+        int[] changes = {0};
+        check(harness.replay(new Scenario("locale switch", FRAMES) {
+            private JMenuBar bar;
+            private String previous;
+
+            @Override
+            protected JComponent createView() {
+                bar = new JMenuBar();
+                String[] keys = {"General.OK", "General.Cancel", "General.Quit"};
+                for (int i = 0; i < 10; ++i) {
+                    JMenu menu = Menu.addMenu(bar, keys[i % keys.length]);
+                    for (int j = 0; j < 20; ++j) {
+                        Menu.addMenuItem(menu, keys[j % keys.length], e -> {
+                        });
+                    }
+                }
+                JPanel panel = new JPanel(new BorderLayout());
+                panel.add(bar, BorderLayout.NORTH);
+                return panel;
+            }
+
+            @Override
+            protected void frame(int frame) {
+                Locale.setDefault(frame % 2 == 0 ? Locale.GERMAN : Locale.ENGLISH);
+                Localizer.instance().updateLocalization();
+                String text = bar.getMenu(1).getText();
+                if (previous != null && !previous.equals(text)) {
+                    changes[0]++;
+                }
+                previous = text;
+            }
+        }));
+        assertThat(changes[0], is(FRAMES - 1));
+    }
+
+    private static void check(ReplayHarness.Result result) {
+        assertThat(result.getFrames().getCount(), is(FRAMES));
+        assertThat(result.getFrames().getPercentile(50), is(lessThanOrEqualTo(result.getFrames().getPercentile(99))));
+        assertThat(result.getFrames().getPercentile(99), is(lessThanOrEqualTo(result.getFrames().getMax())));
+        String budget = System.getProperty("replay.budget");
+        if (budget != null) {
+            assertThat(result.getFrames().getPercentile(99) / 1e6, is(lessThanOrEqualTo(Double.parseDouble(budget))));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.status;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests the allocation free number formatting of {@link NumberFormatter}.
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestNumberFormatter {
+
+    @Test
+    public void testLong() {
+        assertThat(format(0), is("0"));
+        assertThat(format(7), is("7"));
+        assertThat(format(10), is("10"));
+        assertThat(format(-1234567), is("-1234567"));
+        assertThat(format(Long.MAX_VALUE), is(Long.toString(Long.MAX_VALUE)));
+        assertThat(format(Long.MIN_VALUE), is(Long.toString(Long.MIN_VALUE)));
+    }
+
+    @Test
+    public void testDouble() {
+        assertThat(format(0.0, 2), is("0.00"));
+        assertThat(format(1.005, 0), is("1"));
+        assertThat(format(2.5, 0), is("3"));
+        assertThat(format(12.345, 1), is("12.3"));
+        assertThat(format(-0.04, 1), is("0.0"));
+        assertThat(format(-3.14159, 3), is("-3.142"));
+        assertThat(format(0.05, 2), is("0.05"));
+        assertThat(format(Double.NaN, 2), is("NaN"));
+    }
+
+    @Test
+    public void testScaled() {
+        assertThat(formatScaled(0, 2), is("0.00"));
+        assertThat(formatScaled(12345, 2), is("123.45"));
+        assertThat(formatScaled(-5, 2), is("-0.05"));
+        assertThat(formatScaled(-12345, 3), is("-12.345"));
+        assertThat(formatScaled(42, 0), is("42"));
+    }
+
+    private static String formatScaled(long value, int decimals) {
+        char[] buffer = new char[21];
+        return new String(buffer, 0, NumberFormatter.formatScaled(value, decimals, buffer, 0));
+    }
+
+    private static String format(long value) {
+        char[] buffer = new char[20];
+        return new String(buffer, 0, NumberFormatter.format(value, buffer, 0));
+    }
+
+    private static String format(double value, int decimals) {
+        char[] buffer = new char[40];
+        return new String(buffer, 0, NumberFormatter.format(value, decimals, buffer, 0));
+    }
+}
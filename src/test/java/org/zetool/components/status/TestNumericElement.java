@@ -0,0 +1,64 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.status;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests the displayed characters of a {@link NumericElement}.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestNumericElement {
+
+    @Test
+    public void testOverflow() {
+        NumericElement element = new NumericElement(4);
+        element.setValue(1234);
+        assertThat(element.getDisplayedText(), is("1234"));
+        element.setValue(123456);
+        assertThat(element.getDisplayedText(), is("####"));
+        element.setValue(-123);
+        assertThat(element.getDisplayedText(), is("-123"));
+        element.setValue(-1234);
+        assertThat(element.getDisplayedText(), is("####"));
+    }
+
+    @Test
+    public void testDecimals() {
+        NumericElement element = new NumericElement("", 2, "s", 6);
+        element.setValue(12.5);
+        assertThat(element.getDisplayedText(), is("12.50"));
+        element.setValue(1000.0);
+        assertThat(element.getDisplayedText(), is("######"));
+        element.setValue(Long.MAX_VALUE / 10);
+        assertThat(element.getDisplayedText(), is("######"));
+        assertThat(element.getValue() > 0, is(true));
+    }
+
+    @Test
+    public void testNotANumber() {
+        NumericElement element = new NumericElement("", 2, "s", 6);
+        element.setValue(Double.NaN);
+        assertThat(element.getDisplayedText(), is("######"));
+        element.setValue(Double.NEGATIVE_INFINITY);
+        assertThat(element.getDisplayedText(), is("######"));
+        element.setValue(0.0);
+        assertThat(element.getDisplayedText(), is("0.00"));
+    }
+}
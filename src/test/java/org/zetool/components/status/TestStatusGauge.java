@@ -0,0 +1,93 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.components.status;
+
+import java.util.concurrent.atomic.LongAdder;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+import org.zetool.components.diagnostics.EventDispatchWatchdog;
+
+/**
+ * Tests the texts sampled by the {@link StatusGauge} implementations.
+ *
+ * @author Jan-Philipp Kappmeier
+ */
+public class TestStatusGauge {
+
+    @Test
+    public void testRepaintOnlyIfTextChanged() {
+        String[] value = {"first"};
+        int[] repaints = {0};
+        StatusGauge gauge = new StatusGauge("template") {
+            @Override
+            protected void sample() {
+                append(value[0]);
+            }
+
+            @Override
+            public void repaint() {
+                repaints[0]++;
+            }
+        };
+        repaints[0] = 0;
+        gauge.update();
+        gauge.update();
+        assertThat(gauge.getText(), is("first"));
+        assertThat(repaints[0], is(1));
+        value[0] = "second";
+        gauge.update();
+        assertThat(gauge.getText(), is("second"));
+        assertThat(repaints[0], is(2));
+    }
+
+    @Test
+    public void testMemoryGauge() {
+        for (MemoryGauge.Area area : MemoryGauge.Area.values()) {
+            MemoryGauge gauge = new MemoryGauge(area);
+            gauge.update();
+            assertThat(gauge.getText(), gauge.getText().matches(".+: \\d+ / \\d+ MB"), is(true));
+        }
+    }
+
+    @Test
+    public void testGarbageCollectionGauge() {
+        GarbageCollectionGauge gauge = new GarbageCollectionGauge();
+        gauge.update();
+        assertThat(gauge.getText(), gauge.getText().matches(".+: \\d+ / \\d+ ms \\(\\+0 ms\\)"), is(true));
+    }
+
+    @Test
+    public void testRateGauge() throws InterruptedException {
+        LongAdder counter = new LongAdder();
+        RateGauge gauge = new RateGauge("Rate", "events/s", counter);
+        counter.add(1000);
+        Thread.sleep(10);
+        gauge.update();
+        assertThat(gauge.getText(), gauge.getText().matches("Rate: \\d+\\.\\d events/s"), is(true));
+        assertThat(gauge.getText().equals("Rate: 0.0 events/s"), is(false));
+        assertThat(counter.sum(), is(0L));
+        gauge.update();
+        assertThat(gauge.getText(), is("Rate: 0.0 events/s"));
+    }
+
+    @Test
+    public void testEventDispatchLagGauge() {
+        EventDispatchLagGauge gauge = new EventDispatchLagGauge(new EventDispatchWatchdog());
+        gauge.update();
+        assertThat(gauge.getText(), gauge.getText().matches(".+: 0 ms, .+: 0"), is(true));
+    }
+}